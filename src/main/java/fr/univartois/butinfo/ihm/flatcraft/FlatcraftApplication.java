@@ -16,15 +16,25 @@
 
 package fr.univartois.butinfo.ihm.flatcraft;
 
-import fr.univartois.butinfo.ihm.flatcraft.controller.FlatcraftControleur;
+import fr.univartois.butinfo.ihm.flatcraft.controller.AbstractFlatcraftControleur;
+import fr.univartois.butinfo.ihm.flatcraft.model.ChunkCache;
 import fr.univartois.butinfo.ihm.flatcraft.model.FlatcraftGame;
+import fr.univartois.butinfo.ihm.flatcraft.replay.InputRecorder;
+import fr.univartois.butinfo.ihm.flatcraft.save.WorldJournal;
+import fr.univartois.butinfo.ihm.flatcraft.save.WorldSave;
+import fr.univartois.butinfo.ihm.flatcraft.view.SpriteStore;
+import fr.univartois.butinfo.ihm.flatcraft.view.ViewRegistry;
 import javafx.application.Application;
+import javafx.application.Preloader;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.stage.Stage;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
 
 /**
  * La classe HelloApplication illustre le fonctionnement d'une {@link Application} JavaFX.
@@ -34,17 +44,77 @@ import java.io.IOException;
  */
 public class FlatcraftApplication extends Application {
 
+    /**
+     * Le {@link SpriteStore} contenant les sprites du jeu, préchargés au démarrage.
+     */
+    private final SpriteStore spriteStore = new SpriteStore();
+
+    /**
+     * Le {@link ViewRegistry} contenant les vues secondaires du jeu, préchargées au
+     * démarrage.
+     */
+    private final ViewRegistry viewRegistry = new ViewRegistry();
+
+    /**
+     * La partie en cours.
+     */
+    private FlatcraftGame jeu;
+
+    /**
+     * L'enregistreur de la partie, si elle doit être enregistrée.
+     */
+    private InputRecorder enregistreur;
+
+    /**
+     * La sauvegarde de la partie, si elle doit être sauvegardée.
+     */
+    private WorldSave sauvegarde;
+
+    /**
+     * Le journal dans lequel les modifications de la partie sont enregistrées, si elle est
+     * sauvegardée.
+     */
+    private WorldJournal journal;
+
+    /**
+     * Si une erreur d'enregistrement de la partie a déjà été signalée au joueur.
+     */
+    private boolean erreurSignalee;
+
+    /**
+     * Si les statistiques de la partie doivent être affichées à la fermeture de
+     * l'application (option {@code --stats}).
+     */
+    private boolean statistiques;
+
     /**
      * Cette méthode exécute l'application JavaFX.
      * Pour le cours d'IHM, la méthode {@code main} d'une application JavaFX sera
      * toujours la même : un simple appel à la méthode {@link #launch(String...)}
      * définie dans la classe {@link Application}.
      *
-     * @param args Les arguments de la ligne de commande (dont on ne tient pas compte).
+     * @param args Les arguments de la ligne de commande, transmis à l'application (voir
+     *        {@link #getParameters()}).
      * @see #launch(String...)
      */
     public static void main(String[] args) {
-        launch();
+        launch(args);
+    }
+
+    /**
+     * Cette méthode précharge en parallèle tous les sprites du jeu, avant que la fenêtre
+     * ne soit affichée.
+     * Elle est exécutée par JavaFX en dehors du thread de l'application, ce qui évite de
+     * bloquer l'affichage pendant le décodage des images.
+     * La progression du chargement est transmise à l'éventuel {@link Preloader}.
+     * Les vues secondaires sont quant à elles préchargées en arrière-plan, sans retarder
+     * l'affichage de la fenêtre.
+     */
+    @Override
+    public void init() {
+        viewRegistry.preload(AbstractFlatcraftControleur.VUE_INVENTAIRE);
+        spriteStore.preload(progress -> notifyPreloader(new Preloader.ProgressNotification(progress)))
+                .join();
     }
 
     /**
@@ -55,21 +125,67 @@ public class FlatcraftApplication extends Application {
     @Override
     public void start(Stage stage) throws IOException {
         // Il faut d'abord récupérer la description de la vue (au format FXML).
-        FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("./view/flatcraft-view.fxml"));
+        // L'option "--renderer=canvas" permet de dessiner la carte sur un unique Canvas.
+        String vue = "canvas".equals(getParameters().getNamed().get("renderer"))
+                ? "./view/flatcraft-canvas-view.fxml" : "./view/flatcraft-view.fxml";
+        FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource(vue));
         Parent viewContent = fxmlLoader.load();
 
-        FlatcraftControleur controleur = fxmlLoader.getController();
+        AbstractFlatcraftControleur controleur = fxmlLoader.getController();
         controleur.setStage(stage);
+        controleur.setSpriteStore(spriteStore);
+        controleur.setViewRegistry(viewRegistry);
 
         // Ensuite, on la place dans une Scene...
         Scene scene = new Scene(viewContent, 1280, 720);
         // que l'on place elle-même dans la fenêtre.
         stage.setScene(scene);
 
-        FlatcraftGame jeu = new FlatcraftGame(1280 / 32, 720 / 32);
-        jeu.setControleur(controleur);
-        controleur.setJeu(jeu);
-        jeu.prepare();
+        // La partie est sauvegardée dans le répertoire donné par l'option "--world=..."
+        // (par défaut, ~/.flatcraft/world), et y est reprise au lancement suivant.
+        // Ses modifications y sont enregistrées au fur et à mesure par un journal.
+        // L'option "--seed=..." fixe la carte, et l'option "--record=..." enregistre la
+        // partie dans un fichier, pour la rejouer ensuite avec ReplayFlatcraft : une
+        // nouvelle partie est alors toujours commencée, et elle ne remplace la sauvegarde
+        // que si son répertoire est donné explicitement.
+        Map<String, String> options = getParameters().getNamed();
+        boolean nouvellePartie = options.containsKey("seed") || options.containsKey("record");
+        if (!nouvellePartie || options.containsKey("world")) {
+            sauvegarde = new WorldSave(Path.of(options.getOrDefault("world",
+                    Path.of(System.getProperty("user.home"), ".flatcraft", "world").toString())));
+        }
+        if ((sauvegarde != null) && sauvegarde.exists() && !nouvellePartie) {
+            jeu = sauvegarde.load(controleur);
+        } else {
+            jeu = new FlatcraftGame(1280 / 32, 720 / 32, 32 * 1024);
+            if (options.containsKey("seed")) {
+                jeu.setSeed(Long.parseLong(options.get("seed")));
+            }
+            jeu.setControleur(controleur);
+            controleur.setJeu(jeu);
+            jeu.prepare();
+            if (sauvegarde != null) {
+                sauvegarde.save(jeu);
+            }
+        }
+        if (sauvegarde != null) {
+            journal = new WorldJournal(sauvegarde, jeu, this::signalerErreur);
+        }
+
+        // Les options "--cache-chunks=..." et "--cache-memory=..." (en Mo) règlent la
+        // mémoire occupée par les tronçons de la carte.
+        ChunkCache cache = jeu.getMap().getChunkCache();
+        if (options.containsKey("cache-chunks")) {
+            cache.setHotChunks(Integer.parseInt(options.get("cache-chunks")));
+        }
+        if (options.containsKey("cache-memory")) {
+            cache.setMemoryBudget(Long.parseLong(options.get("cache-memory")) << 20);
+        }
+        // L'option "--stats" affiche les statistiques de la partie à sa fermeture.
+        statistiques = getParameters().getUnnamed().contains("--stats");
+        if (options.containsKey("record")) {
+            enregistreur = InputRecorder.create(jeu, Path.of(options.get("record")));
+        }
 
         // On peut ensuite donner un titre à la fenêtre.
         stage.setTitle("Flatcraft");
@@ -78,4 +194,61 @@ public class FlatcraftApplication extends Application {
         stage.show();
     }
 
+    /**
+     * Signale au joueur une erreur survenue pendant l'enregistrement de la partie.
+     * La fenêtre d'alerte n'est affichée qu'une seule fois, les erreurs suivantes ayant
+     * généralement la même cause : elles sont seulement affichées sur la sortie d'erreur.
+     *
+     * @param e L'erreur survenue.
+     */
+    private void signalerErreur(IOException e) {
+        System.err.println("Erreur lors de l'enregistrement de la partie : " + e);
+        if (erreurSignalee) {
+            return;
+        }
+        erreurSignalee = true;
+
+        // L'alerte ne doit pas bloquer la boucle de jeu, qui l'a déclenchée.
+        Alert alerte = new Alert(Alert.AlertType.WARNING);
+        alerte.setTitle("Flatcraft");
+        alerte.setHeaderText("La partie n'a pas pu être enregistrée.");
+        alerte.setContentText(e.getMessage()
+                + "\nLes modifications seront de nouveau enregistrées dès que possible.");
+        alerte.show();
+    }
+
+    /**
+     * Cette méthode est exécutée à la fermeture de l'application.
+     * Elle termine la sauvegarde et l'éventuel enregistrement de la partie, puis, si
+     * l'option {@code --stats} est donnée, affiche les statistiques de la génération de la
+     * carte, de la boucle de jeu, du cache des tronçons et du journal.
+     * Le fichier temporaire du cache des tronçons est enfin supprimé.
+     *
+     * @throws IOException Si la partie ne peut pas être sauvegardée, ou si son
+     *         enregistrement ne peut pas être terminé.
+     */
+    @Override
+    public void stop() throws IOException {
+        if (jeu == null) {
+            return;
+        }
+        if (enregistreur != null) {
+            enregistreur.close();
+        }
+        if (journal != null) {
+            journal.close();
+        }
+        if (statistiques) {
+            if (jeu.getGenerationPipeline() != null) {
+                System.out.println(jeu.getGenerationPipeline());
+            }
+            System.out.println(jeu.getGameLoop());
+            System.out.println(jeu.getMap().getChunkCache());
+            if (journal != null) {
+                System.out.println(journal);
+            }
+        }
+        jeu.getMap().getChunkCache().close();
+    }
+
 }
@@ -0,0 +1,371 @@
+package fr.univartois.butinfo.ihm.flatcraft.controller;
+
+import fr.univartois.butinfo.ihm.flatcraft.model.AbstractMovable;
+import fr.univartois.butinfo.ihm.flatcraft.model.Command;
+import fr.univartois.butinfo.ihm.flatcraft.model.FlatcraftGame;
+import fr.univartois.butinfo.ihm.flatcraft.model.GameMap;
+import fr.univartois.butinfo.ihm.flatcraft.model.IFlatcraftController;
+import fr.univartois.butinfo.ihm.flatcraft.model.IMapListener;
+import fr.univartois.butinfo.ihm.flatcraft.model.Inventory;
+import fr.univartois.butinfo.ihm.flatcraft.model.ItemStack;
+import fr.univartois.butinfo.ihm.flatcraft.model.MapChanges;
+import fr.univartois.butinfo.ihm.flatcraft.view.SpriteStore;
+import fr.univartois.butinfo.ihm.flatcraft.view.ViewRegistry;
+import javafx.animation.AnimationTimer;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.image.Image;
+import javafx.scene.input.KeyEvent;
+import javafx.stage.Stage;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * La classe {@link AbstractFlatcraftControleur} regroupe le comportement commun aux
+ * différents contrôleurs de la vue principale du jeu (gestion du clavier, des boutons, de
+ * la caméra et des objets mobiles affichés).
+ * Les sous-classes se chargent uniquement du rendu de la fenêtre visible.
+ * Les modifications de la carte sont récupérées une seule fois par image, sous la forme
+ * d'un unique ensemble de cellules modifiées.
+ *
+ * @version 0.1.0
+ */
+public abstract class AbstractFlatcraftControleur implements IFlatcraftController {
+
+    protected static final int LARGEUR = 1280;
+    protected static final int HAUTEUR = 720;
+    protected static final int TAILLE_CELLULE = 32;
+
+    /**
+     * Le nom du fichier de la vue de l'inventaire.
+     */
+    public static final String VUE_INVENTAIRE = "inventaire-view.fxml";
+
+    /**
+     * La carte du jeu affichée.
+     */
+    protected GameMap map;
+
+    /**
+     * La caméra déterminant la partie visible de la carte.
+     */
+    protected Camera camera;
+
+    /**
+     * Le timer publiant les modifications de la carte et rafraîchissant l'affichage à
+     * chaque image.
+     */
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            jeu.update(now);
+            map.flushChanges();
+            rafraichir();
+        }
+    };
+
+    private Stage stage;
+
+    private FlatcraftGame jeu;
+
+    /**
+     * Le {@link SpriteStore} utilisé pour charger les images des sprites du jeu.
+     */
+    private SpriteStore spriteStore;
+
+    /**
+     * Le {@link ViewRegistry} conservant les vues secondaires du jeu.
+     */
+    private ViewRegistry viewRegistry;
+
+    /**
+     * Les images des types de blocs, indexées par leur identifiant.
+     */
+    private Image[] spritesParBloc;
+
+    /**
+     * Les piles des emplacements de l'inventaire du joueur, affichées par la vue de
+     * l'inventaire.
+     */
+    private ObservableList<ItemStack> inventaire;
+
+    @FXML
+    private ProgressBar barreDeVie;
+
+    public void setStage(Stage stage) {
+        this.stage = stage;
+    }
+
+    @FXML
+    void onEtabliButtonClick(ActionEvent event) {
+        // TODO afficher l'établi
+    }
+
+    @FXML
+    void onFourneauButtonClick(ActionEvent event) {
+        // TODO afficher le fourneau
+    }
+
+    @FXML
+    void onInventaireButtonClick(ActionEvent event) throws IOException {
+        afficher(VUE_INVENTAIRE, (InventaireControleur controleurInventaire) -> {
+            controleurInventaire.setStage(stage);
+            controleurInventaire.setGameScene(stage.getScene());
+            controleurInventaire.setSpriteStore(spriteStore);
+            controleurInventaire.getInventaire(getInventaire());
+        });
+    }
+
+    /**
+     * Affiche une vue secondaire du jeu à la place de la vue principale.
+     * La vue n'est chargée qu'une seule fois : seul son contrôleur est de nouveau lié aux
+     * données à afficher à chaque affichage.
+     *
+     * @param <C>     Le type du contrôleur de la vue.
+     * @param nom     Le nom du fichier de la vue.
+     * @param liaison La fonction liant le contrôleur de la vue aux données à afficher.
+     *
+     * @throws IOException Si la vue ne peut pas être chargée.
+     */
+    private <C> void afficher(String nom, Consumer<C> liaison) throws IOException {
+        ViewRegistry.View vue = viewRegistry.get(nom);
+        liaison.accept(vue.getController());
+        stage.setScene(vue.getScene());
+    }
+
+    /**
+     * Initialise la barre de vie, une fois la vue chargée.
+     */
+    protected void initialiserBarreDeVie() {
+        barreDeVie.setProgress(1);
+    }
+
+    /**
+     * Donne la partie affichée par ce contrôleur.
+     *
+     * @return La partie affichée.
+     */
+    protected FlatcraftGame getJeu() {
+        return jeu;
+    }
+
+    @Override
+    public void setJeu(FlatcraftGame jeu) {
+        this.jeu = jeu;
+    }
+
+    /**
+     * Modifie le {@link SpriteStore} utilisé pour charger les images des sprites du jeu.
+     *
+     * @param spriteStore Le {@link SpriteStore} à utiliser.
+     */
+    public void setSpriteStore(SpriteStore spriteStore) {
+        this.spriteStore = spriteStore;
+    }
+
+    /**
+     * Modifie le {@link ViewRegistry} conservant les vues secondaires du jeu.
+     *
+     * @param viewRegistry Le {@link ViewRegistry} à utiliser.
+     */
+    public void setViewRegistry(ViewRegistry viewRegistry) {
+        this.viewRegistry = viewRegistry;
+    }
+
+    /**
+     * Donne le {@link SpriteStore} utilisé pour charger les images des sprites du jeu.
+     *
+     * @return Le {@link SpriteStore} du jeu.
+     */
+    protected SpriteStore getSpriteStore() {
+        return spriteStore;
+    }
+
+    /**
+     * Donne l'image représentant le contenu d'une cellule de la carte.
+     * Seuls les tronçons chargés de la carte sont consultés : l'affichage ne génère jamais
+     * de tronçon.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     * @return L'image de la cellule, ou {@code null} si elle est invisible.
+     */
+    protected Image getSprite(int row, int column) {
+        return spritesParBloc[map.getLoadedBlock(row, column)];
+    }
+
+    /**
+     * Donne l'image représentant un objet mobile.
+     *
+     * @param movable L'objet mobile.
+     * @return L'image de l'objet mobile.
+     */
+    protected Image getSprite(AbstractMovable movable) {
+        return spriteStore.createSprite(movable.getSpriteName());
+    }
+
+    /**
+     * Applique une action à chaque objet mobile de la partie se trouvant dans une cellule.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     * @param action L'action à appliquer.
+     */
+    protected void forEachMovableAt(int row, int column, Consumer<AbstractMovable> action) {
+        jeu.getEntities().forEachInRectangle(row, column, row, column, action);
+    }
+
+    /**
+     * Applique une action à chaque objet mobile de la partie se trouvant dans la fenêtre
+     * visible.
+     * Les objets mobiles hors de la fenêtre ne sont pas parcourus.
+     *
+     * @param action L'action à appliquer.
+     */
+    protected void forEachVisibleMovable(Consumer<AbstractMovable> action) {
+        jeu.getEntities().forEachInRectangle(camera.getRow(), camera.getColumn(),
+                camera.getRow() + camera.getRows() - 1, camera.getColumn() + camera.getColumns() - 1, action);
+    }
+
+    /**
+     * Donne les piles observables des emplacements de l'inventaire du joueur.
+     * Seul l'emplacement modifié est mis à jour à chaque modification de l'inventaire.
+     *
+     * @return Les piles observables de l'inventaire du joueur.
+     */
+    private ObservableList<ItemStack> getInventaire() {
+        if (inventaire == null) {
+            Inventory stacks = jeu.getJoueur().getInventaire();
+            inventaire = FXCollections.observableArrayList();
+            for (int slot = 0; slot < Inventory.SLOTS; slot++) {
+                inventaire.add(stacks.getStack(slot));
+            }
+            stacks.addListener((inventory, slot) -> inventaire.set(slot, inventory.getStack(slot)));
+        }
+        return inventaire;
+    }
+
+    @Override
+    public void initGame(GameMap map) {
+        this.map = map;
+        this.spritesParBloc = new Image[map.getRegistry().size()];
+        for (int id = 0; id < spritesParBloc.length; id++) {
+            String nom = map.getRegistry().get(id).getSpriteName();
+            spritesParBloc[id] = (nom == null) ? null : spriteStore.createSprite(nom);
+        }
+        this.camera = new Camera(Math.min(HAUTEUR / TAILLE_CELLULE, map.getHeight()),
+                Math.min(LARGEUR / TAILLE_CELLULE, map.getWidth()), map.getHeight(), map.getWidth());
+        repeindre();
+        map.addListener(new IMapListener() {
+            @Override
+            public void mapChanged(MapChanges changes) {
+                appliquer(changes);
+            }
+
+            @Override
+            public void lightChanged(MapChanges changes) {
+                appliquer(changes);
+            }
+        });
+        timer.start();
+        stage.addEventFilter(KeyEvent.KEY_PRESSED, e -> {
+            Command commande = getCommande(e);
+            if (commande != null) {
+                jeu.getCommands().submit(commande);
+            }
+        });
+    }
+
+    /**
+     * Donne la commande correspondant à un évènement clavier.
+     * Les flèches déplacent le joueur, ou le font creuser lorsque la touche Alt est
+     * enfoncée.
+     *
+     * @param e L'évènement clavier.
+     * @return La commande correspondante, ou {@code null} si la touche n'est associée à
+     *         aucune commande.
+     */
+    private static Command getCommande(KeyEvent e) {
+        boolean alt = e.isAltDown();
+        return switch (e.getCode()) {
+            case LEFT -> alt ? Command.DIG_LEFT : Command.MOVE_LEFT;
+            case RIGHT -> alt ? Command.DIG_RIGHT : Command.MOVE_RIGHT;
+            case DOWN -> alt ? Command.DIG_DOWN : Command.MOVE_DOWN;
+            case UP -> alt ? Command.DIG_UP : Command.MOVE_UP;
+            case E -> Command.PLACE_LADDER;
+            case T -> Command.PLACE_TORCH;
+            default -> null;
+        };
+    }
+
+    @Override
+    public void afficherMovable(AbstractMovable movable) {
+        if ((movable == jeu.getJoueur()) && camera.follow(movable)) {
+            // La caméra a bougé : seule la fenêtre visible est redessinée.
+            repeindre();
+        } else {
+            mettreAJourMovable(movable, true);
+        }
+    }
+
+    @Override
+    public void masquerMovable(AbstractMovable movable) {
+        mettreAJourMovable(movable, false);
+    }
+
+    @Override
+    public void afficherSante(int sante) {
+        barreDeVie.setProgress(sante);
+    }
+
+    /**
+     * Applique en une seule passe les modifications de la carte survenues depuis l'image
+     * précédente.
+     *
+     * @param changes Les cellules modifiées de la carte.
+     */
+    private void appliquer(MapChanges changes) {
+        for (int i = 0; i < changes.size(); i++) {
+            int row = changes.getRow(i);
+            int column = changes.getColumn(i);
+            if (camera.isVisible(row, column)) {
+                mettreAJourCellule(row, column);
+            }
+        }
+    }
+
+    /**
+     * Rafraîchit l'affichage à chaque image, une fois les modifications de la carte
+     * appliquées.
+     * Par défaut, cette méthode ne fait rien.
+     */
+    protected void rafraichir() {
+        // Rien à faire par défaut.
+    }
+
+    /**
+     * Redessine toute la fenêtre visible à partir de la position actuelle de la caméra.
+     */
+    protected abstract void repeindre();
+
+    /**
+     * Met à jour l'affichage d'une cellule visible de la carte dont le contenu a changé.
+     *
+     * @param row    La ligne de la cellule sur la carte.
+     * @param column La colonne de la cellule sur la carte.
+     */
+    protected abstract void mettreAJourCellule(int row, int column);
+
+    /**
+     * Met à jour l'affichage d'un objet mobile à sa position actuelle.
+     *
+     * @param movable L'objet mobile concerné.
+     * @param visible Si l'objet doit être affiché ({@code true}) ou masqué ({@code false}).
+     */
+    protected abstract void mettreAJourMovable(AbstractMovable movable, boolean visible);
+
+}
@@ -0,0 +1,134 @@
+package fr.univartois.butinfo.ihm.flatcraft.controller;
+
+import fr.univartois.butinfo.ihm.flatcraft.model.AbstractMovable;
+
+/**
+ * La classe {@link Camera} représente la fenêtre de la carte actuellement affichée.
+ * Elle suit un objet mobile (le joueur) en restant dans les limites de la carte.
+ *
+ * @version 0.1.0
+ */
+public final class Camera {
+
+    /**
+     * Le nombre de lignes visibles.
+     */
+    private final int rows;
+
+    /**
+     * Le nombre de colonnes visibles.
+     */
+    private final int columns;
+
+    /**
+     * La hauteur de la carte (en nombre de cellules).
+     */
+    private final int mapHeight;
+
+    /**
+     * La largeur de la carte (en nombre de cellules).
+     */
+    private final int mapWidth;
+
+    /**
+     * La première ligne visible.
+     */
+    private int row;
+
+    /**
+     * La première colonne visible.
+     */
+    private int column;
+
+    /**
+     * Crée une nouvelle instance de Camera, placée en haut à gauche de la carte.
+     *
+     * @param rows      Le nombre de lignes visibles.
+     * @param columns   Le nombre de colonnes visibles.
+     * @param mapHeight La hauteur de la carte (en nombre de cellules).
+     * @param mapWidth  La largeur de la carte (en nombre de cellules).
+     */
+    public Camera(int rows, int columns, int mapHeight, int mapWidth) {
+        this.rows = rows;
+        this.columns = columns;
+        this.mapHeight = mapHeight;
+        this.mapWidth = mapWidth;
+    }
+
+    /**
+     * Donne le nombre de lignes visibles.
+     *
+     * @return Le nombre de lignes visibles.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Donne le nombre de colonnes visibles.
+     *
+     * @return Le nombre de colonnes visibles.
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Donne la première ligne visible.
+     *
+     * @return La première ligne visible.
+     */
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * Donne la première colonne visible.
+     *
+     * @return La première colonne visible.
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * Centre cette caméra sur un objet mobile, sans sortir des limites de la carte.
+     *
+     * @param movable L'objet mobile à suivre.
+     * @return Si la fenêtre visible a changé.
+     */
+    public boolean follow(AbstractMovable movable) {
+        int newRow = clamp(movable.getRow() - rows / 2, mapHeight - rows);
+        int newColumn = clamp(movable.getColumn() - columns / 2, mapWidth - columns);
+        if ((newRow == row) && (newColumn == column)) {
+            return false;
+        }
+        row = newRow;
+        column = newColumn;
+        return true;
+    }
+
+    /**
+     * Vérifie si une cellule de la carte est visible.
+     *
+     * @param mapRow    La ligne de la cellule sur la carte.
+     * @param mapColumn La colonne de la cellule sur la carte.
+     * @return Si la cellule est visible.
+     */
+    public boolean isVisible(int mapRow, int mapColumn) {
+        return (row <= mapRow) && (mapRow < row + rows)
+                && (column <= mapColumn) && (mapColumn < column + columns);
+    }
+
+    /**
+     * Borne une coordonnée de la fenêtre visible.
+     *
+     * @param value La coordonnée à borner.
+     * @param max   La valeur maximale de la coordonnée.
+     * @return La coordonnée bornée entre {@code 0} et {@code max}.
+     */
+    private static int clamp(int value, int max) {
+        return Math.max(0, Math.min(value, max));
+    }
+
+}
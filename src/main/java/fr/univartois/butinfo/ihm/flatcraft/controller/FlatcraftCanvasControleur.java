@@ -0,0 +1,163 @@
+package fr.univartois.butinfo.ihm.flatcraft.controller;
+
+import fr.univartois.butinfo.ihm.flatcraft.model.AbstractMovable;
+import fr.univartois.butinfo.ihm.flatcraft.model.LightEngine;
+import fr.univartois.butinfo.ihm.flatcraft.view.SpriteAtlas;
+import javafx.geometry.Rectangle2D;
+import javafx.fxml.FXML;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.paint.Color;
+
+/**
+ * La classe {@link FlatcraftCanvasControleur} est un contrôleur de la vue principale du jeu
+ * qui dessine la fenêtre visible sur un unique {@link Canvas}, plutôt qu'avec une
+ * {@code ImageView} par cellule.
+ * Les modifications sont accumulées sous la forme de cellules à redessiner, et seules ces
+ * cellules sont redessinées à chaque image.
+ * Les sprites sont dessinés à partir de l'atlas de textures du jeu (voir
+ * {@link SpriteAtlas}), afin que toutes les cellules utilisent la même texture.
+ *
+ * @version 0.1.0
+ */
+public class FlatcraftCanvasControleur extends AbstractFlatcraftControleur {
+
+    @FXML
+    private Canvas canvas;
+
+    /**
+     * Les cellules de la fenêtre visible devant être redessinées à la prochaine image.
+     */
+    private boolean[][] cellulesSales;
+
+    /**
+     * Le nombre de cellules devant être redessinées à la prochaine image.
+     */
+    private int nombreCellulesSales;
+
+    /**
+     * Si toute la fenêtre visible doit être redessinée à la prochaine image.
+     */
+    private boolean toutRepeindre;
+
+    /**
+     * L'atlas de textures à partir duquel les sprites sont dessinés.
+     */
+    private SpriteAtlas atlas;
+
+    @FXML
+    void initialize() {
+        cellulesSales = new boolean[HAUTEUR / TAILLE_CELLULE][LARGEUR / TAILLE_CELLULE];
+        initialiserBarreDeVie();
+    }
+
+    @Override
+    protected void repeindre() {
+        toutRepeindre = true;
+    }
+
+    @Override
+    protected void mettreAJourCellule(int row, int column) {
+        marquer(row - camera.getRow(), column - camera.getColumn());
+    }
+
+    @Override
+    protected void mettreAJourMovable(AbstractMovable movable, boolean visible) {
+        // L'objet est dessiné avec le reste de la cellule : il suffit de la redessiner.
+        if (camera.isVisible(movable.getRow(), movable.getColumn())) {
+            marquer(movable.getRow() - camera.getRow(), movable.getColumn() - camera.getColumn());
+        }
+    }
+
+    /**
+     * Marque une cellule de la fenêtre visible comme devant être redessinée.
+     *
+     * @param i La ligne de la cellule dans la fenêtre visible.
+     * @param j La colonne de la cellule dans la fenêtre visible.
+     */
+    private void marquer(int i, int j) {
+        if (!cellulesSales[i][j]) {
+            cellulesSales[i][j] = true;
+            nombreCellulesSales++;
+        }
+    }
+
+    /**
+     * Redessine les parties de la fenêtre visible qui ont été modifiées depuis l'image
+     * précédente.
+     */
+    @Override
+    protected void rafraichir() {
+        if (!toutRepeindre && (nombreCellulesSales == 0)) {
+            return;
+        }
+
+        if (atlas == null) {
+            atlas = getSpriteStore().getAtlas();
+        }
+
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        for (int i = 0; i < camera.getRows(); i++) {
+            for (int j = 0; j < camera.getColumns(); j++) {
+                if (toutRepeindre || cellulesSales[i][j]) {
+                    dessinerCellule(gc, i, j);
+                    cellulesSales[i][j] = false;
+                }
+            }
+        }
+        toutRepeindre = false;
+        nombreCellulesSales = 0;
+    }
+
+    /**
+     * Dessine une cellule de la fenêtre visible, ainsi que les objets mobiles qui s'y
+     * trouvent.
+     *
+     * @param gc Le contexte graphique du canvas.
+     * @param i  La ligne de la cellule dans la fenêtre visible.
+     * @param j  La colonne de la cellule dans la fenêtre visible.
+     */
+    private void dessinerCellule(GraphicsContext gc, int i, int j) {
+        double x = (double) j * TAILLE_CELLULE;
+        double y = (double) i * TAILLE_CELLULE;
+        int row = camera.getRow() + i;
+        int column = camera.getColumn() + j;
+
+        gc.clearRect(x, y, TAILLE_CELLULE, TAILLE_CELLULE);
+        dessinerSprite(gc, getSprite(row, column), x, y);
+
+        forEachMovableAt(row, column, movable -> dessinerSprite(gc, getSprite(movable), x, y));
+
+        // La cellule est assombrie selon son niveau de lumière.
+        int lumiere = map.getLoadedLight(row, column);
+        if (lumiere < LightEngine.MAX_LEVEL) {
+            gc.setFill(Color.gray(0, 1 - (double) lumiere / LightEngine.MAX_LEVEL));
+            gc.fillRect(x, y, TAILLE_CELLULE, TAILLE_CELLULE);
+        }
+    }
+
+    /**
+     * Dessine un sprite à partir de l'atlas de textures.
+     * Si le sprite ne figure pas dans l'atlas, il est dessiné à partir de sa propre image.
+     *
+     * @param gc     Le contexte graphique du canvas.
+     * @param sprite Le sprite à dessiner (s'il est {@code null}, rien n'est dessiné).
+     * @param x      L'abscisse où dessiner le sprite.
+     * @param y      L'ordonnée où dessiner le sprite.
+     */
+    private void dessinerSprite(GraphicsContext gc, Image sprite, double x, double y) {
+        if (sprite == null) {
+            return;
+        }
+
+        Rectangle2D region = atlas.getRegion(sprite);
+        if (region == null) {
+            gc.drawImage(sprite, x, y, TAILLE_CELLULE, TAILLE_CELLULE);
+        } else {
+            gc.drawImage(atlas.getImage(), region.getMinX(), region.getMinY(), region.getWidth(),
+                    region.getHeight(), x, y, TAILLE_CELLULE, TAILLE_CELLULE);
+        }
+    }
+
+}
@@ -1,48 +1,40 @@
 package fr.univartois.butinfo.ihm.flatcraft.controller;
 
 import fr.univartois.butinfo.ihm.flatcraft.model.AbstractMovable;
-import fr.univartois.butinfo.ihm.flatcraft.model.FlatcraftGame;
-import fr.univartois.butinfo.ihm.flatcraft.model.GameMap;
-import fr.univartois.butinfo.ihm.flatcraft.model.IFlatcraftController;
-import javafx.beans.property.IntegerProperty;
-import javafx.event.ActionEvent;
+import fr.univartois.butinfo.ihm.flatcraft.model.LightEngine;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
-import javafx.scene.control.ProgressBar;
+import javafx.scene.effect.ColorAdjust;
 import javafx.scene.image.ImageView;
-import javafx.scene.input.KeyCode;
-import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.GridPane;
-import javafx.stage.Stage;
 
-import java.io.IOException;
-
-public class FlatcraftControleur implements IFlatcraftController {
-
-    private static final int LARGEUR = 1280;
-    private static final int HAUTEUR = 720;
-    private static final int TAILLE_CELLULE = 32;
+public class FlatcraftControleur extends AbstractFlatcraftControleur {
 
+    /**
+     * Les vues affichant les cellules visibles de la carte.
+     * Elles sont créées une seule fois, et réaffectées lorsque la caméra se déplace.
+     */
     private ImageView[][] cellulesBackground;
     private ImageView[][] cellulesMainPane;
 
-    private Stage stage;
-
-    private FlatcraftGame jeu;
+    /**
+     * Les effets assombrissant les cellules, indexés par leur niveau de lumière.
+     * Ils sont partagés par toutes les vues ; les cellules pleinement éclairées n'ont pas
+     * d'effet.
+     */
+    private final ColorAdjust[] ombres = new ColorAdjust[LightEngine.MAX_LEVEL + 1];
 
     @FXML
     private GridPane background;
 
-    @FXML
-    private ProgressBar barreDeVie;
-
     @FXML
     private GridPane mainPane;
 
     @FXML
     void initialize() {
+        for (int niveau = 0; niveau < LightEngine.MAX_LEVEL; niveau++) {
+            ombres[niveau] = new ColorAdjust(0, 0, (double) niveau / LightEngine.MAX_LEVEL - 1, 0);
+        }
+
         int nombreCellulesHauteur = HAUTEUR / TAILLE_CELLULE;
         int nombreCellulesLargeur = LARGEUR / TAILLE_CELLULE;
         cellulesBackground = new ImageView[nombreCellulesHauteur][nombreCellulesLargeur];
@@ -62,82 +54,47 @@ public class FlatcraftControleur implements IFlatcraftController {
             }
         }
 
-        barreDeVie.setProgress(1);
-    }
-
-    public void setStage(Stage stage) {
-        this.stage = stage;
-    }
-
-    @FXML
-    void onEtabliButtonClick(ActionEvent event) {
-        // TODO afficher l'établi
-    }
-
-    @FXML
-    void onFourneauButtonClick(ActionEvent event) {
-        // TODO afficher le fourneau
-    }
-
-    @FXML
-    void onInventaireButtonClick(ActionEvent event) throws IOException {
-        FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("../view/inventaire-view.fxml"));
-        Parent viewContent = fxmlLoader.load();
-
-        InventaireControleur controleurInventaire = fxmlLoader.getController();
-        controleurInventaire.setStage(stage);
-        controleurInventaire.setGameScene(this.stage.getScene());
-        controleurInventaire.getInventaire(jeu.getJoueur().getInventaire());
-
-
-        Scene scene = new Scene(viewContent);
-        stage.setScene(scene);
-    }
-
-    @Override
-    public void setJeu(FlatcraftGame jeu) {
-        this.jeu = jeu;
+        initialiserBarreDeVie();
     }
 
+    /**
+     * Réaffecte toutes les vues de la fenêtre visible à partir de la position actuelle de
+     * la caméra.
+     */
     @Override
-    public void initGame(GameMap map) {
-        for (int i = 0; i < map.getHeight(); i++) {
-            for (int j = 0; j < map.getWidth(); j++) {
-                cellulesBackground[i][j].imageProperty().bind(map.getAt(i, j).getSpriteProperty());
+    protected void repeindre() {
+        for (int i = 0; i < camera.getRows(); i++) {
+            for (int j = 0; j < camera.getColumns(); j++) {
+                cellulesBackground[i][j].setImage(getSprite(camera.getRow() + i, camera.getColumn() + j));
+                cellulesBackground[i][j].setEffect(
+                        ombres[map.getLoadedLight(camera.getRow() + i, camera.getColumn() + j)]);
+                cellulesMainPane[i][j].setImage(null);
             }
         }
-        stage.addEventFilter(KeyEvent.KEY_PRESSED, e -> {
-            KeyCode code = e.getCode();
-            if (code == KeyCode.LEFT) {
-                if (e.isAltDown()) jeu.digLeft();
-                else jeu.moveLeft();
-            } else if (code == KeyCode.RIGHT) {
-                if (e.isAltDown()) jeu.digRight();
-                else jeu.moveRight();
-            } else if (code == KeyCode.DOWN) {
-                if (e.isAltDown()) jeu.digDown();
-                else jeu.moveDown();
-            } else if (code == KeyCode.UP) {
-                if (e.isAltDown()) jeu.digUp();
-                else jeu.moveUp();
-            } else if (code == KeyCode.E) {
-                jeu.placerEchelle();
-            }
-        });
+        forEachVisibleMovable(movable -> mettreAJourMovable(movable, true));
     }
 
     @Override
-    public void afficherMovable(AbstractMovable movable) {
-        cellulesMainPane[movable.getRow()][movable.getColumn()].setImage(movable.getSprite());
+    protected void mettreAJourCellule(int row, int column) {
+        ImageView vue = cellulesBackground[row - camera.getRow()][column - camera.getColumn()];
+        vue.setImage(getSprite(row, column));
+        vue.setEffect(ombres[map.getLoadedLight(row, column)]);
     }
 
     @Override
-    public void masquerMovable(AbstractMovable movable) {
-        cellulesMainPane[movable.getRow()][movable.getColumn()].setImage(null);
+    protected void mettreAJourMovable(AbstractMovable movable, boolean visible) {
+        if (camera.isVisible(movable.getRow(), movable.getColumn())) {
+            ImageView vue = cellulesMainPane[movable.getRow() - camera.getRow()][movable.getColumn() - camera.getColumn()];
+            vue.setImage(visible ? getSprite(movable) : null);
+            if (!visible) {
+                // Un autre objet mobile peut se trouver dans la même cellule.
+                forEachMovableAt(movable.getRow(), movable.getColumn(), autre -> {
+                    if (autre != movable) {
+                        vue.setImage(getSprite(autre));
+                    }
+                });
+            }
+        }
     }
 
-    @Override
-    public void setHealthProperty(IntegerProperty healthProperty) {
-        barreDeVie.progressProperty().bind(healthProperty);
-    }
 }
@@ -1,6 +1,7 @@
 package fr.univartois.butinfo.ihm.flatcraft.controller;
 
-import fr.univartois.butinfo.ihm.flatcraft.model.Resource;
+import fr.univartois.butinfo.ihm.flatcraft.model.ItemStack;
+import fr.univartois.butinfo.ihm.flatcraft.view.SpriteStore;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -15,6 +16,11 @@ public class InventaireControleur {
 
     private Stage stage;
 
+    /**
+     * Le {@link SpriteStore} utilisé pour charger les images des ressources.
+     */
+    private SpriteStore spriteStore;
+
     /**
      * La scène de la map.
      */
@@ -27,7 +33,7 @@ public class InventaireControleur {
     private Label descriptionItem;
 
     @FXML
-    private ListView<Resource> listItems;
+    private ListView<ItemStack> listItems;
 
     @FXML
     private Label nomItem;
@@ -40,6 +46,15 @@ public class InventaireControleur {
         this.stage = stage;
     }
 
+    /**
+     * Modifie le {@link SpriteStore} utilisé pour charger les images des ressources.
+     *
+     * @param spriteStore Le {@link SpriteStore} à utiliser.
+     */
+    public void setSpriteStore(SpriteStore spriteStore) {
+        this.spriteStore = spriteStore;
+    }
+
     @FXML
     void onRetourButtonClick(ActionEvent event) {
         stage.setScene(gameScene);
@@ -48,9 +63,9 @@ public class InventaireControleur {
     /**
      * Fait le lien entre l'inventaire du joueur ainsi que la liste présente dans la vue.
      *
-     * @param inventaire l'inventaire du joueur concerné.
+     * @param inventaire les piles des emplacements de l'inventaire du joueur concerné.
      */
-    public void getInventaire(ObservableList<Resource> inventaire) {
+    public void getInventaire(ObservableList<ItemStack> inventaire) {
         listItems.setItems(inventaire);
     }
 
@@ -58,9 +73,9 @@ public class InventaireControleur {
     void initialize() {
         listItems.getSelectionModel().selectedItemProperty().addListener((observable, oldValue, itemChoisi) -> {
             if (itemChoisi != null) {
-                nomItem.setText(itemChoisi.getName());
-                descriptionItem.setText(itemChoisi.getName());
-                imageItem.setImage(itemChoisi.getSprite());
+                nomItem.setText(itemChoisi.getResource().getName());
+                descriptionItem.setText(itemChoisi.getResource().getName() + " (" + itemChoisi.getCount() + ")");
+                imageItem.setImage(spriteStore.createSprite(itemChoisi.getResource().getSpriteName()));
             }
         });
     }
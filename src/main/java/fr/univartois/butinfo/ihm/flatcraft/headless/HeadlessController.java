@@ -0,0 +1,70 @@
+package fr.univartois.butinfo.ihm.flatcraft.headless;
+
+import fr.univartois.butinfo.ihm.flatcraft.model.AbstractMovable;
+import fr.univartois.butinfo.ihm.flatcraft.model.FlatcraftGame;
+import fr.univartois.butinfo.ihm.flatcraft.model.GameMap;
+import fr.univartois.butinfo.ihm.flatcraft.model.IFlatcraftController;
+
+/**
+ * La classe {@link HeadlessController} est un contrôleur n'affichant rien, qui permet
+ * d'exécuter une partie de Flatcraft sans interface graphique.
+ * Il se contente de compter les mises à jour qu'un véritable contrôleur aurait affichées.
+ *
+ * @version 0.1.0
+ */
+public final class HeadlessController implements IFlatcraftController {
+
+    /**
+     * Le nombre d'affichages d'objets mobiles demandés.
+     */
+    private long movableUpdates;
+
+    /**
+     * Le nombre de cellules de la carte modifiées.
+     */
+    private long cellUpdates;
+
+    @Override
+    public void setJeu(FlatcraftGame jeu) {
+        // Aucune vue n'a besoin de la partie.
+    }
+
+    @Override
+    public void initGame(GameMap map) {
+        map.addListener(changes -> cellUpdates += changes.size());
+    }
+
+    @Override
+    public void afficherMovable(AbstractMovable movable) {
+        movableUpdates++;
+    }
+
+    @Override
+    public void masquerMovable(AbstractMovable movable) {
+        movableUpdates++;
+    }
+
+    @Override
+    public void afficherSante(int sante) {
+        // Il n'y a pas de barre de vie à mettre à jour.
+    }
+
+    /**
+     * Donne le nombre d'affichages d'objets mobiles demandés.
+     *
+     * @return Le nombre d'affichages d'objets mobiles.
+     */
+    public long getMovableUpdates() {
+        return movableUpdates;
+    }
+
+    /**
+     * Donne le nombre de cellules de la carte modifiées.
+     *
+     * @return Le nombre de cellules modifiées.
+     */
+    public long getCellUpdates() {
+        return cellUpdates;
+    }
+
+}
@@ -0,0 +1,80 @@
+package fr.univartois.butinfo.ihm.flatcraft.headless;
+
+import fr.univartois.butinfo.ihm.flatcraft.model.ChunkCache;
+import fr.univartois.butinfo.ihm.flatcraft.model.Command;
+import fr.univartois.butinfo.ihm.flatcraft.model.FlatcraftGame;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * La classe {@link HeadlessFlatcraft} exécute une partie de Flatcraft sans interface
+ * graphique, aussi vite que possible, puis affiche ses statistiques.
+ * La partie comporte la génération de la carte, des mobs et un joueur qui se déplace et
+ * creuse au hasard.
+ * <p>
+ * Les arguments (facultatifs) sont, dans l'ordre : le nombre de pas à exécuter, le nombre
+ * de mobs, la graine de la carte et le nombre maximal de tronçons conservés décodés en
+ * mémoire (voir {@link ChunkCache}).
+ *
+ * @version 0.1.0
+ */
+public final class HeadlessFlatcraft {
+
+    /**
+     * Désactive l'instanciation en dehors de la classe.
+     */
+    private HeadlessFlatcraft() {
+        throw new AssertionError("No fr.univartois.butinfo.ihm.flatcraft.headless.HeadlessFlatcraft instances for you!");
+    }
+
+    /**
+     * Exécute une partie de Flatcraft sans interface graphique.
+     *
+     * @param args Le nombre de pas, le nombre de mobs, la graine et le nombre de tronçons
+     *        chauds (tous facultatifs).
+     */
+    public static void main(String[] args) {
+        int ticks = (args.length > 0) ? Integer.parseInt(args[0]) : 100_000;
+        int mobs = (args.length > 1) ? Integer.parseInt(args[1]) : 500;
+        long seed = (args.length > 2) ? Long.parseLong(args[2]) : 0;
+        int hotChunks = (args.length > 3) ? Integer.parseInt(args[3]) : ChunkCache.DEFAULT_HOT_CHUNKS;
+
+        FlatcraftGame jeu = new FlatcraftGame(1280 / 32, 720 / 32, 32 * 1024);
+        HeadlessController controleur = new HeadlessController();
+        jeu.setControleur(controleur);
+        controleur.setJeu(jeu);
+        jeu.setSeed(seed);
+        jeu.prepare();
+        jeu.getMap().getChunkCache().setHotChunks(hotChunks);
+
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < mobs; i++) {
+            jeu.spawnMob("player_back", random.nextInt(jeu.getMapWidth()));
+        }
+
+        // Le joueur agit au hasard, comme s'il appuyait sur les touches du clavier, et les
+        // modifications de la carte sont publiées à chaque pas.
+        Command[] commandes = { Command.MOVE_LEFT, Command.MOVE_RIGHT, Command.MOVE_UP,
+                Command.DIG_DOWN, Command.DIG_LEFT, Command.DIG_RIGHT };
+        jeu.getGameLoop().add(tick -> {
+            jeu.getCommands().submit(commandes[random.nextInt(commandes.length)]);
+            jeu.getMap().flushChanges();
+        });
+
+        long start = System.nanoTime();
+        jeu.getGameLoop().runTicks(ticks);
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println(jeu.getGenerationPipeline());
+        System.out.println(jeu.getGameLoop());
+        System.out.println(jeu.getMap().getNavigation());
+        System.out.println(jeu.getMap().getChunkCache());
+        System.out.println(jeu.getCommands());
+        System.out.printf("%.0f pas/s, %d cellules modifiées, %d affichages d'objets mobiles%n",
+                ticks * (double) TimeUnit.SECONDS.toNanos(1) / elapsed,
+                controleur.getCellUpdates(), controleur.getMovableUpdates());
+        jeu.getMap().getChunkCache().close();
+    }
+
+}
@@ -0,0 +1,110 @@
+package fr.univartois.butinfo.ihm.flatcraft.headless;
+
+import fr.univartois.butinfo.ihm.flatcraft.model.BlockRegistry;
+import fr.univartois.butinfo.ihm.flatcraft.model.FlatcraftGame;
+import fr.univartois.butinfo.ihm.flatcraft.model.GameMap;
+import fr.univartois.butinfo.ihm.flatcraft.model.LightEngine;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * La classe {@link LightBenchmark} mesure le coût de la mise à jour incrémentale de la
+ * lumière dans les pires cas rencontrés en jeu : l'ajout et le retrait de torches dans les
+ * cavités, et l'ajout et le retrait de blocs opaques en haut de la carte, qui coupent ou
+ * rétablissent toute une colonne de lumière du ciel.
+ * <p>
+ * Les arguments (facultatifs) sont, dans l'ordre : le nombre de modifications par scénario
+ * et la graine de la carte.
+ *
+ * @version 0.1.0
+ */
+public final class LightBenchmark {
+
+    /**
+     * Le nombre de colonnes de la carte utilisée pour les mesures.
+     */
+    private static final int MAP_WIDTH = 32 * 64;
+
+    /**
+     * Désactive l'instanciation en dehors de la classe.
+     */
+    private LightBenchmark() {
+        throw new AssertionError("No fr.univartois.butinfo.ihm.flatcraft.headless.LightBenchmark instances for you!");
+    }
+
+    /**
+     * Exécute les mesures.
+     *
+     * @param args Le nombre de modifications par scénario et la graine (tous facultatifs).
+     */
+    public static void main(String[] args) {
+        int edits = (args.length > 0) ? Integer.parseInt(args[0]) : 10_000;
+        long seed = (args.length > 1) ? Long.parseLong(args[1]) : 0;
+
+        FlatcraftGame jeu = new FlatcraftGame(1280 / 32, 720 / 32, MAP_WIDTH);
+        HeadlessController controleur = new HeadlessController();
+        jeu.setControleur(controleur);
+        controleur.setJeu(jeu);
+        jeu.setSeed(seed);
+        jeu.prepare();
+
+        GameMap map = jeu.getMap();
+        for (int column = 0; column < map.getWidth(); column++) {
+            map.getBlock(0, column);
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        mesurer("torches", map, edits, () -> {
+            int row = map.getSoilHeight() + random.nextInt(map.getHeight() - map.getSoilHeight());
+            int column = random.nextInt(map.getWidth());
+            return new int[] { row, column, BlockRegistry.TORCH };
+        });
+        mesurer("toits", map, edits, () -> {
+            int column = random.nextInt(map.getWidth());
+            return new int[] { 0, column, BlockRegistry.DIRT };
+        });
+    }
+
+    /**
+     * Mesure le coût de la pose puis du retrait d'un bloc en des positions choisies au
+     * hasard, et affiche le résultat.
+     *
+     * @param scenario Le nom du scénario mesuré.
+     * @param map La carte à modifier.
+     * @param edits Le nombre de poses à effectuer.
+     * @param positions Le générateur des modifications, sous la forme
+     *        {@code {ligne, colonne, bloc}}.
+     */
+    private static void mesurer(String scenario, GameMap map, int edits,
+            Supplier<int[]> positions) {
+        LightEngine engine = map.getLightEngine();
+        long relights = engine.getRelights();
+        double total = engine.getAverageCost() * relights;
+        long elapsed = 0;
+        int max = 0;
+
+        for (int i = 0; i < edits; i++) {
+            int[] edit = positions.get();
+            int previous = map.getBlock(edit[0], edit[1]);
+            if (previous == edit[2]) {
+                continue;
+            }
+
+            long start = System.nanoTime();
+            map.setBlock(edit[0], edit[1], edit[2]);
+            int cost = engine.getLastCost();
+            map.setBlock(edit[0], edit[1], previous);
+            elapsed += System.nanoTime() - start;
+            max = Math.max(max, Math.max(cost, engine.getLastCost()));
+        }
+
+        long count = Math.max(1, engine.getRelights() - relights);
+        double cells = (engine.getAverageCost() * engine.getRelights() - total) / count;
+        System.out.printf("%s : %d mises à jour, %.1f cellules et %.2f µs en moyenne, %d cellules au plus%n",
+                scenario, count, cells,
+                elapsed / (double) TimeUnit.MICROSECONDS.toNanos(1) / count, max);
+    }
+
+}
@@ -14,9 +14,8 @@ package fr.univartois.butinfo.ihm.flatcraft.model; /**
  * Tous droits réservés.
  */
 
-import javafx.beans.property.IntegerProperty;
-import javafx.beans.property.SimpleIntegerProperty;
-import javafx.scene.image.Image;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * La classe fr.univartois.butinfo.ihm.flatcraft.model.AbstractMovable est la classe parente des différents objets mobiles pouvant
@@ -34,11 +33,20 @@ public abstract class AbstractMovable {
     /**
      * Les points de vie restants pour cet objet mobile.
      */
-    private final IntegerProperty health;
+    private int health;
     /**
-     * L'image représentant cet objet mobile.
+     * Les observateurs des points de vie de cet objet mobile.
      */
-    private final Image sprite;
+    private final List<IHealthListener> healthListeners = new ArrayList<>();
+    /**
+     * Le nom du sprite représentant cet objet mobile.
+     */
+    private final String spriteName;
+    /**
+     * Le registre dans lequel cet objet mobile est enregistré, ou {@code null} s'il ne
+     * l'est pas.
+     */
+    private EntityRegistry registry;
     /**
      * La ligne où se trouve cet objet mobile.
      */
@@ -52,13 +60,13 @@ public abstract class AbstractMovable {
      * Crée une nouvelle instance d'fr.univartois.butinfo.ihm.flatcraft.model.AbstractMovable.
      *
      * @param game          Le jeu Flatcraft dans lequel l'objet se déplace.
-     * @param sprite        L'image représentant l'objet.
+     * @param spriteName    Le nom du sprite représentant l'objet.
      * @param initialHealth Les points de vie initiaux de l'objet.
      */
-    protected AbstractMovable(FlatcraftGame game, Image sprite, int initialHealth) {
+    protected AbstractMovable(FlatcraftGame game, String spriteName, int initialHealth) {
         this.game = game;
-        this.sprite = sprite;
-        this.health = new SimpleIntegerProperty(initialHealth);
+        this.spriteName = spriteName;
+        this.health = initialHealth;
     }
 
     /**
@@ -76,7 +84,11 @@ public abstract class AbstractMovable {
      * @param row La nouvelle ligne où se trouve cet objet mobile.
      */
     public void setRow(int row) {
+        int oldRow = this.row;
         this.row = row;
+        if (registry != null) {
+            registry.moved(this, oldRow, column);
+        }
     }
 
     /**
@@ -94,16 +106,38 @@ public abstract class AbstractMovable {
      * @param column La nouvelle colonne où se trouve cet objet mobile.
      */
     public void setColumn(int column) {
+        int oldColumn = this.column;
         this.column = column;
+        if (registry != null) {
+            registry.moved(this, row, oldColumn);
+        }
+    }
+
+    /**
+     * Donne le registre dans lequel cet objet mobile est enregistré.
+     *
+     * @return Le registre de cet objet mobile, ou {@code null} s'il n'est pas enregistré.
+     */
+    EntityRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Modifie le registre dans lequel cet objet mobile est enregistré.
+     *
+     * @param registry Le nouveau registre de cet objet mobile.
+     */
+    void setRegistry(EntityRegistry registry) {
+        this.registry = registry;
     }
 
     /**
-     * Donne l'image représentant cet objet mobile.
+     * Donne le nom du sprite représentant cet objet mobile.
      *
-     * @return L'image représentant cet objet mobile.
+     * @return Le nom du sprite représentant cet objet mobile.
      */
-    public Image getSprite() {
-        return sprite;
+    public String getSpriteName() {
+        return spriteName;
     }
 
     /**
@@ -112,25 +146,51 @@ public abstract class AbstractMovable {
      * @return Les points de vie restants pour cet objet mobile.
      */
     public int getHealth() {
-        return health.get();
+        return health;
     }
 
-    public IntegerProperty getHealthProperty() {
-        return health;
+    /**
+     * Ajoute un observateur des points de vie de cet objet mobile.
+     *
+     * @param listener L'observateur à ajouter.
+     */
+    public void addHealthListener(IHealthListener listener) {
+        healthListeners.add(listener);
+    }
+
+    /**
+     * Retire un observateur des points de vie de cet objet mobile.
+     *
+     * @param listener L'observateur à retirer.
+     */
+    public void removeHealthListener(IHealthListener listener) {
+        healthListeners.remove(listener);
+    }
+
+    /**
+     * Modifie les points de vie de cet objet mobile, et en informe ses observateurs.
+     *
+     * @param health Les nouveaux points de vie de cet objet mobile.
+     */
+    public void setHealth(int health) {
+        this.health = health;
+        for (IHealthListener listener : healthListeners) {
+            listener.healthChanged(this, health);
+        }
     }
 
     /**
      * Augmente les points de vie de cet objet mobile.
      */
     public void incrementHealth() {
-        health.set(getHealth() + 1);
+        setHealth(getHealth() + 1);
     }
 
     /**
      * Diminue les points de vie de cet objet mobile.
      */
     public void decrementHealth() {
-        health.set(getHealth() - 1);
+        setHealth(getHealth() - 1);
         if (getHealth() == 0) {
             game.removeMovable(this);
         }
@@ -0,0 +1,268 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * La classe {@link BlockRegistry} recense les différents types de blocs du jeu Flatcraft.
+ * Chaque type y est enregistré une seule fois, sous un identifiant entier stable donné par
+ * les constantes de cette classe.
+ * Les indicateurs de chaque type sont aussi conservés dans un tableau indexé par
+ * identifiant, afin que les tests de déplacement et de collision se réduisent à un test
+ * de bits.
+ *
+ * @version 0.1.0
+ */
+public final class BlockRegistry {
+
+    /**
+     * L'identifiant des cellules vides.
+     */
+    public static final int AIR = 0;
+
+    /**
+     * L'identifiant du ciel bleu.
+     */
+    public static final int ICE = 1;
+
+    /**
+     * L'identifiant des nuages.
+     */
+    public static final int CLOUD = 2;
+
+    /**
+     * L'identifiant de la pelouse.
+     */
+    public static final int GRASS = 3;
+
+    /**
+     * L'identifiant de la pelouse de jungle.
+     */
+    public static final int JUNGLE_GRASS = 4;
+
+    /**
+     * L'identifiant de l'eau.
+     */
+    public static final int WATER = 5;
+
+    /**
+     * L'identifiant de la terre.
+     */
+    public static final int DIRT = 6;
+
+    /**
+     * L'identifiant des blocs d'or.
+     */
+    public static final int GOLD_BLOCK = 7;
+
+    /**
+     * L'identifiant des blocs de diamant.
+     */
+    public static final int DIAMOND_BLOCK = 8;
+
+    /**
+     * L'identifiant des blocs de bronze.
+     */
+    public static final int BRONZE_BLOCK = 9;
+
+    /**
+     * L'identifiant des blocs de charbon.
+     */
+    public static final int COAL_BLOCK = 10;
+
+    /**
+     * L'identifiant des blocs de cuivre.
+     */
+    public static final int COPPER_BLOCK = 11;
+
+    /**
+     * L'identifiant des troncs d'arbre.
+     */
+    public static final int TREE = 12;
+
+    /**
+     * L'identifiant des feuilles d'arbre.
+     */
+    public static final int LEAVES = 13;
+
+    /**
+     * L'identifiant des échelles.
+     */
+    public static final int LADDER = 14;
+
+    /**
+     * L'identifiant du sable.
+     */
+    public static final int SAND = 15;
+
+    /**
+     * L'identifiant du gravier.
+     */
+    public static final int GRAVEL = 16;
+
+    /**
+     * L'identifiant des torches.
+     */
+    public static final int TORCH = 17;
+
+    /**
+     * L'atténuation de la lumière traversant un bloc solide : la lumière pénètre de
+     * quelques cellules dans le sol, mais n'éclaire pas le sous-sol profond.
+     */
+    private static final int SOLID_OPACITY = 3;
+
+    /**
+     * Les types de blocs enregistrés, indexés par leur identifiant.
+     */
+    private final BlockType[] types = new BlockType[TORCH + 1];
+
+    /**
+     * Les indicateurs des types de blocs enregistrés, indexés par leur identifiant.
+     */
+    private final int[] flags = new int[types.length];
+
+    /**
+     * Les niveaux de lumière émis par les types de blocs, indexés par leur identifiant.
+     */
+    private final int[] lightEmissions = new int[types.length];
+
+    /**
+     * Les atténuations de la lumière par les types de blocs, indexées par leur identifiant.
+     */
+    private final int[] lightOpacities = new int[types.length];
+
+    /**
+     * Les types de blocs enregistrés, indexés par leur nom.
+     */
+    private final Map<String, BlockType> typesByName = new HashMap<>();
+
+    /**
+     * Crée une nouvelle instance de BlockRegistry, dans laquelle tous les types de blocs du
+     * jeu sont enregistrés.
+     */
+    public BlockRegistry() {
+        types[AIR] = new BlockType(AIR, "air", null, BlockType.REPLACEABLE, 0, 0);
+        register(ICE, "ice", BlockType.REPLACEABLE);
+        register(CLOUD, "cloud", BlockType.REPLACEABLE);
+        register(GRASS, "grass", BlockType.SOLID | BlockType.DIGGABLE);
+        register(JUNGLE_GRASS, "junglegrass", BlockType.SOLID | BlockType.DIGGABLE);
+        register(WATER, "water", BlockType.SOLID | BlockType.DIGGABLE | BlockType.LIQUID);
+        register(DIRT, "dirt", BlockType.SOLID | BlockType.DIGGABLE);
+        register(GOLD_BLOCK, "gold_block", BlockType.SOLID | BlockType.DIGGABLE);
+        register(DIAMOND_BLOCK, "diamond_block", BlockType.SOLID | BlockType.DIGGABLE);
+        register(BRONZE_BLOCK, "bronze_block", BlockType.SOLID | BlockType.DIGGABLE);
+        register(COAL_BLOCK, "coal_block", BlockType.SOLID | BlockType.DIGGABLE);
+        register(COPPER_BLOCK, "copper_block", BlockType.SOLID | BlockType.DIGGABLE);
+        register(TREE, "tree", 0);
+        register(LEAVES, "leaves", 0, 0, 1);
+        register(LADDER, "ladder", BlockType.CLIMBABLE | BlockType.DIGGABLE);
+        register(SAND, "sand", BlockType.SOLID | BlockType.DIGGABLE | BlockType.FALLING);
+        register(GRAVEL, "gravel", BlockType.SOLID | BlockType.DIGGABLE | BlockType.FALLING);
+        register(TORCH, "torch_on_floor", BlockType.DIGGABLE, 14, 0);
+
+        for (BlockType type : types) {
+            flags[type.getId()] = type.getFlags();
+            lightEmissions[type.getId()] = type.getLightEmission();
+            lightOpacities[type.getId()] = type.getLightOpacity();
+            typesByName.put(type.getName(), type);
+        }
+    }
+
+    /**
+     * Enregistre un type de bloc dans ce registre.
+     *
+     * @param id L'identifiant du type de bloc.
+     * @param name Le nom du type de bloc, qui est aussi celui de son sprite.
+     * @param typeFlags Les indicateurs décrivant les propriétés du type de bloc.
+     */
+    private void register(int id, String name, int typeFlags) {
+        int opacity = 0;
+        if ((typeFlags & BlockType.LIQUID) != 0) {
+            opacity = 1;
+        } else if ((typeFlags & BlockType.SOLID) != 0) {
+            opacity = SOLID_OPACITY;
+        }
+        register(id, name, typeFlags, 0, opacity);
+    }
+
+    /**
+     * Enregistre un type de bloc dans ce registre, en précisant son comportement vis-à-vis
+     * de la lumière.
+     *
+     * @param id L'identifiant du type de bloc.
+     * @param name Le nom du type de bloc, qui est aussi celui de son sprite.
+     * @param typeFlags Les indicateurs décrivant les propriétés du type de bloc.
+     * @param lightEmission Le niveau de lumière émis par le type de bloc.
+     * @param lightOpacity L'atténuation de la lumière traversant le type de bloc.
+     */
+    private void register(int id, String name, int typeFlags, int lightEmission, int lightOpacity) {
+        types[id] = new BlockType(id, name, name, typeFlags, lightEmission, lightOpacity);
+    }
+
+    /**
+     * Donne le type de bloc ayant l'identifiant donné.
+     *
+     * @param id L'identifiant du type de bloc.
+     * @return Le type de bloc ayant cet identifiant.
+     */
+    public BlockType get(int id) {
+        return types[id];
+    }
+
+    /**
+     * Donne le type de bloc ayant le nom donné.
+     *
+     * @param name Le nom du type de bloc.
+     * @return Le type de bloc ayant ce nom.
+     * @throws NoSuchElementException Si aucun type de bloc n'a ce nom.
+     */
+    public BlockType get(String name) {
+        BlockType type = typesByName.get(name);
+        if (type == null) {
+            throw new NoSuchElementException("Unknown block type " + name);
+        }
+        return type;
+    }
+
+    /**
+     * Vérifie si le type de bloc ayant l'identifiant donné possède un indicateur.
+     *
+     * @param id L'identifiant du type de bloc.
+     * @param flag L'indicateur à vérifier.
+     * @return Si le type de bloc possède l'indicateur.
+     */
+    public boolean hasFlag(int id, int flag) {
+        return (flags[id] & flag) != 0;
+    }
+
+    /**
+     * Donne le niveau de lumière émis par le type de bloc ayant l'identifiant donné.
+     *
+     * @param id L'identifiant du type de bloc.
+     * @return Le niveau de lumière émis par ce type de bloc.
+     */
+    public int getLightEmission(int id) {
+        return lightEmissions[id];
+    }
+
+    /**
+     * Donne l'atténuation de la lumière par le type de bloc ayant l'identifiant donné.
+     *
+     * @param id L'identifiant du type de bloc.
+     * @return L'atténuation de la lumière par ce type de bloc.
+     */
+    public int getLightOpacity(int id) {
+        return lightOpacities[id];
+    }
+
+    /**
+     * Donne le nombre de types de blocs enregistrés.
+     *
+     * @return Le nombre de types de blocs.
+     */
+    public int size() {
+        return types.length;
+    }
+
+}
@@ -0,0 +1,247 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+/**
+ * La classe {@link BlockType} représente un type de bloc pouvant occuper une cellule de la
+ * carte du jeu Flatcraft.
+ * Il n'existe qu'une seule instance de chaque type, enregistrée dans un
+ * {@link BlockRegistry} sous un identifiant entier stable.
+ * Les propriétés du type (solidité, possibilité d'y grimper, etc.) sont précalculées sous
+ * la forme d'indicateurs binaires.
+ *
+ * @version 0.1.0
+ */
+public final class BlockType {
+
+    /**
+     * L'indicateur des blocs solides, sur lesquels les objets mobiles peuvent marcher et
+     * qu'ils ne peuvent pas traverser.
+     */
+    public static final int SOLID = 1;
+
+    /**
+     * L'indicateur des blocs le long desquels les objets mobiles peuvent grimper.
+     */
+    public static final int CLIMBABLE = 1 << 1;
+
+    /**
+     * L'indicateur des blocs que le joueur peut extraire pour les ajouter à son inventaire.
+     */
+    public static final int DIGGABLE = 1 << 2;
+
+    /**
+     * L'indicateur des blocs liquides.
+     */
+    public static final int LIQUID = 1 << 3;
+
+    /**
+     * L'indicateur des blocs soumis à la gravité, qui tombent lorsque rien ne les soutient.
+     */
+    public static final int FALLING = 1 << 4;
+
+    /**
+     * L'indicateur des blocs pouvant être remplacés par un bloc qui tombe ou qui s'écoule
+     * (l'air ou le ciel, par exemple).
+     */
+    public static final int REPLACEABLE = 1 << 5;
+
+    /**
+     * L'identifiant de ce type de bloc.
+     */
+    private final int id;
+
+    /**
+     * Le nom unique de ce type de bloc.
+     */
+    private final String name;
+
+    /**
+     * Le nom du sprite représentant ce type de bloc.
+     */
+    private final String spriteName;
+
+    /**
+     * Les indicateurs décrivant les propriétés de ce type de bloc.
+     */
+    private final int flags;
+
+    /**
+     * Le niveau de lumière émis par ce type de bloc, entre {@code 0} et {@code 15}.
+     */
+    private final int lightEmission;
+
+    /**
+     * L'atténuation subie par la lumière traversant ce type de bloc, en plus de la perte
+     * d'un niveau par cellule parcourue.
+     */
+    private final int lightOpacity;
+
+    /**
+     * La ressource obtenue en extrayant un bloc de ce type, partagée par tous les blocs de
+     * ce type.
+     * Si ce type de bloc ne peut pas être extrait, la valeur de cet attribut est
+     * {@code null}.
+     */
+    private final Resource resource;
+
+    /**
+     * Crée une nouvelle instance de BlockType.
+     *
+     * @param id     L'identifiant du type de bloc.
+     * @param name   Le nom unique du type de bloc.
+     * @param spriteName Le nom du sprite représentant le type de bloc, ou {@code null} s'il
+     *        est invisible.
+     * @param flags  Les indicateurs décrivant les propriétés du type de bloc.
+     * @param lightEmission Le niveau de lumière émis par le type de bloc.
+     * @param lightOpacity L'atténuation subie par la lumière traversant le type de bloc.
+     */
+    BlockType(int id, String name, String spriteName, int flags, int lightEmission, int lightOpacity) {
+        this.id = id;
+        this.name = name;
+        this.spriteName = spriteName;
+        this.flags = flags;
+        this.lightEmission = lightEmission;
+        this.lightOpacity = lightOpacity;
+        this.resource = ((flags & DIGGABLE) == 0) ? null : new Resource(id, name, spriteName);
+    }
+
+    /**
+     * Donne l'identifiant de ce type de bloc.
+     *
+     * @return L'identifiant de ce type de bloc.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Donne le nom unique de ce type de bloc.
+     *
+     * @return Le nom de ce type de bloc.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Donne le nom du sprite représentant ce type de bloc.
+     * C'est à l'interface graphique de charger l'image correspondante.
+     *
+     * @return Le nom du sprite de ce type de bloc, ou {@code null} s'il est invisible.
+     */
+    public String getSpriteName() {
+        return spriteName;
+    }
+
+    /**
+     * Donne les indicateurs décrivant les propriétés de ce type de bloc.
+     *
+     * @return Les indicateurs de ce type de bloc.
+     */
+    public int getFlags() {
+        return flags;
+    }
+
+    /**
+     * Donne le niveau de lumière émis par ce type de bloc.
+     *
+     * @return Le niveau de lumière émis, entre {@code 0} et {@code 15}.
+     */
+    public int getLightEmission() {
+        return lightEmission;
+    }
+
+    /**
+     * Donne l'atténuation subie par la lumière traversant ce type de bloc, en plus de la
+     * perte d'un niveau par cellule parcourue.
+     *
+     * @return L'atténuation de la lumière.
+     */
+    public int getLightOpacity() {
+        return lightOpacity;
+    }
+
+    /**
+     * Vérifie si ce type de bloc possède l'indicateur donné.
+     *
+     * @param flag L'indicateur à vérifier.
+     * @return Si ce type de bloc possède l'indicateur.
+     */
+    public boolean hasFlag(int flag) {
+        return (flags & flag) != 0;
+    }
+
+    /**
+     * Vérifie si ce type de bloc est solide.
+     *
+     * @return Si ce type de bloc est solide.
+     */
+    public boolean isSolid() {
+        return hasFlag(SOLID);
+    }
+
+    /**
+     * Vérifie s'il est possible de grimper le long de ce type de bloc.
+     *
+     * @return S'il est possible de grimper le long de ce type de bloc.
+     */
+    public boolean isClimbable() {
+        return hasFlag(CLIMBABLE);
+    }
+
+    /**
+     * Vérifie si ce type de bloc peut être extrait par le joueur.
+     *
+     * @return Si ce type de bloc peut être extrait.
+     */
+    public boolean isDiggable() {
+        return hasFlag(DIGGABLE);
+    }
+
+    /**
+     * Vérifie si ce type de bloc est liquide.
+     *
+     * @return Si ce type de bloc est liquide.
+     */
+    public boolean isLiquid() {
+        return hasFlag(LIQUID);
+    }
+
+    /**
+     * Vérifie si ce type de bloc est soumis à la gravité.
+     *
+     * @return Si ce type de bloc tombe lorsque rien ne le soutient.
+     */
+    public boolean isFalling() {
+        return hasFlag(FALLING);
+    }
+
+    /**
+     * Vérifie si ce type de bloc peut être remplacé par un bloc qui tombe ou qui s'écoule.
+     *
+     * @return Si ce type de bloc peut être remplacé.
+     */
+    public boolean isReplaceable() {
+        return hasFlag(REPLACEABLE);
+    }
+
+    /**
+     * Donne la ressource obtenue en extrayant un bloc de ce type.
+     *
+     * @return La ressource de ce type de bloc, ou {@code null} s'il ne peut pas être
+     *         extrait.
+     */
+    public Resource getResource() {
+        return resource;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+
+}
@@ -0,0 +1,533 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * La classe {@link BlockUpdater} fait évoluer les blocs de la carte qui ne sont pas
+ * stables : l'eau s'écoule, et les blocs soumis à la gravité (comme le sable ou le
+ * gravier) tombent lorsque rien ne les soutient.
+ * <p>
+ * Seules les cellules « actives » sont examinées : celles qui viennent d'être modifiées
+ * et leurs voisines.
+ * Elles sont conservées dans une file, et traitées au pas suivant de la boucle de jeu.
+ * Le coût d'un pas est ainsi proportionnel à ce qui change sur la carte, et non à sa
+ * taille.
+ * <p>
+ * La carte est découpée en régions de {@link #REGION_WIDTH} colonnes, chacune ayant sa
+ * propre file de cellules actives, et les régions sont traitées en damier : d'abord les
+ * régions d'indice pair, puis celles d'indice impair.
+ * Pour chacune de ces deux phases, les déplacements des blocs sont d'abord calculés en
+ * parallèle, région par région, sans modifier la carte ; ils sont ensuite appliqués un à
+ * un, dans l'ordre des régions.
+ * Une cellule n'étant examinée qu'avec ses voisines immédiates, deux régions d'une même
+ * phase ne lisent ni ne déplacent jamais les mêmes cellules : le résultat ne dépend donc
+ * pas du nombre de fils d'exécution.
+ *
+ * @version 0.1.0
+ */
+public final class BlockUpdater implements ITickable, IMapListener {
+
+    /**
+     * La largeur d'une région de la carte, en nombre de colonnes.
+     */
+    public static final int REGION_WIDTH = 2 * Chunk.WIDTH;
+
+    /**
+     * Le nombre maximal de cellules examinées dans une même région lors d'un même pas.
+     * Les cellules en excès restent actives et sont traitées aux pas suivants.
+     */
+    private static final int MAX_UPDATES_PER_TICK = 4096;
+
+    /**
+     * Le nombre de cellules à examiner lors d'une phase en dessous duquel les régions sont
+     * traitées séquentiellement, le coût du parallélisme dépassant alors son bénéfice.
+     */
+    private static final int PARALLEL_THRESHOLD = 1024;
+
+    /**
+     * La carte dont les blocs sont mis à jour.
+     */
+    private final GameMap map;
+
+    /**
+     * Le registre des types de blocs de la carte.
+     */
+    private final BlockRegistry registry;
+
+    /**
+     * Les régions de la carte, créées lors de l'activation de leur première cellule.
+     */
+    private final Region[] regions;
+
+    /**
+     * Le nombre de cellules examinées depuis la création de cet objet.
+     */
+    private long updates;
+
+    /**
+     * Crée une nouvelle instance de BlockUpdater.
+     *
+     * @param map La carte dont les blocs doivent être mis à jour.
+     */
+    public BlockUpdater(GameMap map) {
+        this.map = map;
+        this.registry = map.getRegistry();
+        this.regions = new Region[(map.getWidth() + REGION_WIDTH - 1) / REGION_WIDTH];
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see fr.univartois.butinfo.ihm.flatcraft.model.IMapListener#mapChanged(fr.univartois.butinfo.ihm.flatcraft.model.MapChanges)
+     */
+    @Override
+    public void mapChanged(MapChanges changes) {
+        for (int i = 0; i < changes.size(); i++) {
+            activateAround(changes.getRow(i), changes.getColumn(i));
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see fr.univartois.butinfo.ihm.flatcraft.model.ITickable#tick(long)
+     */
+    @Override
+    public void tick(long tick) {
+        // Les cellules activées pendant ce pas ne seront traitées qu'au pas suivant.
+        for (Region region : regions) {
+            if (region != null) {
+                region.budget = Math.min(region.size(), MAX_UPDATES_PER_TICK);
+            }
+        }
+
+        boolean leftFirst = (tick & 1) == 0;
+        for (int parity = 0; parity < 2; parity++) {
+            List<Region> phase = new ArrayList<>();
+            int total = 0;
+            for (int i = parity; i < regions.length; i += 2) {
+                if ((regions[i] != null) && (regions[i].budget > 0)) {
+                    phase.add(regions[i]);
+                    total += regions[i].budget;
+                }
+            }
+            if (phase.isEmpty()) {
+                continue;
+            }
+
+            if ((phase.size() > 1) && (total >= PARALLEL_THRESHOLD)) {
+                ForkJoinPool.commonPool().invoke(new RegionsTask(phase, 0, phase.size(), leftFirst));
+            } else {
+                for (Region region : phase) {
+                    region.compute(leftFirst);
+                }
+            }
+
+            for (Region region : phase) {
+                region.commit();
+                updates += region.budget;
+                region.budget = 0;
+            }
+        }
+    }
+
+    /**
+     * Donne le nombre de cellules actuellement actives.
+     *
+     * @return Le nombre de cellules actives.
+     */
+    public int getActiveCount() {
+        int count = 0;
+        for (Region region : regions) {
+            if (region != null) {
+                count += region.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Donne le nombre de cellules examinées depuis la création de cet objet.
+     *
+     * @return Le nombre de cellules examinées.
+     */
+    public long getUpdates() {
+        return updates;
+    }
+
+    /**
+     * Échange le contenu de deux cellules, puis active les cellules concernées.
+     *
+     * @param row       La ligne de la cellule dont le bloc se déplace.
+     * @param column    La colonne de la cellule dont le bloc se déplace.
+     * @param toRow     La ligne de la cellule de destination.
+     * @param toColumn  La colonne de la cellule de destination.
+     */
+    private void swap(int row, int column, int toRow, int toColumn) {
+        int block = map.getBlock(row, column);
+        int replaced = map.getBlock(toRow, toColumn);
+        map.setBlock(row, column, replaced);
+        map.setBlock(toRow, toColumn, block);
+        activateAround(row, column);
+        activateAround(toRow, toColumn);
+    }
+
+    /**
+     * Active une cellule ainsi que ses voisines immédiates.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     */
+    private void activateAround(int row, int column) {
+        activate(row, column);
+        activate(row - 1, column);
+        activate(row, column - 1);
+        activate(row, column + 1);
+        activate(row + 1, column);
+    }
+
+    /**
+     * Active une cellule, si elle se trouve sur la carte et n'est pas déjà active.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     */
+    private void activate(int row, int column) {
+        if ((row < 0) || (row >= map.getHeight()) || (column < 0) || (column >= map.getWidth())) {
+            return;
+        }
+
+        int index = column / REGION_WIDTH;
+        if (regions[index] == null) {
+            regions[index] = new Region();
+        }
+        regions[index].activate(encode(row, column));
+    }
+
+    /**
+     * Code la position d'une cellule dans un entier long.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     * @return La position codée.
+     */
+    private static long encode(int row, int column) {
+        return ((long) row << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Donne la ligne d'une position codée par {@link #encode(int, int)}.
+     *
+     * @param cell La position codée.
+     * @return La ligne de la cellule.
+     */
+    private static int decodeRow(long cell) {
+        return (int) (cell >> 32);
+    }
+
+    /**
+     * Donne la colonne d'une position codée par {@link #encode(int, int)}.
+     *
+     * @param cell La position codée.
+     * @return La colonne de la cellule.
+     */
+    private static int decodeColumn(long cell) {
+        return (int) cell;
+    }
+
+    /**
+     * La classe {@link Region} représente une région de la carte, avec ses cellules
+     * actives et les déplacements de blocs calculés lors de la phase en cours.
+     */
+    private final class Region {
+
+        /**
+         * Les cellules actives de cette région, codées par {@link #encode(int, int)}, dans
+         * l'ordre où elles ont été activées.
+         */
+        private long[] queue = new long[64];
+
+        /**
+         * L'indice de la première cellule active dans {@link #queue}.
+         */
+        private int head;
+
+        /**
+         * L'indice suivant celui de la dernière cellule active dans {@link #queue}.
+         */
+        private int tail;
+
+        /**
+         * Les cellules actives, permettant de ne pas activer deux fois la même cellule.
+         */
+        private final Set<Long> scheduled = new HashSet<>();
+
+        /**
+         * Le nombre de cellules à examiner lors du pas en cours.
+         */
+        private int budget;
+
+        /**
+         * Les déplacements calculés lors de la phase en cours, sous la forme de paires de
+         * cellules codées (la cellule dont le bloc se déplace, puis sa destination).
+         */
+        private long[] moves = new long[16];
+
+        /**
+         * Le nombre de cellules dans {@link #moves}.
+         */
+        private int moveCount;
+
+        /**
+         * Les types de blocs des cellules déplacées lors de la phase en cours, qui
+         * remplacent ceux de la carte tant que les déplacements n'ont pas été appliqués.
+         */
+        private final Map<Long, Integer> pending = new HashMap<>();
+
+        /**
+         * Donne le nombre de cellules actives de cette région.
+         *
+         * @return Le nombre de cellules actives.
+         */
+        int size() {
+            return tail - head;
+        }
+
+        /**
+         * Active une cellule de cette région, si elle n'est pas déjà active.
+         *
+         * @param cell La position codée de la cellule.
+         */
+        void activate(long cell) {
+            if (!scheduled.add(cell)) {
+                return;
+            }
+
+            if (tail == queue.length) {
+                if (head > 0) {
+                    // On récupère la place libérée au début de la file.
+                    System.arraycopy(queue, head, queue, 0, tail - head);
+                    tail -= head;
+                    head = 0;
+                }
+                if (tail == queue.length) {
+                    queue = Arrays.copyOf(queue, queue.length * 2);
+                }
+            }
+            queue[tail++] = cell;
+        }
+
+        /**
+         * Calcule les déplacements des blocs des cellules à examiner lors de ce pas, sans
+         * modifier la carte.
+         * Cette méthode peut être exécutée en parallèle pour des régions d'une même phase.
+         *
+         * @param leftFirst Si l'eau doit d'abord essayer de s'écouler vers la gauche.
+         */
+        void compute(boolean leftFirst) {
+            for (int i = 0; i < budget; i++) {
+                long cell = queue[head++];
+                scheduled.remove(cell);
+                update(decodeRow(cell), decodeColumn(cell), leftFirst);
+            }
+
+            if (head == tail) {
+                head = 0;
+                tail = 0;
+            }
+        }
+
+        /**
+         * Applique à la carte les déplacements calculés lors de la phase en cours.
+         */
+        void commit() {
+            for (int i = 0; i < moveCount; i += 2) {
+                swap(decodeRow(moves[i]), decodeColumn(moves[i]), decodeRow(moves[i + 1]),
+                        decodeColumn(moves[i + 1]));
+            }
+            moveCount = 0;
+            pending.clear();
+        }
+
+        /**
+         * Calcule l'évolution d'une cellule de la carte, si son bloc n'est pas stable.
+         *
+         * @param row       La ligne de la cellule.
+         * @param column    La colonne de la cellule.
+         * @param leftFirst Si l'eau doit d'abord essayer de s'écouler vers la gauche.
+         */
+        private void update(int row, int column, boolean leftFirst) {
+            if (map.loadedChunk(column) == null) {
+                // La cellule voisine d'une cellule modifiée peut ne pas être générée.
+                return;
+            }
+
+            int block = getBlock(row, column);
+            if (registry.hasFlag(block, BlockType.FALLING)) {
+                // Un bloc qui tombe remplace le vide et s'enfonce dans les liquides.
+                if (isFree(row + 1, column, BlockType.REPLACEABLE | BlockType.LIQUID)) {
+                    move(row, column, row + 1, column);
+                }
+
+            } else if (registry.hasFlag(block, BlockType.LIQUID)) {
+                // L'eau tombe si elle le peut, et sinon s'écoule vers un côté où elle pourra
+                // tomber ensuite.
+                if (isFree(row + 1, column, BlockType.REPLACEABLE)) {
+                    move(row, column, row + 1, column);
+
+                } else {
+                    int first = leftFirst ? -1 : 1;
+                    if (!flow(row, column, first)) {
+                        flow(row, column, -first);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Fait s'écouler un liquide d'une cellule vers l'une de ses voisines, si celle-ci
+         * est libre et qu'il pourra ensuite tomber.
+         *
+         * @param row       La ligne de la cellule contenant le liquide.
+         * @param column    La colonne de la cellule contenant le liquide.
+         * @param direction La direction de l'écoulement ({@code -1} pour la gauche,
+         *        {@code 1} pour la droite).
+         * @return Si le liquide s'est écoulé.
+         */
+        private boolean flow(int row, int column, int direction) {
+            int target = column + direction;
+            if (isFree(row, target, BlockType.REPLACEABLE) && isFree(row + 1, target, BlockType.REPLACEABLE)) {
+                move(row, column, row, target);
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Vérifie si une cellule se trouve dans un tronçon déjà généré de la carte, et
+         * contient un bloc ayant l'un des indicateurs donnés.
+         * Les tronçons ne pouvant pas être générés pendant le calcul des déplacements, les
+         * blocs ne se déplacent jamais vers un tronçon qui ne l'est pas encore.
+         *
+         * @param row    La ligne de la cellule.
+         * @param column La colonne de la cellule.
+         * @param flags  Les indicateurs recherchés.
+         * @return Si la cellule est libre.
+         */
+        private boolean isFree(int row, int column, int flags) {
+            return (0 <= row) && (row < map.getHeight()) && (0 <= column) && (column < map.getWidth())
+                    && (map.loadedChunk(column) != null) && registry.hasFlag(getBlock(row, column), flags);
+        }
+
+        /**
+         * Donne le type de bloc d'une cellule, en tenant compte des déplacements déjà
+         * calculés lors de la phase en cours.
+         *
+         * @param row    La ligne de la cellule.
+         * @param column La colonne de la cellule.
+         * @return L'identifiant du type de bloc de la cellule.
+         */
+        private int getBlock(int row, int column) {
+            Integer block = pending.isEmpty() ? null : pending.get(encode(row, column));
+            if (block != null) {
+                return block;
+            }
+            return map.loadedChunk(column).getBlock(row, column);
+        }
+
+        /**
+         * Enregistre l'échange du contenu de deux cellules, qui sera appliqué à la fin de
+         * la phase en cours.
+         *
+         * @param row      La ligne de la cellule dont le bloc se déplace.
+         * @param column   La colonne de la cellule dont le bloc se déplace.
+         * @param toRow    La ligne de la cellule de destination.
+         * @param toColumn La colonne de la cellule de destination.
+         */
+        private void move(int row, int column, int toRow, int toColumn) {
+            int block = getBlock(row, column);
+            int replaced = getBlock(toRow, toColumn);
+            pending.put(encode(row, column), replaced);
+            pending.put(encode(toRow, toColumn), block);
+
+            if (moveCount + 2 > moves.length) {
+                moves = Arrays.copyOf(moves, moves.length * 2);
+            }
+            moves[moveCount++] = encode(row, column);
+            moves[moveCount++] = encode(toRow, toColumn);
+        }
+
+    }
+
+    /**
+     * La classe {@link RegionsTask} calcule les déplacements des blocs d'un ensemble de
+     * régions d'une même phase.
+     * Si l'ensemble contient plusieurs régions, il est découpé en deux tâches exécutées en
+     * parallèle.
+     */
+    private static final class RegionsTask extends RecursiveAction {
+
+        /**
+         * L'identifiant de version de cette classe (ses instances ne sont jamais
+         * sérialisées, mais {@link RecursiveAction} est {@link java.io.Serializable}).
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Les régions de la phase.
+         */
+        private final transient List<Region> regions;
+
+        /**
+         * L'indice de la première région à traiter.
+         */
+        private final int from;
+
+        /**
+         * L'indice suivant celui de la dernière région à traiter.
+         */
+        private final int to;
+
+        /**
+         * Si l'eau doit d'abord essayer de s'écouler vers la gauche.
+         */
+        private final boolean leftFirst;
+
+        /**
+         * Crée une nouvelle instance de RegionsTask.
+         *
+         * @param regions   Les régions de la phase.
+         * @param from      L'indice de la première région à traiter.
+         * @param to        L'indice suivant celui de la dernière région à traiter.
+         * @param leftFirst Si l'eau doit d'abord essayer de s'écouler vers la gauche.
+         */
+        RegionsTask(List<Region> regions, int from, int to, boolean leftFirst) {
+            this.regions = regions;
+            this.from = from;
+            this.to = to;
+            this.leftFirst = leftFirst;
+        }
+
+        @Override
+        protected void compute() {
+            if ((to - from) == 1) {
+                regions.get(from).compute(leftFirst);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new RegionsTask(regions, from, middle, leftFirst),
+                    new RegionsTask(regions, middle, to, leftFirst));
+        }
+
+    }
+
+}
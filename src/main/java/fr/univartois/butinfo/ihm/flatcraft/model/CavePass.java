@@ -0,0 +1,60 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+/**
+ * La classe {@link CavePass} est la passe de génération creusant des grottes dans le
+ * sous-sol de la carte.
+ * Les grottes suivent les lignes de niveau d'un bruit de gradient en deux dimensions, ce
+ * qui produit des galeries sinueuses se prolongeant d'un tronçon à l'autre.
+ *
+ * @version 0.1.0
+ */
+public final class CavePass implements IGenerationPass {
+
+    /**
+     * Le bruit déterminant la forme des grottes.
+     */
+    private final GradientNoise noise;
+
+    /**
+     * La largeur typique d'un virage de galerie, en nombre de cellules.
+     */
+    private final double scale;
+
+    /**
+     * La largeur des galeries, sous la forme d'un seuil sur la valeur absolue du bruit.
+     */
+    private final double threshold;
+
+    /**
+     * La profondeur minimale des grottes sous la surface, en nombre de lignes.
+     */
+    private final int minDepth;
+
+    /**
+     * Crée une nouvelle instance de CavePass.
+     *
+     * @param seed      La graine déterminant la forme des grottes.
+     * @param scale     La largeur typique d'un virage de galerie, en nombre de cellules.
+     * @param threshold La largeur des galeries, sous la forme d'un seuil sur le bruit.
+     * @param minDepth  La profondeur minimale des grottes sous la surface.
+     */
+    public CavePass(long seed, double scale, double threshold, int minDepth) {
+        this.noise = new GradientNoise(seed);
+        this.scale = scale;
+        this.threshold = threshold;
+        this.minDepth = minDepth;
+    }
+
+    @Override
+    public void apply(GenerationContext context) {
+        context.forEachColumn((column, random) -> {
+            // La dernière ligne est conservée pour que la carte ait toujours un fond.
+            for (int i = context.getSurface(column) + minDepth; i < context.getHeight() - 1; i++) {
+                if (Math.abs(noise.noise(column / scale, i / scale)) < threshold) {
+                    context.setBlock(i, column, BlockRegistry.AIR);
+                }
+            }
+        });
+    }
+
+}
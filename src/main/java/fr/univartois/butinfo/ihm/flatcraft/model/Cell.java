@@ -14,14 +14,13 @@ package fr.univartois.butinfo.ihm.flatcraft.model; /**
  * Tous droits réservés.
  */
 
-import javafx.beans.property.ObjectProperty;
-import javafx.beans.property.SimpleObjectProperty;
-import javafx.scene.image.Image;
-
-import java.util.Objects;
-
 /**
  * La classe {@link Cell} représente une cellule de la carte du jeu Flatcraft.
+ * Une cellule peut être détachée (elle décrit alors simplement un type de bloc, par
+ * exemple celui produit par une {@link CellFactory}), ou bien être une vue légère sur une
+ * position d'une {@link GameMap}.
+ * Dans ce dernier cas, elle est créée à la demande par la carte et lit et écrit son
+ * contenu directement dans le stockage compact de la carte.
  *
  * @author Romain Wallon
  * @version 0.1.0
@@ -29,57 +28,49 @@ import java.util.Objects;
 public final class Cell {
 
     /**
-     * Le sprite représentant le contenu de cette cellule sur la carte.
+     * La carte sur laquelle se trouve cette cellule.
+     * Si la cellule est détachée, la valeur de cet attribut est {@code null}.
      */
-    private final ObjectProperty<Image> sprite;
+    private final GameMap map;
     /**
      * La ligne où se trouve cette cellule dans la carte.
      */
-    private int row;
+    private final int row;
     /**
      * La colonne où se trouve cette cellule dans la carte.
      */
-    private int column;
+    private final int column;
     /**
-     * La ressource contenue dans cette cellule.
-     * Si la cellule est vide, la valeur de cet attribut est {@code null}.
+     * Le type de bloc de cette cellule détachée.
      */
-    private Resource resource;
+    private final BlockType type;
 
     /**
-     * Crée une nouvelle instance de fr.univartois.butinfo.ihm.flatcraft.model.Cell.
-     * La cellule créée est initialement vide.
+     * Crée une nouvelle instance de fr.univartois.butinfo.ihm.flatcraft.model.Cell,
+     * représentant une position donnée sur une carte.
      *
+     * @param map    La carte sur laquelle se trouve la cellule.
      * @param row    La ligne où se trouve la cellule.
      * @param column La colonne où se trouve la cellule.
      */
-    public Cell(int row, int column) {
+    Cell(GameMap map, int row, int column) {
+        this.map = map;
         this.row = row;
         this.column = column;
-        this.sprite = new SimpleObjectProperty<>();
+        this.type = null;
     }
 
     /**
      * Crée une nouvelle instance de fr.univartois.butinfo.ihm.flatcraft.model.Cell.
-     * La cellule créée est initialement vide.
+     * La cellule créée est détachée.
      *
-     * @param image L'image représentant la cellule.
+     * @param type Le type de bloc de la cellule.
      */
-    public Cell(Image image) {
-        this.sprite = new SimpleObjectProperty<>();
-        this.sprite.set(image);
-    }
-
-    /**
-     * Crée une nouvelle instance de fr.univartois.butinfo.ihm.flatcraft.model.Cell.
-     * La cellule créée est initialement vide.
-     *
-     * @param resource La ressource contenue dans la cellule.
-     */
-    public Cell(Resource resource) {
-        this.sprite = new SimpleObjectProperty<>();
-        this.resource = resource;
-        this.sprite.set(resource.getSprite());
+    public Cell(BlockType type) {
+        this.map = null;
+        this.row = -1;
+        this.column = -1;
+        this.type = type;
     }
 
     /**
@@ -91,24 +82,6 @@ public final class Cell {
         return row;
     }
 
-    /**
-     * Modifie la ligne où se trouve cette cellule dans la carte du jeu.
-     *
-     * @param row La nouvelle ligne où se trouve cette cellule.
-     */
-    public void setRow(int row) {
-        this.row = row;
-    }
-
-    /**
-     * Modifie la colonne où se trouve cette cellule dans la carte du jeu.
-     *
-     * @param column La nouvelle colonne où se trouve cette cellule.
-     */
-    public void setColum(int column) {
-        this.column = column;
-    }
-
     /**
      * Donne la colonne où se trouve cette cellule dans la carte du jeu.
      *
@@ -119,16 +92,25 @@ public final class Cell {
     }
 
     /**
-     * Donne le sprite représentant le contenu de cette cellule sur la carte.
+     * Donne le type de bloc occupant cette cellule.
      *
-     * @return Le sprite représentant cette cellule.
+     * @return Le type de bloc de cette cellule.
      */
-    public Image getSprite() {
-        return sprite.get();
+    public BlockType getBlockType() {
+        if (map == null) {
+            return type;
+        }
+        return map.getBlockType(row, column);
     }
 
-    public ObjectProperty<Image> getSpriteProperty() {
-        return sprite;
+    /**
+     * Donne le nom du sprite représentant le contenu de cette cellule sur la carte.
+     *
+     * @return Le nom du sprite représentant cette cellule, ou {@code null} si elle est
+     *         invisible.
+     */
+    public String getSpriteName() {
+        return getBlockType().getSpriteName();
     }
 
     /**
@@ -137,20 +119,19 @@ public final class Cell {
      * @param cell La cellule à copier pour remplacer celle-ci.
      */
     public void replaceBy(Cell cell) {
-        this.resource = cell.resource;
-        this.sprite.set(cell.getSprite());
+        map.setBlock(row, column, cell.getBlockType().getId());
     }
 
     /**
      * Déplace un objet mobile du jeu si cette cellule le permet.
-     * Par exemple, si une cellule ne contient pas de ressource, l'objet peut "passer à
+     * Par exemple, si une cellule ne contient pas de bloc solide, l'objet peut "passer à
      * travers" cette cellule.
      *
      * @param movable L'objet mobile à déplacer.
      * @return Si l'objet mobile a été déplacé.
      */
     public boolean move(AbstractMovable movable) {
-        if (resource == null || Objects.equals(resource.getName(), "ladder")) {
+        if (!map.hasFlag(row, column, BlockType.SOLID)) {
             movable.setRow(row);
             return true;
         }
@@ -160,21 +141,27 @@ public final class Cell {
     /**
      * Essaye d'extraire la ressource contenue dans cette cellule.
      * Si l'extraction réussit, la ressource est ajoutée à l'inventaire du joueur.
+     * Un joueur dont l'inventaire est plein ne peut plus rien extraire.
      *
      * @param player Le joueur qui souhaite extraire la ressource.
      * @return Si une ressource a été extraite.
      */
     public boolean dig(Player player) {
-        if (resource != null) {
-            player.addToInventory(resource);
-            setResource(null);
+        BlockType content = getBlockType();
+        if (content.isDiggable() && player.addToInventory(content.getResource())) {
+            map.setBlock(row, column, BlockRegistry.AIR);
             return true;
         }
         return false;
     }
 
+    /**
+     * Donne la ressource contenue dans cette cellule.
+     *
+     * @return La ressource de cette cellule, ou {@code null} si elle n'en contient pas.
+     */
     public Resource getResource() {
-        return resource;
+        return getBlockType().getResource();
     }
 
     /**
@@ -183,12 +170,6 @@ public final class Cell {
      * @param resource La ressource à placer sur cette cellule.
      */
     public void setResource(Resource resource) {
-        if (resource == null) {
-            this.resource = null;
-            this.sprite.set(null);
-        } else {
-            this.resource = resource;
-            this.sprite.set(resource.getSprite());
-        }
+        map.setBlock(row, column, (resource == null) ? BlockRegistry.AIR : resource.getId());
     }
 }
@@ -14,12 +14,13 @@ package fr.univartois.butinfo.ihm.flatcraft.model; /**
  * Tous droits réservés.
  */
 
-import javafx.scene.image.Image;
-
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 /**
  * La classe {@link CellFactory} permet de créer les cellules formant la carte du jeu Flatcraft.
+ * Les cellules produites sont détachées, et une seule cellule est partagée par type de bloc.
+ * Les choix aléatoires sont faits à partir du générateur de nombres pseudo-aléatoires
+ * donné à chaque appel, afin que la carte puisse être reproduite à partir d'une graine.
  *
  * @author Daniel Le Berre
  * @author Romain Wallon
@@ -29,69 +30,88 @@ import java.util.Random;
 public final class CellFactory {
 
     /**
-     * Le générateur de nombres pseudo-aléatoires à utiliser pour créer des cellules aléatoires.
+     * Le registre des types de blocs des cellules créées.
      */
-    private static final Random RANDOM = new Random();
+    private final BlockRegistry registry;
 
     /**
-     * Le {@link SpriteStore} à utiliser pour récupérer les sprites des cellules.
+     * Les cellules partagées, indexées par l'identifiant de leur type de bloc.
      */
-    private final SpriteStore spriteStore;
+    private final Cell[] cells;
 
     /**
      * Crée une nouvelle instance de fr.univartois.butinfo.ihm.flatcraft.model.CellFactory.
      *
-     * @param spriteStore Le {@link SpriteStore} à utiliser pour récupérer les sprites des cellules.
+     * @param registry Le registre des types de blocs des cellules à créer.
      */
-    public CellFactory(SpriteStore spriteStore) {
-        this.spriteStore = spriteStore;
+    public CellFactory(BlockRegistry registry) {
+        this.registry = registry;
+        this.cells = new Cell[registry.size()];
+        for (int id = 0; id < cells.length; id++) {
+            cells[id] = new Cell(registry.get(id));
+        }
+    }
+
+    /**
+     * Donne le registre des types de blocs des cellules créées par cette fabrique.
+     *
+     * @return Le registre des types de blocs.
+     */
+    public BlockRegistry getRegistry() {
+        return registry;
     }
 
     /**
      * Crée une cellule de ciel.
      * Il peut s'agir de ciel bleu ou d'un nuage, par exemple.
      *
+     * @param random Le générateur de nombres pseudo-aléatoires à utiliser.
+     *
      * @return La cellule créée.
      */
-    public Cell createSky() {
-        if (RANDOM.nextInt(10) < 1) {
-            return createCell("cloud");
+    public Cell createSky(RandomGenerator random) {
+        if (random.nextInt(10) < 1) {
+            return createCell(BlockRegistry.CLOUD);
         }
-        return createCell("ice");
+        return createCell(BlockRegistry.ICE);
     }
 
     /**
      * Crée une cellule représentant la surface du sol.
      * Il peut s'agir de pelouse ou d'eau, par exemple.
      *
+     * @param random Le générateur de nombres pseudo-aléatoires à utiliser.
+     *
      * @return La cellule créée.
      */
-    public Cell createSoilSurface() {
-        if (RANDOM.nextInt(10) < 1) {
-            return createResourceCell("junglegrass");
+    public Cell createSoilSurface(RandomGenerator random) {
+        if (random.nextInt(10) < 1) {
+            return createCell(BlockRegistry.JUNGLE_GRASS);
         }
 
-        if (RANDOM.nextInt(10) < 2) {
-            return createResourceCell("water");
+        if (random.nextInt(10) < 2) {
+            return createCell(BlockRegistry.WATER);
         }
 
-        return createResourceCell("grass");
+        return createCell(BlockRegistry.GRASS);
     }
 
     /**
      * Crée une cellule représentant le sous-sol.
      * Il peut s'agir de terre, ou de minerai à aller chercher en profondeur, par exemple.
      *
+     * @param random Le générateur de nombres pseudo-aléatoires à utiliser.
+     *
      * @return La cellule créée.
      */
-    public Cell createSubSoil() {
-        return switch (RANDOM.nextInt(20)) {
-            case 0 -> createResourceCell("gold_block");
-            case 1 -> createResourceCell("diamond_block");
-            case 2 -> createResourceCell("bronze_block");
-            case 3 -> createResourceCell("coal_block");
-            case 4 -> createResourceCell("copper_block");
-            default -> createResourceCell("dirt");
+    public Cell createSubSoil(RandomGenerator random) {
+        return switch (random.nextInt(20)) {
+            case 0 -> createCell(BlockRegistry.GOLD_BLOCK);
+            case 1 -> createCell(BlockRegistry.DIAMOND_BLOCK);
+            case 2 -> createCell(BlockRegistry.BRONZE_BLOCK);
+            case 3 -> createCell(BlockRegistry.COAL_BLOCK);
+            case 4 -> createCell(BlockRegistry.COPPER_BLOCK);
+            default -> createCell(BlockRegistry.DIRT);
         };
     }
 
@@ -101,7 +121,7 @@ public final class CellFactory {
      * @return La cellule créée.
      */
     public Cell createTrunk() {
-        return createCell("tree");
+        return createCell(BlockRegistry.TREE);
     }
 
     /**
@@ -110,33 +130,18 @@ public final class CellFactory {
      * @return La cellule créée.
      */
     public Cell createLeaves() {
-        return createCell("leaves");
+        return createCell(BlockRegistry.LEAVES);
     }
 
     /**
-     * Crée une cellule affichant le sprite ayant le nom donné.
-     * La cellule créée est vide (elle ne contient pas de ressource).
+     * Donne la cellule partagée contenant le type de bloc ayant l'identifiant donné.
      *
-     * @param name Le nom du sprite affiché par la cellule à créer.
+     * @param id L'identifiant du type de bloc contenu dans la cellule.
      *
-     * @return La cellule créée.
-     */
-    private Cell createCell(String name) {
-        Image sprite = spriteStore.createSprite(name);
-        return new Cell(sprite);
-    }
-
-    /**
-     * Crée une cellule contenant la ressource ayant le nom donné.
-     *
-     * @param name Le nom de la ressource contenue dans la cellule à créer.
-     *
-     * @return La cellule créée.
+     * @return La cellule partagée.
      */
-    private Cell createResourceCell(String name) {
-        Image sprite = spriteStore.createSprite(name);
-        Resource resource = new Resource(name, sprite);
-        return new Cell(resource);
+    private Cell createCell(int id) {
+        return cells[id];
     }
 
 }
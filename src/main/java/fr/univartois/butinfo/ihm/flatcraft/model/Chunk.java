@@ -0,0 +1,467 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
+/**
+ * La classe {@link Chunk} représente un tronçon de la carte du jeu Flatcraft, c'est-à-dire
+ * un ensemble de {@link #WIDTH} colonnes consécutives couvrant toute la hauteur de la carte.
+ * Le contenu des cellules est stocké de manière compacte, sous la forme de l'identifiant
+ * de son type de bloc (voir {@link BlockRegistry}), colonne après colonne.
+ * <p>
+ * En dehors de ce paquetage, un tronçon ne peut être que consulté (voir
+ * {@link IChunkView}) : ses blocs sont remplis par les générateurs de tronçons (au travers
+ * d'un {@link GenerationContext}) avant que quiconque ne puisse l'observer, puis modifiés
+ * par la {@link GameMap}.
+ *
+ * @version 0.1.0
+ */
+public final class Chunk implements IChunkView {
+
+    /**
+     * La largeur d'un tronçon, en nombre de colonnes.
+     */
+    public static final int WIDTH = 32;
+
+    /**
+     * L'indice de ce tronçon dans la carte.
+     */
+    private final int index;
+
+    /**
+     * La hauteur de ce tronçon, en nombre de cellules.
+     */
+    private final int height;
+
+    /**
+     * Les identifiants des types de blocs des cellules de ce tronçon.
+     * La cellule de ligne {@code i} de la {@code j}-ième colonne du tronçon se trouve à
+     * l'indice {@code j * height + i}.
+     */
+    private final short[] blocks;
+
+    /**
+     * Les cellules de ce tronçon dont le bloc a été modifié depuis la dernière publication
+     * des modifications, repérées par leur position dans {@link #blocks}.
+     */
+    private final BitSet dirty = new BitSet();
+
+    /**
+     * Les cellules de ce tronçon dont l'éclairage a été modifié depuis la dernière
+     * publication des modifications, repérées par leur position dans {@link #blocks}.
+     */
+    private final BitSet lightDirty = new BitSet();
+
+    /**
+     * Le nombre de mots de {@link #solid} utilisés par chaque colonne.
+     */
+    private final int wordsPerColumn;
+
+    /**
+     * Les cellules solides de ce tronçon, sous la forme d'un ensemble de bits par colonne :
+     * le bit {@code i} de la {@code j}-ième colonne indique si la cellule de ligne
+     * {@code i} est solide.
+     * Il permet de trouver le premier bloc solide d'une colonne en ne parcourant qu'un mot
+     * par tranche de 64 lignes.
+     */
+    private final long[] solid;
+
+    /**
+     * Les niveaux de lumière des cellules de ce tronçon, rangées comme dans {@link #blocks}.
+     * Chaque octet contient deux niveaux de 4 bits : la lumière du ciel dans les bits de
+     * poids faible, et celle des blocs (les torches, par exemple) dans ceux de poids fort.
+     */
+    private final byte[] light;
+
+    /**
+     * Les déplacements possibles depuis chaque cellule de ce tronçon, rangées comme dans
+     * {@link #blocks} (voir {@link NavigationGrid}).
+     */
+    private final byte[] moves;
+
+    /**
+     * Les colonnes de ce tronçon dont les déplacements sont à jour : le bit {@code j}
+     * concerne la {@code j}-ième colonne du tronçon.
+     * Les déplacements pouvant être calculés en parallèle par plusieurs fils d'exécution,
+     * ce champ est volatil : un fil qui y lit qu'une colonne est à jour voit aussi ses
+     * déplacements.
+     */
+    private volatile int navigable;
+
+    /**
+     * Le numéro du dernier pas de la boucle de jeu pendant lequel ce tronçon a été
+     * consulté par le fil d'exécution du jeu (voir {@link ChunkCache}).
+     */
+    private long lastUse;
+
+    /**
+     * Crée une nouvelle instance de Chunk, dont les cellules sont initialement vides.
+     *
+     * @param index  L'indice du tronçon dans la carte.
+     * @param height La hauteur du tronçon, en nombre de cellules.
+     */
+    Chunk(int index, int height) {
+        this.index = index;
+        this.height = height;
+        this.blocks = new short[height * WIDTH];
+        this.wordsPerColumn = (height + Long.SIZE - 1) / Long.SIZE;
+        this.solid = new long[wordsPerColumn * WIDTH];
+        this.light = new byte[height * WIDTH];
+        this.moves = new byte[height * WIDTH];
+    }
+
+    /**
+     * Donne l'indice du tronçon contenant la colonne donnée.
+     *
+     * @param column La colonne dont on cherche le tronçon.
+     * @return L'indice du tronçon contenant cette colonne.
+     */
+    static int indexOf(int column) {
+        return Math.floorDiv(column, WIDTH);
+    }
+
+    /**
+     * Donne l'indice de ce tronçon dans la carte.
+     *
+     * @return L'indice de ce tronçon.
+     */
+    @Override
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Donne la première colonne de ce tronçon, relativement au début de la carte.
+     *
+     * @return La première colonne de ce tronçon.
+     */
+    @Override
+    public int getFirstColumn() {
+        return index * WIDTH;
+    }
+
+    /**
+     * Donne la hauteur de ce tronçon, en nombre de cellules.
+     *
+     * @return La hauteur de ce tronçon.
+     */
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Donne l'identifiant du type de bloc de la cellule à la position donnée.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule, relativement au début de la carte.
+     * @return L'identifiant du type de bloc de la cellule.
+     */
+    @Override
+    public int getBlock(int row, int column) {
+        return blocks[offset(row, column)];
+    }
+
+    /**
+     * Modifie l'identifiant du type de bloc de la cellule à la position donnée.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule, relativement au début de la carte.
+     * @param block  Le nouvel identifiant du type de bloc de la cellule.
+     * @return L'identifiant du type de bloc précédent de la cellule.
+     */
+    int setBlock(int row, int column, int block) {
+        int offset = offset(row, column);
+        int previous = blocks[offset];
+        blocks[offset] = (short) block;
+        return previous;
+    }
+
+    /**
+     * Donne la première ligne d'une colonne, à partir d'une ligne donnée, contenant un bloc
+     * solide.
+     *
+     * @param row    La ligne à partir de laquelle chercher (incluse).
+     * @param column La colonne, relativement au début de la carte.
+     * @return La première ligne solide à partir de {@code row}, ou la hauteur du tronçon
+     *         s'il n'y en a pas.
+     */
+    int nextSolidRow(int row, int column) {
+        if (row >= height) {
+            return height;
+        }
+
+        int base = Math.floorMod(column, WIDTH) * wordsPerColumn;
+        int w = row >>> 6;
+        long word = solid[base + w] & (-1L << row);
+        while (word == 0) {
+            if (++w == wordsPerColumn) {
+                return height;
+            }
+            word = solid[base + w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Indique si une cellule de ce tronçon est solide.
+     *
+     * @param row     La ligne de la cellule.
+     * @param column  La colonne de la cellule, relativement au début de la carte.
+     * @param isSolid Si la cellule est solide.
+     */
+    void setSolid(int row, int column, boolean isSolid) {
+        int index = Math.floorMod(column, WIDTH) * wordsPerColumn + (row >>> 6);
+        if (isSolid) {
+            solid[index] |= 1L << row;
+        } else {
+            solid[index] &= ~(1L << row);
+        }
+    }
+
+    /**
+     * Recalcule les cellules solides de ce tronçon à partir de ses types de blocs.
+     * Cette méthode est appelée une fois le tronçon généré.
+     *
+     * @param registry Le registre des types de blocs.
+     */
+    void computeSolid(BlockRegistry registry) {
+        for (int i = 0; i < blocks.length; i++) {
+            setSolid(i % height, i / height, registry.hasFlag(blocks[i], BlockType.SOLID));
+        }
+    }
+
+    /**
+     * Donne l'un des niveaux de lumière d'une cellule de ce tronçon.
+     *
+     * @param channel La position du niveau dans l'octet de la cellule ({@code 0} pour la
+     *        lumière du ciel, {@code 4} pour celle des blocs).
+     * @param row     La ligne de la cellule.
+     * @param column  La colonne de la cellule, relativement au début de la carte.
+     * @return Le niveau de lumière, entre {@code 0} et {@code 15}.
+     */
+    int getLight(int channel, int row, int column) {
+        return (light[offset(row, column)] >> channel) & 0xF;
+    }
+
+    /**
+     * Modifie l'un des niveaux de lumière d'une cellule de ce tronçon.
+     *
+     * @param channel La position du niveau dans l'octet de la cellule ({@code 0} pour la
+     *        lumière du ciel, {@code 4} pour celle des blocs).
+     * @param row     La ligne de la cellule.
+     * @param column  La colonne de la cellule, relativement au début de la carte.
+     * @param level   Le nouveau niveau de lumière, entre {@code 0} et {@code 15}.
+     */
+    void setLight(int channel, int row, int column, int level) {
+        int offset = offset(row, column);
+        light[offset] = (byte) ((light[offset] & ~(0xF << channel)) | (level << channel));
+    }
+
+    /**
+     * Donne les déplacements possibles depuis une cellule de ce tronçon.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule, relativement au début de la carte.
+     * @return Les déplacements possibles, sous la forme d'indicateurs de
+     *         {@link NavigationGrid}.
+     */
+    int getMoves(int row, int column) {
+        return moves[offset(row, column)];
+    }
+
+    /**
+     * Modifie les déplacements possibles depuis une cellule de ce tronçon.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule, relativement au début de la carte.
+     * @param value  Les déplacements possibles, sous la forme d'indicateurs de
+     *        {@link NavigationGrid}.
+     */
+    void setMoves(int row, int column, int value) {
+        moves[offset(row, column)] = (byte) value;
+    }
+
+    /**
+     * Vérifie si les déplacements possibles depuis une colonne de ce tronçon sont à jour.
+     *
+     * @param column La colonne, relativement au début de la carte.
+     * @return Si les déplacements de la colonne sont à jour.
+     */
+    boolean isNavigable(int column) {
+        return (navigable & (1 << Math.floorMod(column, WIDTH))) != 0;
+    }
+
+    /**
+     * Indique si les déplacements possibles depuis une colonne de ce tronçon sont à jour.
+     *
+     * @param column      La colonne, relativement au début de la carte.
+     * @param isNavigable Si les déplacements de la colonne sont à jour.
+     */
+    synchronized void setNavigable(int column, boolean isNavigable) {
+        int bit = 1 << Math.floorMod(column, WIDTH);
+        if (isNavigable) {
+            navigable |= bit;
+        } else {
+            navigable &= ~bit;
+        }
+    }
+
+    /**
+     * Marque le bloc d'une cellule de ce tronçon comme modifié.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule, relativement au début de la carte.
+     * @return Si aucune cellule de ce tronçon n'était marquée auparavant.
+     */
+    boolean markDirty(int row, int column) {
+        boolean wasClean = !hasChanges();
+        dirty.set(offset(row, column));
+        return wasClean;
+    }
+
+    /**
+     * Marque l'éclairage d'une cellule de ce tronçon comme modifié.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule, relativement au début de la carte.
+     * @return Si aucune cellule de ce tronçon n'était marquée auparavant.
+     */
+    boolean markLightDirty(int row, int column) {
+        boolean wasClean = !hasChanges();
+        lightDirty.set(offset(row, column));
+        return wasClean;
+    }
+
+    /**
+     * Marque l'éclairage de toutes les cellules des premières colonnes de ce tronçon comme
+     * modifié.
+     *
+     * @param columns Le nombre de colonnes à marquer.
+     * @return Si aucune cellule de ce tronçon n'était marquée auparavant.
+     */
+    boolean markLightDirty(int columns) {
+        boolean wasClean = !hasChanges();
+        lightDirty.set(0, columns * height);
+        return wasClean;
+    }
+
+    /**
+     * Ajoute les cellules modifiées de ce tronçon à des ensembles de modifications, puis
+     * les marque comme non modifiées.
+     * Une cellule dont le bloc et l'éclairage ont changé n'est ajoutée qu'aux modifications
+     * de blocs.
+     *
+     * @param blocks Les modifications de blocs à compléter.
+     * @param lights Les modifications d'éclairage à compléter.
+     */
+    void collectChanges(MapChanges blocks, MapChanges lights) {
+        int firstColumn = index * WIDTH;
+        for (int i = dirty.nextSetBit(0); i >= 0; i = dirty.nextSetBit(i + 1)) {
+            blocks.add(i % height, firstColumn + i / height);
+        }
+        lightDirty.andNot(dirty);
+        for (int i = lightDirty.nextSetBit(0); i >= 0; i = lightDirty.nextSetBit(i + 1)) {
+            lights.add(i % height, firstColumn + i / height);
+        }
+        dirty.clear();
+        lightDirty.clear();
+    }
+
+    /**
+     * Indique si des cellules de ce tronçon ont été modifiées depuis la dernière
+     * publication des modifications.
+     *
+     * @return Si des modifications de ce tronçon n'ont pas encore été publiées.
+     */
+    boolean hasChanges() {
+        return !dirty.isEmpty() || !lightDirty.isEmpty();
+    }
+
+    /**
+     * Donne le numéro du dernier pas pendant lequel ce tronçon a été consulté.
+     *
+     * @return Le numéro du dernier pas de consultation.
+     */
+    long getLastUse() {
+        return lastUse;
+    }
+
+    /**
+     * Modifie le numéro du dernier pas pendant lequel ce tronçon a été consulté.
+     *
+     * @param tick Le numéro du pas en cours.
+     */
+    void setLastUse(long tick) {
+        lastUse = tick;
+    }
+
+    /**
+     * Copie les identifiants des types de blocs de ce tronçon dans un tampon, colonne par
+     * colonne.
+     *
+     * @param buffer Le tampon dans lequel copier les identifiants, à partir de sa position
+     *        courante.
+     */
+    void copyBlocksTo(ByteBuffer buffer) {
+        buffer.asShortBuffer().put(blocks);
+        buffer.position(buffer.position() + blocks.length * Short.BYTES);
+    }
+
+    /**
+     * Remplace les identifiants des types de blocs de ce tronçon par ceux d'un tampon,
+     * écrits par {@link #copyBlocksTo(ByteBuffer)}.
+     *
+     * @param buffer Le tampon contenant les identifiants, à partir de sa position courante.
+     */
+    void copyBlocksFrom(ByteBuffer buffer) {
+        buffer.asShortBuffer().get(blocks);
+        buffer.position(buffer.position() + blocks.length * Short.BYTES);
+    }
+
+    /**
+     * Remplace les identifiants des types de blocs de ce tronçon par ceux d'un tableau,
+     * rangés colonne par colonne.
+     *
+     * @param source Le tableau contenant les identifiants.
+     */
+    void copyBlocksFrom(short[] source) {
+        System.arraycopy(source, 0, blocks, 0, blocks.length);
+    }
+
+    /**
+     * Donne une estimation de la mémoire occupée par ce tronçon, en octets.
+     *
+     * @return La mémoire occupée par ce tronçon.
+     */
+    long memorySize() {
+        return (long) blocks.length * Short.BYTES + light.length + moves.length + (long) solid.length * Long.BYTES;
+    }
+
+    /**
+     * Calcule une empreinte des types de blocs de ce tronçon, en complétant une empreinte
+     * donnée (selon la fonction FNV-1a).
+     *
+     * @param hash L'empreinte à compléter.
+     * @return L'empreinte complétée.
+     */
+    long checksum(long hash) {
+        long h = (hash ^ index) * 0x100000001B3L;
+        for (short block : blocks) {
+            h = (h ^ block) * 0x100000001B3L;
+        }
+        return h;
+    }
+
+    /**
+     * Calcule la position d'une cellule dans le tableau des identifiants.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule, relativement au début de la carte.
+     * @return La position de la cellule dans le tableau.
+     */
+    private int offset(int row, int column) {
+        return Math.floorMod(column, WIDTH) * height + row;
+    }
+
+}
@@ -0,0 +1,694 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * La classe {@link ChunkCache} conserve les tronçons générés d'une {@link GameMap}, sur
+ * trois niveaux :
+ * <ul>
+ * <li>les tronçons « chauds », récemment consultés, sont conservés décodés (au plus
+ * {@link #getHotChunks()} d'entre eux) ;</li>
+ * <li>lorsqu'il y en a trop, les moins récemment consultés deviennent « froids » : seuls
+ * les identifiants de leurs blocs sont conservés, compressés (avec {@link Deflater}) ;</li>
+ * <li>lorsque la mémoire occupée par ces deux niveaux dépasse le budget
+ * ({@link #getMemoryBudget()}), les tronçons froids les plus anciens sont écrits dans un
+ * fichier temporaire (les zones libérées par les tronçons réchauffés y étant réutilisées),
+ * qui est supprimé par {@link #close()}.</li>
+ * </ul>
+ * Un tronçon froid ou écrit sur le disque redevient chaud dès que la carte le consulte ; ses
+ * données dérivées (cellules solides, lumière, déplacements) sont alors recalculées comme
+ * pour un tronçon qui vient d'être généré.
+ * <p>
+ * Seuls les tronçons chauds sont considérés comme chargés par la carte : les calculs qui ne
+ * consultent que les tronçons chargés (écoulement des blocs, recherche de chemins,
+ * propagation de la lumière) s'arrêtent donc aux tronçons refroidis, comme au bord des
+ * tronçons pas encore générés.
+ * La carte est informée de chaque tronçon refroidi, afin que ces calculs oublient les
+ * informations qu'ils en avaient tirées.
+ * <p>
+ * Un tronçon consulté par le jeu pendant les {@link #RETAINED_TICKS} derniers pas n'est
+ * jamais refroidi : le nombre de tronçons chauds peut donc dépasser temporairement
+ * {@link #getHotChunks()}, pour contenir tous ceux qu'utilisent l'affichage et les objets
+ * mobiles actifs.
+ * Sans cette marge, un nombre de tronçons chauds inférieur à celui de ces tronçons les
+ * ferait refroidir et réchauffer sans cesse.
+ *
+ * @version 0.1.0
+ */
+public final class ChunkCache implements ITickable {
+
+    /**
+     * Le nombre maximal de tronçons chauds par défaut.
+     */
+    public static final int DEFAULT_HOT_CHUNKS = 1024;
+
+    /**
+     * Le budget mémoire par défaut, en octets.
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+
+    /**
+     * Le nombre de pas pendant lesquels un tronçon consulté ne peut pas être refroidi.
+     */
+    public static final int RETAINED_TICKS = FlatcraftGame.TICK_RATE;
+
+    /**
+     * La hauteur des tronçons, en nombre de cellules.
+     */
+    private final int height;
+
+    /**
+     * L'action informée de chaque tronçon refroidi.
+     */
+    private final Consumer<Chunk> evicted;
+
+    /**
+     * Le numéro du pas en cours.
+     */
+    private long tick;
+
+    /**
+     * Les tronçons chauds, indexés par leur indice.
+     * Cette table n'est modifiée que par le fil d'exécution du jeu : elle peut être
+     * consultée en parallèle pendant les phases où aucun tronçon n'est chargé.
+     */
+    private final Map<Integer, Chunk> hot = new HashMap<>();
+
+    /**
+     * Les tronçons chauds, du moins récemment consulté au plus récemment consulté.
+     */
+    private final LinkedHashMap<Integer, Chunk> recency = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Les blocs compressés des tronçons froids, du plus anciennement refroidi au plus
+     * récemment refroidi.
+     */
+    private final LinkedHashMap<Integer, byte[]> cold = new LinkedHashMap<>();
+
+    /**
+     * La position et la taille des blocs compressés des tronçons écrits sur le disque.
+     */
+    private final Map<Integer, long[]> spilled = new HashMap<>();
+
+    /**
+     * Le compresseur des blocs des tronçons refroidis.
+     */
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+    /**
+     * Le décompresseur des blocs des tronçons réchauffés.
+     */
+    private final Inflater inflater = new Inflater();
+
+    /**
+     * Le tampon contenant les blocs décompressés d'un tronçon.
+     */
+    private final ByteBuffer raw;
+
+    /**
+     * Le tampon recevant les blocs compressés d'un tronçon.
+     */
+    private byte[] compressed;
+
+    /**
+     * Le fichier temporaire contenant les tronçons écrits sur le disque, créé au besoin.
+     */
+    private FileChannel spillFile;
+
+    /**
+     * La taille du fichier temporaire, en octets.
+     */
+    private long spillSize;
+
+    /**
+     * Les zones libres du fichier temporaire, libérées par les tronçons réchauffés, dont
+     * la taille est indexée par la position.
+     * Deux zones libres ne sont jamais contiguës, et la dernière zone du fichier n'est
+     * jamais libre : le fichier est raccourci à la place.
+     */
+    private final TreeMap<Long, Long> spillHoles = new TreeMap<>();
+
+    /**
+     * Le nombre maximal de tronçons chauds.
+     */
+    private int hotChunks = DEFAULT_HOT_CHUNKS;
+
+    /**
+     * Le budget mémoire des tronçons chauds et froids, en octets.
+     */
+    private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+
+    /**
+     * La mémoire occupée par un tronçon chaud, en octets.
+     */
+    private long chunkSize;
+
+    /**
+     * La mémoire occupée par les tronçons froids, en octets.
+     */
+    private long coldBytes;
+
+    /**
+     * Le nombre de consultations de tronçons chauds.
+     */
+    private long hits;
+
+    /**
+     * Le nombre de tronçons froids réchauffés.
+     */
+    private long coldHits;
+
+    /**
+     * Le nombre de tronçons réchauffés depuis le disque.
+     */
+    private long diskHits;
+
+    /**
+     * Le nombre de tronçons consultés pour la première fois (et donc générés ou lus).
+     */
+    private long misses;
+
+    /**
+     * Le nombre de tronçons refroidis.
+     */
+    private long evictions;
+
+    /**
+     * Le nombre de tronçons écrits sur le disque.
+     */
+    private long spills;
+
+    /**
+     * Crée une nouvelle instance de ChunkCache.
+     *
+     * @param height  La hauteur des tronçons, en nombre de cellules.
+     * @param evicted L'action informée de chaque tronçon refroidi, une fois qu'il ne fait
+     *        plus partie des tronçons chauds.
+     */
+    ChunkCache(int height, Consumer<Chunk> evicted) {
+        this.height = height;
+        this.evicted = evicted;
+        this.raw = ByteBuffer.allocate(height * Chunk.WIDTH * Short.BYTES);
+        this.compressed = new byte[raw.capacity() / 4];
+    }
+
+    /**
+     * Donne un tronçon chaud, en le marquant comme le plus récemment consulté.
+     *
+     * @param index L'indice du tronçon.
+     * @return Le tronçon, ou {@code null} s'il n'est pas chaud.
+     */
+    Chunk get(int index) {
+        Chunk chunk = recency.get(index);
+        if (chunk != null) {
+            chunk.setLastUse(tick);
+            hits++;
+        }
+        return chunk;
+    }
+
+    /**
+     * Indique qu'un tronçon chaud vient d'être consulté par le jeu, sans modifier l'ordre
+     * des consultations.
+     * Le tronçon ne peut alors pas être refroidi pendant {@link #RETAINED_TICKS} pas.
+     *
+     * @param chunk Le tronçon consulté.
+     */
+    void touch(Chunk chunk) {
+        chunk.setLastUse(tick);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see fr.univartois.butinfo.ihm.flatcraft.model.ITickable#tick(long)
+     */
+    @Override
+    public void tick(long tick) {
+        this.tick = tick;
+    }
+
+    /**
+     * Donne un tronçon chaud, sans modifier l'ordre des consultations.
+     * Cette méthode peut être appelée par plusieurs fils d'exécution en même temps, tant
+     * que le contenu du cache n'est pas modifié.
+     *
+     * @param index L'indice du tronçon.
+     * @return Le tronçon, ou {@code null} s'il n'est pas chaud.
+     */
+    Chunk peek(int index) {
+        return hot.get(index);
+    }
+
+    /**
+     * Réchauffe un tronçon froid ou écrit sur le disque, en remplissant ses blocs.
+     *
+     * @param chunk Le tronçon à remplir, dont toutes les cellules sont initialement vides.
+     * @return Si le tronçon a été rempli, ou {@code false} s'il n'a jamais été généré.
+     */
+    boolean restore(Chunk chunk) {
+        int index = chunk.getIndex();
+        byte[] data = cold.remove(index);
+        if (data != null) {
+            coldBytes -= data.length;
+            coldHits++;
+        } else {
+            long[] location = spilled.remove(index);
+            if (location == null) {
+                misses++;
+                return false;
+            }
+            data = readSpilled(location);
+            freeSpilled(location);
+            diskHits++;
+        }
+
+        inflate(data, chunk);
+        return true;
+    }
+
+    /**
+     * Ajoute un tronçon qui vient d'être généré ou réchauffé aux tronçons chauds, puis
+     * refroidit les tronçons les moins récemment consultés s'il y en a trop.
+     * Seuls les tronçons dont toutes les modifications ont été publiées, et qui n'ont pas
+     * été consultés pendant les {@link #RETAINED_TICKS} derniers pas, peuvent être
+     * refroidis ; le tronçon ajouté ne l'est jamais.
+     *
+     * @param chunk Le tronçon à ajouter.
+     */
+    void put(Chunk chunk) {
+        chunkSize = chunk.memorySize();
+        chunk.setLastUse(tick);
+        hot.put(chunk.getIndex(), chunk);
+        recency.put(chunk.getIndex(), chunk);
+
+        Iterator<Chunk> eldest = recency.values().iterator();
+        while ((hot.size() > hotChunks) && eldest.hasNext()) {
+            Chunk candidate = eldest.next();
+            if ((candidate.getLastUse() < tick - RETAINED_TICKS) && !candidate.hasChanges()) {
+                eldest.remove();
+                hot.remove(candidate.getIndex());
+                byte[] data = deflate(candidate);
+                cold.put(candidate.getIndex(), data);
+                coldBytes += data.length;
+                evictions++;
+                evicted.accept(candidate);
+            }
+        }
+
+        Iterator<Map.Entry<Integer, byte[]>> oldest = cold.entrySet().iterator();
+        while ((getMemoryUsage() > memoryBudget) && oldest.hasNext()) {
+            Map.Entry<Integer, byte[]> entry = oldest.next();
+            oldest.remove();
+            coldBytes -= entry.getValue().length;
+            spilled.put(entry.getKey(), writeSpilled(entry.getValue()));
+            spills++;
+        }
+    }
+
+    /**
+     * Donne un tronçon déjà généré, quel que soit son niveau.
+     * Un tronçon froid ou écrit sur le disque est décodé dans un nouveau tronçon, qui ne
+     * contient que ses blocs et n'est pas réchauffé.
+     *
+     * @param index L'indice du tronçon.
+     * @return Le tronçon, ou {@code null} s'il n'a jamais été généré.
+     */
+    Chunk view(int index) {
+        Chunk chunk = hot.get(index);
+        if (chunk != null) {
+            return chunk;
+        }
+
+        byte[] data = cold.get(index);
+        if (data == null) {
+            long[] location = spilled.get(index);
+            if (location == null) {
+                return null;
+            }
+            data = readSpilled(location);
+        }
+        chunk = new Chunk(index, height);
+        inflate(data, chunk);
+        return chunk;
+    }
+
+    /**
+     * Donne les indices de tous les tronçons déjà générés, quel que soit leur niveau.
+     *
+     * @return Les indices des tronçons, par ordre croissant.
+     */
+    SortedSet<Integer> indices() {
+        SortedSet<Integer> indices = new TreeSet<>(hot.keySet());
+        indices.addAll(cold.keySet());
+        indices.addAll(spilled.keySet());
+        return indices;
+    }
+
+    /**
+     * Donne le nombre de tronçons déjà générés, quel que soit leur niveau.
+     *
+     * @return Le nombre de tronçons générés.
+     */
+    int size() {
+        return hot.size() + cold.size() + spilled.size();
+    }
+
+    /**
+     * Compresse les blocs d'un tronçon.
+     *
+     * @param chunk Le tronçon à compresser.
+     * @return Les blocs compressés.
+     */
+    private byte[] deflate(Chunk chunk) {
+        raw.clear();
+        chunk.copyBlocksTo(raw);
+        deflater.reset();
+        deflater.setInput(raw.array(), 0, raw.position());
+        deflater.finish();
+
+        int size = 0;
+        while (!deflater.finished()) {
+            if (size == compressed.length) {
+                compressed = Arrays.copyOf(compressed, 2 * size);
+            }
+            size += deflater.deflate(compressed, size, compressed.length - size);
+        }
+        return Arrays.copyOf(compressed, size);
+    }
+
+    /**
+     * Décompresse les blocs d'un tronçon.
+     *
+     * @param data  Les blocs compressés.
+     * @param chunk Le tronçon dans lequel placer les blocs.
+     */
+    private void inflate(byte[] data, Chunk chunk) {
+        inflater.reset();
+        inflater.setInput(data);
+        try {
+            int size = 0;
+            while ((size < raw.capacity()) && !inflater.finished()) {
+                size += inflater.inflate(raw.array(), size, raw.capacity() - size);
+            }
+            if ((size != raw.capacity()) || !inflater.finished()) {
+                throw new IllegalStateException("Corrupted chunk " + chunk.getIndex());
+            }
+
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted chunk " + chunk.getIndex(), e);
+        }
+
+        raw.clear();
+        chunk.copyBlocksFrom(raw);
+    }
+
+    /**
+     * Écrit des blocs compressés dans la première zone libre du fichier temporaire qui
+     * peut les contenir, ou à la fin du fichier, en le créant au besoin.
+     * Le fichier est supprimé à sa fermeture, ou à la fin du programme.
+     *
+     * @param data Les blocs compressés.
+     * @return La position et la taille des blocs dans le fichier.
+     */
+    private long[] writeSpilled(byte[] data) {
+        try {
+            if (spillFile == null) {
+                Path path = Files.createTempFile("flatcraft-chunks", ".tmp");
+                spillFile = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        StandardOpenOption.DELETE_ON_CLOSE);
+            }
+
+            long position = spillSize;
+            for (Map.Entry<Long, Long> hole : spillHoles.entrySet()) {
+                if (hole.getValue() >= data.length) {
+                    position = hole.getKey();
+                    long remaining = hole.getValue() - data.length;
+                    spillHoles.remove(position);
+                    if (remaining > 0) {
+                        spillHoles.put(position + data.length, remaining);
+                    }
+                    break;
+                }
+            }
+            spillSize = Math.max(spillSize, position + data.length);
+
+            long[] location = { position, data.length };
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                spillFile.write(buffer, position + buffer.position());
+            }
+            return location;
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Libère la zone du fichier temporaire occupée par des blocs compressés qui ont été
+     * relus, en la fusionnant avec les zones libres voisines.
+     * Si elle termine le fichier, celui-ci est raccourci.
+     *
+     * @param location La position et la taille des blocs dans le fichier.
+     */
+    private void freeSpilled(long[] location) {
+        long start = location[0];
+        long end = start + location[1];
+        Map.Entry<Long, Long> before = spillHoles.floorEntry(start);
+        if ((before != null) && (before.getKey() + before.getValue() == start)) {
+            spillHoles.remove(before.getKey());
+            start = before.getKey();
+        }
+        Long after = spillHoles.remove(end);
+        if (after != null) {
+            end += after;
+        }
+
+        if (end < spillSize) {
+            spillHoles.put(start, end - start);
+            return;
+        }
+        try {
+            spillFile.truncate(start);
+            spillSize = start;
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Ferme le fichier temporaire contenant les tronçons écrits sur le disque, qui est
+     * alors supprimé.
+     * Ces tronçons sont perdus : le cache ne doit plus être utilisé ensuite.
+     */
+    public void close() {
+        if (spillFile == null) {
+            return;
+        }
+
+        try {
+            spillFile.close();
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+
+        } finally {
+            spillFile = null;
+            spillSize = 0;
+            spillHoles.clear();
+            spilled.clear();
+        }
+    }
+
+    /**
+     * Lit des blocs compressés dans le fichier temporaire.
+     *
+     * @param location La position et la taille des blocs dans le fichier.
+     * @return Les blocs compressés.
+     */
+    private byte[] readSpilled(long[] location) {
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate((int) location[1]);
+            while (buffer.hasRemaining()) {
+                if (spillFile.read(buffer, location[0] + buffer.position()) < 0) {
+                    throw new IOException("Truncated chunk spill file!");
+                }
+            }
+            return buffer.array();
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Donne le nombre maximal de tronçons chauds.
+     *
+     * @return Le nombre maximal de tronçons chauds.
+     */
+    public int getHotChunks() {
+        return hotChunks;
+    }
+
+    /**
+     * Modifie le nombre maximal de tronçons chauds.
+     * La limite est appliquée lors du prochain chargement d'un tronçon.
+     *
+     * @param hotChunks Le nombre maximal de tronçons chauds.
+     *
+     * @throws IllegalArgumentException Si ce nombre n'est pas strictement positif.
+     */
+    public void setHotChunks(int hotChunks) {
+        if (hotChunks <= 0) {
+            throw new IllegalArgumentException("Incorrect number of hot chunks!");
+        }
+        this.hotChunks = hotChunks;
+    }
+
+    /**
+     * Donne le budget mémoire des tronçons chauds et froids, au-delà duquel les tronçons
+     * froids sont écrits sur le disque.
+     *
+     * @return Le budget mémoire, en octets.
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Modifie le budget mémoire des tronçons chauds et froids.
+     * Le budget est appliqué lors du prochain chargement d'un tronçon.
+     *
+     * @param memoryBudget Le budget mémoire, en octets.
+     */
+    public void setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Donne une estimation de la mémoire occupée par les tronçons chauds et froids.
+     *
+     * @return La mémoire occupée, en octets.
+     */
+    public long getMemoryUsage() {
+        return hot.size() * chunkSize + coldBytes;
+    }
+
+    /**
+     * Donne le nombre de tronçons chauds.
+     *
+     * @return Le nombre de tronçons chauds.
+     */
+    public int getHotCount() {
+        return hot.size();
+    }
+
+    /**
+     * Donne le nombre de tronçons froids, conservés compressés en mémoire.
+     *
+     * @return Le nombre de tronçons froids.
+     */
+    public int getColdCount() {
+        return cold.size();
+    }
+
+    /**
+     * Donne le nombre de tronçons écrits sur le disque.
+     *
+     * @return Le nombre de tronçons écrits sur le disque.
+     */
+    public int getSpilledCount() {
+        return spilled.size();
+    }
+
+    /**
+     * Donne le nombre de consultations de tronçons chauds (hors consultations successives
+     * du même tronçon).
+     *
+     * @return Le nombre de consultations de tronçons chauds.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Donne le nombre de tronçons froids réchauffés.
+     *
+     * @return Le nombre de tronçons froids réchauffés.
+     */
+    public long getColdHits() {
+        return coldHits;
+    }
+
+    /**
+     * Donne le nombre de tronçons réchauffés depuis le disque.
+     *
+     * @return Le nombre de tronçons réchauffés depuis le disque.
+     */
+    public long getDiskHits() {
+        return diskHits;
+    }
+
+    /**
+     * Donne le nombre de tronçons consultés pour la première fois, qui ont donc dû être
+     * générés (ou lus depuis une sauvegarde).
+     *
+     * @return Le nombre de tronçons consultés pour la première fois.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Donne le nombre de tronçons refroidis.
+     *
+     * @return Le nombre de tronçons refroidis.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Donne le nombre de tronçons écrits sur le disque.
+     *
+     * @return Le nombre de tronçons écrits sur le disque.
+     */
+    public long getSpills() {
+        return spills;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format(
+                "%d tronçons chauds, %d froids, %d sur disque (%.1f Mo sur %.1f Mo) ; "
+                        + "%d succès, %d réchauffés (%d depuis le disque), %d générés, %d refroidis, %d écrits sur disque",
+                hot.size(), cold.size(), spilled.size(), getMemoryUsage() / 1048576.0, memoryBudget / 1048576.0,
+                hits, coldHits + diskHits, diskHits, misses, evictions, spills);
+    }
+
+}
@@ -0,0 +1,82 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+/**
+ * L'énumération {@link Command} représente les actions que le joueur peut demander.
+ * Les commandes ne modifient pas immédiatement la partie : elles sont placées dans une
+ * {@link CommandQueue}, vidée à chaque pas de la boucle de jeu.
+ *
+ * @version 0.1.0
+ */
+public enum Command {
+
+    /**
+     * Le déplacement du joueur vers la gauche.
+     */
+    MOVE_LEFT,
+
+    /**
+     * Le déplacement du joueur vers la droite.
+     */
+    MOVE_RIGHT,
+
+    /**
+     * La montée du joueur le long d'une échelle.
+     */
+    MOVE_UP,
+
+    /**
+     * La descente du joueur le long d'une échelle.
+     */
+    MOVE_DOWN,
+
+    /**
+     * Le creusage de la cellule à gauche du joueur.
+     */
+    DIG_LEFT,
+
+    /**
+     * Le creusage de la cellule à droite du joueur.
+     */
+    DIG_RIGHT,
+
+    /**
+     * Le creusage de la cellule au-dessus du joueur.
+     */
+    DIG_UP,
+
+    /**
+     * Le creusage de la cellule en dessous du joueur.
+     */
+    DIG_DOWN,
+
+    /**
+     * La pose d'une échelle à la position du joueur.
+     */
+    PLACE_LADDER,
+
+    /**
+     * La pose d'une torche à la position du joueur.
+     */
+    PLACE_TORCH;
+
+    /**
+     * Exécute cette commande dans une partie.
+     *
+     * @param game La partie dans laquelle la commande est exécutée.
+     */
+    void execute(FlatcraftGame game) {
+        switch (this) {
+            case MOVE_LEFT -> game.moveLeft();
+            case MOVE_RIGHT -> game.moveRight();
+            case MOVE_UP -> game.moveUp();
+            case MOVE_DOWN -> game.moveDown();
+            case DIG_LEFT -> game.digLeft();
+            case DIG_RIGHT -> game.digRight();
+            case DIG_UP -> game.digUp();
+            case DIG_DOWN -> game.digDown();
+            case PLACE_LADDER -> game.placerEchelle();
+            default -> game.placerTorche();
+        }
+    }
+
+}
@@ -0,0 +1,202 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * La classe {@link CommandQueue} est la file des commandes demandées par le joueur
+ * (voir {@link Command}).
+ * Les commandes peuvent être soumises à tout moment, depuis n'importe quel fil
+ * d'exécution (par exemple à chaque évènement clavier), mais ne sont exécutées que par la
+ * boucle de jeu, à chaque pas : la partie n'est donc modifiée qu'à un seul endroit.
+ * <p>
+ * Afin que les répétitions automatiques des touches ne s'accumulent pas, une commande
+ * identique à la dernière commande en attente est ignorée.
+ * Le nombre de commandes exécutées par pas, ainsi que celui des commandes en attente,
+ * sont également limités.
+ *
+ * @version 0.1.0
+ */
+public final class CommandQueue implements ITickable {
+
+    /**
+     * Le nombre maximal de commandes exécutées à chaque pas.
+     */
+    public static final int MAX_PER_TICK = 2;
+
+    /**
+     * Le nombre maximal de commandes en attente.
+     * Les commandes soumises au-delà sont abandonnées.
+     */
+    public static final int MAX_PENDING = 8;
+
+    /**
+     * La partie dans laquelle les commandes sont exécutées.
+     */
+    private final FlatcraftGame game;
+
+    /**
+     * Les commandes en attente d'exécution.
+     */
+    private final Deque<Command> pending = new ArrayDeque<>();
+
+    /**
+     * Les écouteurs informés des commandes soumises.
+     */
+    private final List<ICommandListener> listeners = new ArrayList<>();
+
+    /**
+     * Le nombre de commandes soumises.
+     */
+    private long submitted;
+
+    /**
+     * Le nombre de commandes ignorées car identiques à la dernière commande en attente.
+     */
+    private long coalesced;
+
+    /**
+     * Le nombre de commandes abandonnées car trop de commandes étaient en attente.
+     */
+    private long dropped;
+
+    /**
+     * Le nombre de commandes exécutées.
+     */
+    private long executed;
+
+    /**
+     * Crée une nouvelle instance de CommandQueue.
+     *
+     * @param game La partie dans laquelle les commandes sont exécutées.
+     */
+    CommandQueue(FlatcraftGame game) {
+        this.game = game;
+    }
+
+    /**
+     * Soumet une commande, qui sera exécutée lors d'un prochain pas de la boucle de jeu.
+     *
+     * @param command La commande à exécuter.
+     */
+    public synchronized void submit(Command command) {
+        for (ICommandListener listener : listeners) {
+            listener.commandSubmitted(game.getGameLoop().getTicks(), command);
+        }
+
+        submitted++;
+        if (pending.peekLast() == command) {
+            coalesced++;
+
+        } else if (pending.size() >= MAX_PENDING) {
+            dropped++;
+
+        } else {
+            pending.addLast(command);
+        }
+    }
+
+    /**
+     * Ajoute un écouteur informé des commandes soumises à cette file.
+     * Les commandes lui sont transmises telles qu'elles ont été soumises, y compris
+     * celles qui sont ensuite regroupées ou abandonnées : les soumettre à nouveau aux mêmes
+     * pas d'une partie identique produit donc exactement les mêmes effets.
+     *
+     * @param listener L'écouteur à ajouter.
+     */
+    public synchronized void addListener(ICommandListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Retire un écouteur des commandes soumises à cette file.
+     *
+     * @param listener L'écouteur à retirer.
+     */
+    public synchronized void removeListener(ICommandListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Retire la prochaine commande à exécuter.
+     *
+     * @return La prochaine commande, ou {@code null} s'il n'y en a pas.
+     */
+    private synchronized Command poll() {
+        return pending.pollFirst();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see fr.univartois.butinfo.ihm.flatcraft.model.ITickable#tick(long)
+     */
+    @Override
+    public void tick(long tick) {
+        // Les commandes sont exécutées en dehors du verrou, afin de ne pas bloquer leur
+        // soumission pendant la mise à jour de la partie.
+        for (int i = 0; i < MAX_PER_TICK; i++) {
+            Command command = poll();
+            if (command == null) {
+                return;
+            }
+            command.execute(game);
+            executed++;
+        }
+    }
+
+    /**
+     * Donne le nombre de commandes en attente d'exécution.
+     *
+     * @return Le nombre de commandes en attente.
+     */
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    /**
+     * Donne le nombre de commandes soumises.
+     *
+     * @return Le nombre de commandes soumises.
+     */
+    public synchronized long getSubmitted() {
+        return submitted;
+    }
+
+    /**
+     * Donne le nombre de commandes ignorées car identiques à la dernière commande en
+     * attente.
+     *
+     * @return Le nombre de commandes regroupées.
+     */
+    public synchronized long getCoalesced() {
+        return coalesced;
+    }
+
+    /**
+     * Donne le nombre de commandes abandonnées car trop de commandes étaient en attente.
+     *
+     * @return Le nombre de commandes abandonnées.
+     */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * Donne le nombre de commandes exécutées.
+     *
+     * @return Le nombre de commandes exécutées.
+     */
+    public long getExecuted() {
+        return executed;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d commandes soumises, %d regroupées, %d abandonnées, %d exécutées",
+                submitted, coalesced, dropped, executed);
+    }
+
+}
@@ -0,0 +1,129 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+import java.util.SplittableRandom;
+
+/**
+ * La classe {@link DecorationPass} est la passe de génération ajoutant des arbres et des
+ * terrils à la surface de la carte.
+ *
+ * @version 0.1.0
+ */
+public final class DecorationPass implements IGenerationPass {
+
+    /**
+     * La hauteur maximale des arbres.
+     */
+    private static final int MAX_TREE_HEIGHT = 5;
+
+    /**
+     * La hauteur maximale des terrils.
+     */
+    private static final int MAX_SLAG_HEAP_HEIGHT = 8;
+
+    /**
+     * La fabrique de cellules utilisée pour créer les arbres et les terrils.
+     */
+    private final CellFactory factory;
+
+    /**
+     * Le nombre d'arbres à ajouter à chaque tronçon.
+     */
+    private final int nbTrees;
+
+    /**
+     * Le nombre de terrils à ajouter à chaque tronçon.
+     */
+    private final int nbSlagHeaps;
+
+    /**
+     * Crée une nouvelle instance de DecorationPass.
+     *
+     * @param factory     La fabrique de cellules utilisée pour créer les décorations.
+     * @param nbTrees     Le nombre d'arbres à ajouter à chaque tronçon.
+     * @param nbSlagHeaps Le nombre de terrils à ajouter à chaque tronçon.
+     */
+    public DecorationPass(CellFactory factory, int nbTrees, int nbSlagHeaps) {
+        this.factory = factory;
+        this.nbTrees = nbTrees;
+        this.nbSlagHeaps = nbSlagHeaps;
+    }
+
+    @Override
+    public void apply(GenerationContext context) {
+        SplittableRandom random = context.random();
+        for (int i = 0; i < nbTrees; i++) {
+            addTree(context, random);
+        }
+
+        for (int i = 0; i < nbSlagHeaps; i++) {
+            addSlagHeap(context, random);
+        }
+    }
+
+    /**
+     * Ajoute un arbre à une position aléatoire du tronçon.
+     * Les arbres ne poussent pas dans l'eau.
+     *
+     * @param context Le contexte de génération du tronçon.
+     * @param random  Le générateur de nombres pseudo-aléatoires à utiliser.
+     */
+    private void addTree(GenerationContext context, SplittableRandom random) {
+        if ((context.getToColumn() - context.getFromColumn()) < 3) {
+            // Le tronçon est trop étroit pour accueillir un arbre et ses feuilles.
+            return;
+        }
+
+        // On choisit l'endroit où placer l'arbre.
+        int treeHeight = random.nextInt(MAX_TREE_HEIGHT) + 1;
+        int col = context.getFromColumn() + random.nextInt(context.getToColumn() - context.getFromColumn() - 2) + 1;
+        int row = context.getSurface(col);
+        if (context.getBlock(row, col) == BlockRegistry.WATER) {
+            return;
+        }
+
+        // On commence par placer le tronc.
+        int trunk = factory.createTrunk().getBlockType().getId();
+        for (int i = 0; (i < treeHeight) && (row > 0); i++) {
+            context.setBlock(row, col, trunk);
+            row--;
+        }
+
+        // On ajoute ensuite les feuilles.
+        int leaves = factory.createLeaves().getBlockType().getId();
+        context.setBlock(row, col + 1, leaves);
+        context.setBlock(row, col, leaves);
+        context.setBlock(row, col - 1, leaves);
+        context.setBlock(row + 1, col + 1, leaves);
+        context.setBlock(row + 1, col - 1, leaves);
+    }
+
+    /**
+     * Ajoute un terril à une position aléatoire du tronçon.
+     * Le terril repose sur la surface de sa colonne centrale ; les parties dépassant du
+     * tronçon ne sont pas placées.
+     *
+     * @param context Le contexte de génération du tronçon.
+     * @param random  Le générateur de nombres pseudo-aléatoires à utiliser.
+     */
+    private void addSlagHeap(GenerationContext context, SplittableRandom random) {
+        int width = context.getToColumn() - context.getFromColumn();
+        if (width <= 0) {
+            return;
+        }
+
+        // On choisit l'endroit où placer le terril.
+        int heapHeight = random.nextInt(MAX_SLAG_HEAP_HEIGHT) + 1;
+        int center = context.getFromColumn() + random.nextInt(width);
+        int x = center;
+        int y = context.getSurface(center);
+
+        // On place les blocs constituant le terril, en partant de son sommet.
+        for (int h = 0; h < heapHeight; h++) {
+            for (int w = 0; w < (2 * h + 1); w++) {
+                context.setBlock(y - heapHeight + h, x + w, factory.createSubSoil(random).getBlockType().getId());
+            }
+            x--;
+        }
+    }
+
+}
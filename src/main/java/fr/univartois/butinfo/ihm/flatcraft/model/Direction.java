@@ -0,0 +1,46 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+/**
+ * L'énumération {@link Direction} représente les déplacements élémentaires d'un objet
+ * mobile sur la carte, tels que réalisés par les méthodes de {@link FlatcraftGame}.
+ *
+ * @version 0.1.0
+ */
+public enum Direction {
+
+    /**
+     * Le déplacement vers la gauche (voir {@link FlatcraftGame#moveLeft(AbstractMovable)}).
+     */
+    LEFT,
+
+    /**
+     * Le déplacement vers la droite (voir {@link FlatcraftGame#moveRight(AbstractMovable)}).
+     */
+    RIGHT,
+
+    /**
+     * La montée le long d'une échelle (voir {@link FlatcraftGame#moveUp(AbstractMovable)}).
+     */
+    UP,
+
+    /**
+     * La descente le long d'une échelle (voir {@link FlatcraftGame#moveDown(AbstractMovable)}).
+     */
+    DOWN;
+
+    /**
+     * Réalise ce déplacement pour un objet mobile.
+     *
+     * @param game    Le jeu dans lequel l'objet évolue.
+     * @param movable L'objet mobile à déplacer.
+     */
+    public void apply(FlatcraftGame game, AbstractMovable movable) {
+        switch (this) {
+            case LEFT -> game.moveLeft(movable);
+            case RIGHT -> game.moveRight(movable);
+            case UP -> game.moveUp(movable);
+            default -> game.moveDown(movable);
+        }
+    }
+
+}
@@ -0,0 +1,251 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * La classe {@link EntityRegistry} référence tous les objets mobiles présents dans une
+ * partie, et les indexe selon leur position.
+ * <p>
+ * La carte est découpée en cases carrées de {@link #BUCKET_SIZE} cellules de côté, et
+ * chaque case retient les objets mobiles qui s'y trouvent.
+ * Les recherches d'objets mobiles dans une zone ne parcourent ainsi que les cases couvrant
+ * cette zone : leur coût dépend du nombre d'objets proches, et non du nombre total
+ * d'objets dans la partie.
+ * Les objets mobiles enregistrés signalent eux-mêmes leurs déplacements à ce registre.
+ *
+ * @version 0.1.0
+ */
+public final class EntityRegistry {
+
+    /**
+     * Le logarithme en base 2 de la taille d'une case.
+     */
+    private static final int BUCKET_SHIFT = 4;
+
+    /**
+     * La taille d'une case, en nombre de cellules.
+     */
+    public static final int BUCKET_SIZE = 1 << BUCKET_SHIFT;
+
+    /**
+     * Les objets mobiles enregistrés, dans leur ordre d'enregistrement.
+     */
+    private final List<AbstractMovable> entities = new ArrayList<>();
+
+    /**
+     * Les objets mobiles enregistrés, regroupés par case.
+     */
+    private final Map<Long, List<AbstractMovable>> buckets = new HashMap<>();
+
+    /**
+     * Enregistre un objet mobile dans ce registre.
+     * Si l'objet est déjà enregistré, rien n'est fait.
+     *
+     * @param movable L'objet mobile à enregistrer.
+     */
+    public void add(AbstractMovable movable) {
+        if (movable.getRegistry() == this) {
+            return;
+        }
+        if (movable.getRegistry() != null) {
+            movable.getRegistry().remove(movable);
+        }
+
+        entities.add(movable);
+        bucketOf(movable.getRow(), movable.getColumn(), true).add(movable);
+        movable.setRegistry(this);
+    }
+
+    /**
+     * Retire un objet mobile de ce registre.
+     *
+     * @param movable L'objet mobile à retirer.
+     */
+    public void remove(AbstractMovable movable) {
+        if (movable.getRegistry() != this) {
+            return;
+        }
+
+        entities.remove(movable);
+        removeFromBucket(movable, movable.getRow(), movable.getColumn());
+        movable.setRegistry(null);
+    }
+
+    /**
+     * Met à jour l'index de ce registre après le déplacement d'un objet mobile.
+     *
+     * @param movable   L'objet mobile qui s'est déplacé.
+     * @param oldRow    La ligne où se trouvait l'objet.
+     * @param oldColumn La colonne où se trouvait l'objet.
+     */
+    void moved(AbstractMovable movable, int oldRow, int oldColumn) {
+        if ((bucket(oldRow) == bucket(movable.getRow())) && (bucket(oldColumn) == bucket(movable.getColumn()))) {
+            // L'objet n'a pas changé de case.
+            return;
+        }
+        removeFromBucket(movable, oldRow, oldColumn);
+        bucketOf(movable.getRow(), movable.getColumn(), true).add(movable);
+    }
+
+    /**
+     * Donne le nombre d'objets mobiles enregistrés.
+     *
+     * @return Le nombre d'objets mobiles enregistrés.
+     */
+    public int size() {
+        return entities.size();
+    }
+
+    /**
+     * Donne tous les objets mobiles enregistrés, dans leur ordre d'enregistrement.
+     *
+     * @return Les objets mobiles enregistrés, qui ne peuvent pas être modifiés directement.
+     */
+    public List<AbstractMovable> getAll() {
+        return Collections.unmodifiableList(entities);
+    }
+
+    /**
+     * Donne les objets mobiles se trouvant dans une cellule.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     * @return Les objets mobiles se trouvant dans la cellule.
+     */
+    public List<AbstractMovable> getAt(int row, int column) {
+        List<AbstractMovable> found = new ArrayList<>(1);
+        forEachInRectangle(row, column, row, column, found::add);
+        return found;
+    }
+
+    /**
+     * Vérifie si une cellule contient au moins un objet mobile.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     * @return Si la cellule contient un objet mobile.
+     */
+    public boolean isOccupied(int row, int column) {
+        List<AbstractMovable> bucket = bucketOf(row, column, false);
+        if (bucket != null) {
+            for (AbstractMovable movable : bucket) {
+                if ((movable.getRow() == row) && (movable.getColumn() == column)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Donne les objets mobiles se trouvant à une distance inférieure ou égale à un rayon
+     * d'une cellule.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     * @param radius Le rayon de la recherche, en nombre de cellules.
+     * @return Les objets mobiles se trouvant à portée de la cellule.
+     */
+    public List<AbstractMovable> getInRadius(int row, int column, int radius) {
+        List<AbstractMovable> found = new ArrayList<>();
+        long squaredRadius = (long) radius * radius;
+        forEachInRectangle(row - radius, column - radius, row + radius, column + radius, movable -> {
+            long dr = movable.getRow() - row;
+            long dc = movable.getColumn() - column;
+            if (dr * dr + dc * dc <= squaredRadius) {
+                found.add(movable);
+            }
+        });
+        return found;
+    }
+
+    /**
+     * Applique une action à chaque objet mobile se trouvant dans un rectangle de cellules.
+     *
+     * @param fromRow    La première ligne du rectangle.
+     * @param fromColumn La première colonne du rectangle.
+     * @param toRow      La dernière ligne du rectangle (incluse).
+     * @param toColumn   La dernière colonne du rectangle (incluse).
+     * @param action     L'action à appliquer.
+     */
+    public void forEachInRectangle(int fromRow, int fromColumn, int toRow, int toColumn,
+            Consumer<AbstractMovable> action) {
+        for (int br = bucket(fromRow); br <= bucket(toRow); br++) {
+            for (int bc = bucket(fromColumn); bc <= bucket(toColumn); bc++) {
+                List<AbstractMovable> bucket = buckets.get(key(br, bc));
+                if (bucket == null) {
+                    continue;
+                }
+
+                for (AbstractMovable movable : bucket) {
+                    if ((fromRow <= movable.getRow()) && (movable.getRow() <= toRow)
+                            && (fromColumn <= movable.getColumn()) && (movable.getColumn() <= toColumn)) {
+                        action.accept(movable);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Retire un objet mobile de la case contenant une cellule.
+     *
+     * @param movable L'objet mobile à retirer.
+     * @param row     La ligne de la cellule.
+     * @param column  La colonne de la cellule.
+     */
+    private void removeFromBucket(AbstractMovable movable, int row, int column) {
+        long key = key(bucket(row), bucket(column));
+        List<AbstractMovable> bucket = buckets.get(key);
+        if (bucket != null) {
+            bucket.remove(movable);
+            if (bucket.isEmpty()) {
+                buckets.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Donne la case contenant une cellule.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     * @param create Si la case doit être créée lorsqu'elle n'existe pas.
+     * @return La case contenant la cellule, ou {@code null} si elle n'existe pas et ne doit
+     *         pas être créée.
+     */
+    private List<AbstractMovable> bucketOf(int row, int column, boolean create) {
+        long key = key(bucket(row), bucket(column));
+        if (create) {
+            return buckets.computeIfAbsent(key, k -> new ArrayList<>(2));
+        }
+        return buckets.get(key);
+    }
+
+    /**
+     * Donne l'indice de la case contenant une coordonnée.
+     *
+     * @param coordinate La coordonnée (ligne ou colonne) d'une cellule.
+     * @return L'indice de la case correspondante.
+     */
+    private static int bucket(int coordinate) {
+        return coordinate >> BUCKET_SHIFT;
+    }
+
+    /**
+     * Calcule la clé identifiant une case.
+     *
+     * @param bucketRow    L'indice de la ligne de cases.
+     * @param bucketColumn L'indice de la colonne de cases.
+     * @return La clé de la case.
+     */
+    private static long key(int bucketRow, int bucketColumn) {
+        return ((long) bucketRow << 32) | (bucketColumn & 0xFFFFFFFFL);
+    }
+
+}
@@ -1,6 +1,6 @@
 package fr.univartois.butinfo.ihm.flatcraft.model;
 
-import java.util.Objects;
+import java.util.SplittableRandom;
 
 /**
  * La classe {@link FlatcraftGame} permet de gérer une partie du jeu Flatcraft.
@@ -10,7 +10,11 @@ import java.util.Objects;
  */
 public final class FlatcraftGame {
 
-    public static final String LADDER = "ladder";
+    /**
+     * Le nombre de pas de la boucle de jeu par seconde.
+     */
+    public static final int TICK_RATE = 20;
+
     /**
      * La largeur de la carte du jeu affichée (en pixels).
      */
@@ -22,15 +26,67 @@ public final class FlatcraftGame {
     private final int height;
 
     /**
-     * L'instance e {@link SpriteStore} utilisée pour créer les sprites du jeu.
+     * La largeur de la carte complète du jeu (en nombre de cellules).
      */
-    private final SpriteStore spriteStore;
+    private final int mapWidth;
+
+    /**
+     * Le registre des types de blocs du jeu.
+     */
+    private final BlockRegistry registry;
 
     /**
      * L'instance de {@link CellFactory} utilisée pour créer les cellules du jeu.
      */
     private final CellFactory cellFactory;
 
+    /**
+     * La graine déterminant le contenu de la carte générée.
+     */
+    private long seed = new SplittableRandom().nextLong();
+
+    /**
+     * La boucle de jeu, qui met à jour les éléments animés du jeu à fréquence fixe.
+     */
+    private final GameLoop gameLoop = new GameLoop(TICK_RATE);
+
+    /**
+     * Le registre des objets mobiles présents dans la partie.
+     */
+    private final EntityRegistry entities = new EntityRegistry();
+
+    /**
+     * La file des commandes demandées par le joueur, exécutées à chaque pas de la boucle
+     * de jeu.
+     */
+    private final CommandQueue commands = new CommandQueue(this);
+
+    /**
+     * Le générateur de nombres pseudo-aléatoires dont dérivent ceux des éléments animés de
+     * la partie, initialisé à partir de la graine afin que la partie soit reproductible.
+     */
+    private SplittableRandom random;
+
+    /**
+     * Le moteur faisant évoluer l'eau et les blocs soumis à la gravité.
+     */
+    private BlockUpdater blockUpdater;
+
+    /**
+     * Le moteur animant les mobs de la partie.
+     */
+    private final MobUpdater mobUpdater = new MobUpdater();
+
+    /**
+     * Le pipeline utilisé pour générer la carte du jeu.
+     */
+    private GenerationPipeline pipeline;
+
+    /**
+     * Le stockage des tronçons sauvegardés de la carte, s'il y en a un.
+     */
+    private IChunkStore chunkStore;
+
     /**
      * La carte du jeu, sur laquelle le joueur évolue.
      */
@@ -52,10 +108,41 @@ public final class FlatcraftGame {
      * @param height La hauteur de la carte du jeu (en pixels).
      */
     public FlatcraftGame(int width, int height) {
+        this(width, height, width);
+    }
+
+    /**
+     * Crée une nouvelle instance de fr.univartois.butinfo.ihm.flatcraft.model.FlatcraftGame,
+     * dont la carte est plus large que la partie affichée.
+     *
+     * @param width    La largeur de la carte du jeu affichée (en pixels).
+     * @param height   La hauteur de la carte du jeu (en pixels).
+     * @param mapWidth La largeur de la carte complète du jeu (en nombre de cellules).
+     */
+    public FlatcraftGame(int width, int height, int mapWidth) {
         this.width = width;
         this.height = height;
-        this.spriteStore = new SpriteStore();
-        this.cellFactory = new CellFactory(spriteStore);
+        this.mapWidth = mapWidth;
+        this.registry = new BlockRegistry();
+        this.cellFactory = new CellFactory(registry);
+    }
+
+    /**
+     * Donne la carte du jeu, sur laquelle le joueur évolue.
+     *
+     * @return La carte du jeu, ou {@code null} si la partie n'a pas été préparée.
+     */
+    public GameMap getMap() {
+        return map;
+    }
+
+    /**
+     * Donne le registre des objets mobiles présents dans la partie.
+     *
+     * @return Le registre des objets mobiles.
+     */
+    public EntityRegistry getEntities() {
+        return entities;
     }
 
     public Player getJoueur() {
@@ -80,17 +167,177 @@ public final class FlatcraftGame {
         return height;
     }
 
+    /**
+     * Donne la largeur de la carte complète du jeu (en nombre de cellules).
+     *
+     * @return La largeur de la carte complète du jeu.
+     */
+    public int getMapWidth() {
+        return mapWidth;
+    }
+
+    /**
+     * Donne la graine déterminant le contenu de la carte générée.
+     *
+     * @return La graine de la carte.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Modifie la graine déterminant le contenu de la carte générée.
+     * Deux parties préparées avec la même graine ont exactement la même carte.
+     *
+     * @param seed La nouvelle graine de la carte.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Modifie le stockage des tronçons sauvegardés de la carte, qui sont lus plutôt que
+     * générés.
+     * Cette méthode doit être appelée avant de préparer la partie.
+     *
+     * @param chunkStore Le stockage des tronçons sauvegardés.
+     */
+    public void setChunkStore(IChunkStore chunkStore) {
+        this.chunkStore = chunkStore;
+    }
+
+    /**
+     * Donne le pipeline utilisé pour générer la carte du jeu, qui permet notamment de
+     * suivre le débit de la génération.
+     *
+     * @return Le pipeline de génération, ou {@code null} si la partie n'a pas été préparée.
+     */
+    public GenerationPipeline getGenerationPipeline() {
+        return pipeline;
+    }
+
+    /**
+     * Donne la boucle de jeu, qui met à jour les éléments animés du jeu à fréquence fixe.
+     *
+     * @return La boucle de jeu.
+     */
+    public GameLoop getGameLoop() {
+        return gameLoop;
+    }
+
+    /**
+     * Donne la file des commandes demandées par le joueur.
+     * Les contrôleurs doivent y soumettre les actions du joueur plutôt que d'appeler
+     * directement les méthodes de cette classe.
+     *
+     * @return La file des commandes.
+     */
+    public CommandQueue getCommands() {
+        return commands;
+    }
+
+    /**
+     * Donne le moteur faisant évoluer l'eau et les blocs soumis à la gravité.
+     *
+     * @return Le moteur de mise à jour des blocs, ou {@code null} si la partie n'a pas été
+     *         préparée.
+     */
+    public BlockUpdater getBlockUpdater() {
+        return blockUpdater;
+    }
+
+    /**
+     * Donne le moteur animant les mobs de la partie.
+     *
+     * @return Le moteur d'animation des mobs.
+     */
+    public MobUpdater getMobUpdater() {
+        return mobUpdater;
+    }
+
+    /**
+     * Fait avancer la partie jusqu'à l'instant donné.
+     * Cette méthode doit être appelée régulièrement (par exemple à chaque image affichée).
+     *
+     * @param now L'instant actuel, en nanosecondes.
+     */
+    public void update(long now) {
+        gameLoop.update(now);
+    }
+
     /**
      * Prépare la partie de Flatcraft avant qu'elle ne démarre.
      */
     public void prepare() {
-        map = GameMapGenerator.generateMapWithTreesAndSlagHeaps(getHeight(), getWidth(), cellFactory, 5, 2);
+        random = new SplittableRandom(GameMapGenerator.mix(seed, Long.MIN_VALUE));
+        pipeline = GameMapGenerator.createPipeline(seed, cellFactory, 5, 2);
+        map = new GameMap(getHeight(), getMapWidth(), 2 * getHeight() / 3, registry, pipeline);
+        map.setChunkStore(chunkStore);
+
+        // Les tronçons visibles autour du point d'apparition du joueur sont générés en
+        // parallèle avant le premier affichage, plutôt qu'un par un lors de leur
+        // première consultation.
+        int spawn = getMapWidth() / 2;
+        int margin = getWidth() + Chunk.WIDTH;
+        map.generateChunks(spawn - margin, spawn + margin);
         controleur.initGame(map);
-        joueur = new Player(this, spriteStore.createSprite("player"));
-        joueur.setRow(map.getSoilHeight() - 1);
-        joueur.setColumn(0);
+
+        // Le cache des tronçons suit les pas de la boucle, afin de ne pas refroidir les
+        // tronçons utilisés récemment.
+        // Les tronçons autour du joueur (jusqu'à une largeur d'écran de part et d'autre)
+        // sont chargés à chaque pas par le modèle, et non lorsque l'affichage les consulte.
+        // Les modifications de la carte sont publiées au début de chaque pas, quel que soit
+        // le rythme de l'affichage : la partie ne dépend ainsi que de la graine et des
+        // commandes du joueur.
+        gameLoop.add(map.getChunkCache());
+        gameLoop.add(tick -> map.loadChunks(joueur.getColumn() - getWidth(), joueur.getColumn() + getWidth() + 1));
+        gameLoop.add(tick -> map.flushChanges());
+        gameLoop.add(commands);
+        blockUpdater = new BlockUpdater(map);
+        map.addListener(blockUpdater);
+        gameLoop.add(blockUpdater);
+        gameLoop.add(mobUpdater);
+        joueur = new Player(this, "player");
+
+        // Les échelles et les torches ne se trouvent pas sur la carte : le joueur commence
+        // donc la partie avec une pile de chacune.
+        Inventory inventaire = joueur.getInventaire();
+        inventaire.setStack(0, new ItemStack(registry.get(BlockRegistry.LADDER).getResource(), Inventory.MAX_STACK));
+        inventaire.setStack(1, new ItemStack(registry.get(BlockRegistry.TORCH).getResource(), Inventory.MAX_STACK));
+
+        // Le joueur apparaît juste au-dessus du sol, dont la hauteur varie avec le relief.
+        joueur.setColumn(getMapWidth() / 2);
+        joueur.setRow(getSpawnRow(joueur.getColumn()));
+        entities.add(joueur);
         controleur.afficherMovable(joueur);
-        controleur.setHealthProperty(joueur.getHealthProperty());
+        joueur.addHealthListener((movable, health) -> controleur.afficherSante(health));
+        controleur.afficherSante(joueur.getHealth());
+    }
+
+    /**
+     * Crée un nouveau générateur de nombres pseudo-aléatoires pour un élément animé de la
+     * partie.
+     * Les générateurs successifs ne dépendent que de la graine de la partie.
+     *
+     * @return Le nouveau générateur.
+     */
+    SplittableRandom splitRandom() {
+        return random.split();
+    }
+
+    /**
+     * Déplace directement un objet mobile vers une cellule de la carte, sans tenir compte
+     * des règles de déplacement (par exemple pour restaurer une partie sauvegardée).
+     *
+     * @param movable L'objet mobile à déplacer.
+     * @param row     La ligne de la cellule de destination.
+     * @param column  La colonne de la cellule de destination.
+     */
+    public void moveTo(AbstractMovable movable, int row, int column) {
+        controleur.masquerMovable(movable);
+        movable.setRow(row);
+        movable.setColumn(column);
+        controleur.afficherMovable(movable);
     }
 
     /**
@@ -150,10 +397,10 @@ public final class FlatcraftGame {
      * @param colonneCible La colonne sur laquelle le movable doit être déplacé.
      */
     private void avancer(AbstractMovable movable, int rangee, int colonneCible) {
-        // Si c'est vide à droite ou si c'est une échelle, le movable avance à droite.
-        if (map.getAt(rangee, colonneCible).getResource() == null || map.getAt(rangee, colonneCible).getResource().getName().equals(LADDER)) {
+        // Si le bloc à droite n'est pas solide (vide ou échelle), le movable avance à droite.
+        if (!map.hasFlag(rangee, colonneCible, BlockType.SOLID)) {
             movable.setColumn(colonneCible);
-            move(joueur);
+            move(movable);
         }
         // S'il y a un bloc à droite, mais pas en haut à droite, le movable grimpe sur le bloc.
         else {
@@ -170,7 +417,8 @@ public final class FlatcraftGame {
      */
     private void grimper(AbstractMovable movable, int row, int colonneCible) {
         int rowAbove = row - 1;
-        boolean blocGrimpable = map.getAt(row, colonneCible).getResource() != null && (map.getAt(rowAbove, colonneCible).getResource() == null || map.getAt(rowAbove, colonneCible).getResource().getName().equals(LADDER));
+        boolean blocGrimpable = (rowAbove >= 0) && map.hasFlag(row, colonneCible, BlockType.SOLID)
+                && !map.hasFlag(rowAbove, colonneCible, BlockType.SOLID);
         if (blocGrimpable) {
             movable.setColumn(colonneCible);
             movable.setRow(rowAbove);
@@ -194,8 +442,7 @@ public final class FlatcraftGame {
         int rowAbove = row - 1;
 
         if (rowAbove >= 0) {
-            Resource celluleActuelle = map.getAt(row, movable.getColumn()).getResource();
-            boolean deplacementPossible = isMoveUpPossible(movable, rowAbove, celluleActuelle);
+            boolean deplacementPossible = isMoveUpPossible(movable, row, rowAbove);
 
             if (deplacementPossible) {
                 controleur.masquerMovable(movable);
@@ -208,19 +455,17 @@ public final class FlatcraftGame {
     /**
      * Vérifie que le déplacement vers le haut est possible.
      *
-     * @param movable         Le movable qui veut aller vers le haut.
-     * @param rowAbove        La rangée actuelle.
-     * @param celluleActuelle La cellule sur laquelle se trouve le movable.
+     * @param movable  Le movable qui veut aller vers le haut.
+     * @param row      La rangée actuelle.
+     * @param rowAbove La rangée au-dessus du movable.
      * @return Si le movable peut se déplacer vers le haut.
      */
-    private boolean isMoveUpPossible(AbstractMovable movable, int rowAbove, Resource celluleActuelle) {
-        Resource celluleAuDessus = map.getAt(rowAbove, movable.getColumn()).getResource();
-
-        // Vérifie si la cellule au-dessus est null, ou que c'est une échelle.
-        boolean celluleAuDessusDisponible = celluleAuDessus == null || Objects.equals(celluleAuDessus.getName(), LADDER);
+    private boolean isMoveUpPossible(AbstractMovable movable, int row, int rowAbove) {
+        // Vérifie si la cellule au-dessus n'est pas solide (vide ou échelle).
+        boolean celluleAuDessusDisponible = !map.hasFlag(rowAbove, movable.getColumn(), BlockType.SOLID);
 
         // Vérifie si la cellule actuelle est une échelle.
-        boolean celluleActuelleValide = celluleActuelle != null && Objects.equals(celluleActuelle.getName(), LADDER);
+        boolean celluleActuelleValide = map.hasFlag(row, movable.getColumn(), BlockType.CLIMBABLE);
 
         return celluleActuelleValide && celluleAuDessusDisponible;
     }
@@ -238,10 +483,8 @@ public final class FlatcraftGame {
         int row = movable.getRow();
         int rowBelow = row + 1;
         if (rowBelow < map.getHeight()) {
-            Resource celluleEnDessous = map.getAt(rowBelow, movable.getColumn()).getResource();
-
             // Vérifie si la cellule est une échelle.
-            boolean celluleEnDessousValide = Objects.equals(celluleEnDessous.getName(), LADDER);
+            boolean celluleEnDessousValide = map.hasFlag(rowBelow, movable.getColumn(), BlockType.CLIMBABLE);
 
             if (celluleEnDessousValide) {
                 controleur.masquerMovable(movable);
@@ -268,17 +511,12 @@ public final class FlatcraftGame {
      * @param movable L'objet à déplacer.
      */
     private void move(AbstractMovable movable) {
-        // On applique la gravité.
-        Cell currentCell = getCellOf(movable);
-
+        // On applique la gravité : l'objet tombe jusqu'au premier bloc solide en dessous de lui.
         controleur.masquerMovable(movable);
 
-        // Boucle qui déplace le personnage vers le bas jusqu'à ce qu'il soit positionné sur une ressource non nulle.
-        for (int row = currentCell.getRow() + 1; row < map.getHeight(); row++) {
-            Cell below = map.getAt(row, currentCell.getColumn());
-            if (!below.move(movable)) {
-                break;
-            }
+        int landing = map.getNextSolidRow(movable.getRow() + 1, movable.getColumn()) - 1;
+        if (landing > movable.getRow()) {
+            movable.setRow(landing);
         }
 
         controleur.afficherMovable(movable);
@@ -323,17 +561,74 @@ public final class FlatcraftGame {
     }
 
     /**
-     * Retire un objet mobile du jeu.
+     * Fait apparaître un nouveau mob sur la carte, juste au-dessus du sol, et l'anime.
+     *
+     * @param spriteName Le nom du sprite représentant le mob.
+     * @param column     La colonne où le mob apparaît.
+     * @return Le mob ajouté au jeu.
+     */
+    public Mob spawnMob(String spriteName, int column) {
+        Mob mob = new Mob(this, spriteName, 3);
+        mob.setColumn(column);
+        mob.setRow(getSpawnRow(column));
+        entities.add(mob);
+        controleur.afficherMovable(mob);
+        mob.animate();
+        return mob;
+    }
+
+    /**
+     * Donne la ligne où un objet mobile apparaissant dans une colonne doit être placé,
+     * c'est-à-dire juste au-dessus du premier bloc solide de cette colonne.
+     *
+     * @param column La colonne où l'objet mobile apparaît.
+     * @return La ligne où l'objet mobile doit être placé.
+     */
+    private int getSpawnRow(int column) {
+        return map.getNextSolidRow(1, column) - 1;
+    }
+
+    /**
+     * Retire un objet mobile de la partie.
      *
      * @param movable L'objet mobile à retirer.
      */
     public void removeMovable(AbstractMovable movable) {
+        entities.remove(movable);
         controleur.masquerMovable(movable);
     }
 
+    /**
+     * Place une échelle, prise dans l'inventaire du joueur, à la position du joueur.
+     */
     public void placerEchelle() {
-        Cell currentCell = getCellOf(joueur);
-        currentCell.setResource(new Resource(LADDER, spriteStore.createSprite(LADDER)));
+        placer(BlockRegistry.LADDER);
+    }
+
+    /**
+     * Place une torche, prise dans l'inventaire du joueur, à la position du joueur, afin
+     * d'éclairer les alentours.
+     */
+    public void placerTorche() {
+        placer(BlockRegistry.TORCH);
+    }
+
+    /**
+     * Place un bloc pris dans l'inventaire du joueur à la position du joueur.
+     * Le bloc n'est placé que si la cellule du joueur peut être remplacée (si elle est vide,
+     * par exemple) et si l'inventaire du joueur contient la ressource correspondante, qui
+     * en est alors retirée.
+     *
+     * @param block L'identifiant du type de bloc à placer.
+     */
+    private void placer(int block) {
+        Resource resource = registry.get(block).getResource();
+        int row = joueur.getRow();
+        int column = joueur.getColumn();
+        if (map.getBlockType(row, column).isReplaceable() && joueur.getInventaire().contains(resource)) {
+            joueur.removeFromInventory(resource);
+            map.setBlock(row, column, block);
+        }
     }
 
     /**
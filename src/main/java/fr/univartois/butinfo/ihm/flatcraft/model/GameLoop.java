@@ -0,0 +1,258 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * La classe {@link GameLoop} représente la boucle de jeu de Flatcraft.
+ * Elle met à jour, à fréquence fixe et dans leur ordre d'enregistrement, tous les éléments
+ * du jeu qui y sont enregistrés.
+ * <p>
+ * La boucle ne possède pas son propre minuteur : elle est avancée par des appels à
+ * {@link #update(long)}, qui exécutent autant de pas que le temps écoulé le demande.
+ * Si le jeu prend du retard, le nombre de pas rattrapés lors d'un même appel est borné,
+ * et les pas en excès sont abandonnés plutôt que de ralentir davantage le jeu.
+ *
+ * @version 0.1.0
+ */
+public final class GameLoop {
+
+    /**
+     * Le nombre maximal de pas exécutés lors d'un même appel à {@link #update(long)}.
+     */
+    private static final int MAX_CATCH_UP = 5;
+
+    /**
+     * Le nombre de pas exécutés par seconde de jeu.
+     */
+    private final int tickRate;
+
+    /**
+     * La durée d'un pas, en nanosecondes.
+     */
+    private final long tickNanos;
+
+    /**
+     * Les éléments mis à jour à chaque pas, dans l'ordre.
+     */
+    private final List<ITickable> tickables = new ArrayList<>();
+
+    /**
+     * Les éléments à ajouter au début du prochain pas.
+     */
+    private final List<ITickable> added = new ArrayList<>();
+
+    /**
+     * Les éléments à retirer au début du prochain pas.
+     */
+    private final List<ITickable> removed = new ArrayList<>();
+
+    /**
+     * Le facteur d'accélération du temps de jeu par rapport au temps réel.
+     */
+    private double speed = 1;
+
+    /**
+     * L'instant du dernier appel à {@link #update(long)}, en nanosecondes, ou {@code -1}
+     * si la boucle n'a pas encore été mise à jour.
+     */
+    private long lastUpdate = -1;
+
+    /**
+     * Le temps de jeu écoulé qui n'a pas encore été consommé par des pas, en nanosecondes.
+     */
+    private long accumulator;
+
+    /**
+     * Le nombre de pas exécutés.
+     */
+    private long ticks;
+
+    /**
+     * Le nombre de pas abandonnés parce que le jeu avait trop de retard.
+     */
+    private long skippedTicks;
+
+    /**
+     * La durée du dernier pas exécuté, en nanosecondes.
+     */
+    private long lastTickNanos;
+
+    /**
+     * La durée maximale d'un pas, en nanosecondes.
+     */
+    private long maxTickNanos;
+
+    /**
+     * La durée totale des pas exécutés, en nanosecondes.
+     */
+    private long totalTickNanos;
+
+    /**
+     * Crée une nouvelle instance de GameLoop.
+     *
+     * @param tickRate Le nombre de pas exécutés par seconde de jeu.
+     */
+    public GameLoop(int tickRate) {
+        this.tickRate = tickRate;
+        this.tickNanos = TimeUnit.SECONDS.toNanos(1) / tickRate;
+    }
+
+    /**
+     * Donne le nombre de pas exécutés par seconde de jeu.
+     *
+     * @return La fréquence de cette boucle.
+     */
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    /**
+     * Enregistre un élément dans cette boucle.
+     * Il sera mis à jour à partir du prochain pas, après les éléments déjà enregistrés.
+     *
+     * @param tickable L'élément à enregistrer.
+     */
+    public void add(ITickable tickable) {
+        removed.remove(tickable);
+        added.add(tickable);
+    }
+
+    /**
+     * Retire un élément de cette boucle.
+     * Il ne sera plus mis à jour à partir du prochain pas.
+     *
+     * @param tickable L'élément à retirer.
+     */
+    public void remove(ITickable tickable) {
+        added.remove(tickable);
+        removed.add(tickable);
+    }
+
+    /**
+     * Modifie le facteur d'accélération du temps de jeu par rapport au temps réel.
+     * Par exemple, avec un facteur de {@code 2}, le jeu s'exécute deux fois plus vite.
+     *
+     * @param speed Le nouveau facteur d'accélération.
+     */
+    public void setSpeed(double speed) {
+        this.speed = speed;
+    }
+
+    /**
+     * Fait avancer cette boucle jusqu'à l'instant donné, en exécutant autant de pas que
+     * le temps écoulé depuis le dernier appel le demande.
+     *
+     * @param now L'instant actuel, en nanosecondes.
+     */
+    public void update(long now) {
+        if (lastUpdate < 0) {
+            lastUpdate = now;
+            return;
+        }
+
+        accumulator += (long) ((now - lastUpdate) * speed);
+        lastUpdate = now;
+
+        int executed = 0;
+        while ((accumulator >= tickNanos) && (executed < MAX_CATCH_UP)) {
+            step();
+            accumulator -= tickNanos;
+            executed++;
+        }
+
+        if (accumulator >= tickNanos) {
+            // Le jeu a trop de retard : les pas restants sont abandonnés.
+            skippedTicks += accumulator / tickNanos;
+            accumulator %= tickNanos;
+        }
+    }
+
+    /**
+     * Exécute immédiatement un certain nombre de pas, sans tenir compte du temps écoulé.
+     * Cela permet notamment de faire avancer le jeu plus vite que le temps réel.
+     *
+     * @param count Le nombre de pas à exécuter.
+     */
+    public void runTicks(int count) {
+        for (int i = 0; i < count; i++) {
+            step();
+        }
+    }
+
+    /**
+     * Exécute un pas de cette boucle, en mettant à jour tous les éléments enregistrés.
+     */
+    private void step() {
+        tickables.removeAll(removed);
+        removed.clear();
+        tickables.addAll(added);
+        added.clear();
+
+        long start = System.nanoTime();
+        for (ITickable tickable : tickables) {
+            tickable.tick(ticks);
+        }
+        ticks++;
+
+        lastTickNanos = System.nanoTime() - start;
+        maxTickNanos = Math.max(maxTickNanos, lastTickNanos);
+        totalTickNanos += lastTickNanos;
+    }
+
+    /**
+     * Donne le nombre de pas exécutés.
+     *
+     * @return Le nombre de pas exécutés.
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Donne le nombre de pas abandonnés parce que le jeu avait trop de retard.
+     *
+     * @return Le nombre de pas abandonnés.
+     */
+    public long getSkippedTicks() {
+        return skippedTicks;
+    }
+
+    /**
+     * Donne la durée du dernier pas exécuté.
+     *
+     * @return La durée du dernier pas, en nanosecondes.
+     */
+    public long getLastTickNanos() {
+        return lastTickNanos;
+    }
+
+    /**
+     * Donne la durée maximale d'un pas.
+     *
+     * @return La durée maximale d'un pas, en nanosecondes.
+     */
+    public long getMaxTickNanos() {
+        return maxTickNanos;
+    }
+
+    /**
+     * Donne la durée moyenne d'un pas.
+     *
+     * @return La durée moyenne d'un pas, en nanosecondes.
+     */
+    public double getAverageTickNanos() {
+        if (ticks == 0) {
+            return 0;
+        }
+        return (double) totalTickNanos / ticks;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d pas exécutés, %d abandonnés (moyenne %.3f ms, max %.3f ms)",
+                ticks, skippedTicks, getAverageTickNanos() / 1e6, maxTickNanos / 1e6);
+    }
+
+}
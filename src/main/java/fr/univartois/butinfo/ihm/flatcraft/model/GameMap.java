@@ -14,9 +14,23 @@ package fr.univartois.butinfo.ihm.flatcraft.model; /**
  * Tous droits réservés.
  */
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+
 /**
  * La classe {@link GameMap} représente une carte de jeu pour Flatcraft.
- * Elle est composée de cellules regroupées dans un tableau à deux dimensions.
+ * Elle est composée de tronçons de colonnes (voir {@link Chunk}), qui ne sont générés que
+ * la première fois que l'une de leurs cellules est consultée.
+ * La mémoire utilisée et le coût de la génération dépendent donc de la partie de la carte
+ * effectivement explorée, et non de sa largeur.
+ * <p>
+ * Le contenu de chaque cellule est stocké sous la forme de l'identifiant de son type de
+ * bloc dans le {@link BlockRegistry} de la carte.
+ * Les objets {@link Cell} ne sont que des vues créées à la demande sur ce stockage.
  *
  * @author Daniel Le Berre
  * @author Romain Wallon
@@ -38,9 +52,54 @@ public final class GameMap {
      */
     private final int soilHeight;
     /**
-     * Les cellules composant cette carte.
+     * Le registre des types de blocs pouvant occuper les cellules de cette carte.
+     */
+    private final BlockRegistry registry;
+    /**
+     * Le générateur utilisé pour remplir les tronçons de cette carte.
+     */
+    private final IChunkGenerator generator;
+    /**
+     * Les tronçons de cette carte déjà générés.
+     */
+    private final ChunkCache chunks;
+    /**
+     * Les écouteurs informés des modifications du contenu de cette carte.
+     */
+    private final List<IMapListener> listeners = new ArrayList<>();
+    /**
+     * Les tronçons contenant des cellules modifiées depuis la dernière publication des
+     * modifications.
+     */
+    private final List<Chunk> dirtyChunks = new ArrayList<>();
+    /**
+     * L'ensemble des modifications de blocs publié aux écouteurs, réutilisé d'une
+     * publication à l'autre.
+     */
+    private final MapChanges changes = new MapChanges();
+    /**
+     * L'ensemble des modifications d'éclairage publié aux écouteurs, réutilisé d'une
+     * publication à l'autre.
+     */
+    private final MapChanges lightChanges = new MapChanges();
+    /**
+     * Le moteur calculant l'éclairage de cette carte.
+     */
+    private final LightEngine lightEngine;
+    /**
+     * Le graphe des déplacements possibles sur cette carte, utilisé pour la recherche de
+     * chemins.
      */
-    private final Cell[][] cells;
+    private final NavigationGrid navigation;
+    /**
+     * Le stockage des tronçons sauvegardés, consulté avant de générer un tronçon.
+     */
+    private IChunkStore store;
+    /**
+     * Le dernier tronçon consulté, conservé pour éviter une recherche dans la table lors
+     * d'accès successifs au même tronçon.
+     */
+    private Chunk lastChunk;
 
     /**
      * Crée une nouvelle instance de fr.univartois.butinfo.ihm.flatcraft.model.GameMap.
@@ -48,28 +107,23 @@ public final class GameMap {
      * @param height La hauteur de la carte, en nombre de cellules.
      * @param width La largeur de la carte, en nombre de cellules.
      * @param soilHeight La hauteur à laquelle se situe la surface du sol.
+     * @param registry Le registre des types de blocs pouvant occuper les cellules de la
+     *        carte.
+     * @param generator Le générateur utilisé pour remplir les tronçons de la carte.
      */
-    public GameMap(int height, int width, int soilHeight) {
+    public GameMap(int height, int width, int soilHeight, BlockRegistry registry, IChunkGenerator generator) {
         if ((width <= 0) || (height <= 0)) {
             throw new IllegalArgumentException("Incorrect map dimension!");
         }
 
-        this.cells = new Cell[height][width];
         this.height = height;
         this.width = width;
         this.soilHeight = soilHeight;
-        init();
-    }
-
-    /**
-     * Initialise cette carte en la remplissant de cellules initialement vides.
-     */
-    private void init() {
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                cells[i][j] = new Cell(i, j);
-            }
-        }
+        this.registry = registry;
+        this.generator = generator;
+        this.chunks = new ChunkCache(height, this::chunkEvicted);
+        this.lightEngine = new LightEngine(this);
+        this.navigation = new NavigationGrid(this);
     }
 
     /**
@@ -100,8 +154,27 @@ public final class GameMap {
         return soilHeight;
     }
 
+    /**
+     * Donne le registre des types de blocs pouvant occuper les cellules de cette carte.
+     *
+     * @return Le registre des types de blocs.
+     */
+    public BlockRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Donne le nombre de tronçons de cette carte ayant déjà été générés.
+     *
+     * @return Le nombre de tronçons générés.
+     */
+    public int getGeneratedChunkCount() {
+        return chunks.size();
+    }
+
     /**
      * Donne la cellule à la position donnée sur cette carte.
+     * La cellule retournée est une vue sur le contenu de la carte à cette position.
      *
      * @param row La ligne de la cellule à récupérer.
      * @param column La colonne de la cellule à récupérer.
@@ -112,10 +185,8 @@ public final class GameMap {
      *         carte.
      */
     public Cell getAt(int row, int column) {
-        if ((row < 0) || (height <= row) || (column < 0) || (width <= column)) {
-            throw new IllegalArgumentException("Incorrect cell location!");
-        }
-        return cells[row][column];
+        checkLocation(row, column);
+        return new Cell(this, row, column);
     }
 
     /**
@@ -129,10 +200,602 @@ public final class GameMap {
      *         carte.
      */
     public void setAt(int row, int column, Cell cell) {
+        setBlock(row, column, cell.getBlockType().getId());
+    }
+
+    /**
+     * Donne l'identifiant du type de bloc occupant la cellule à la position donnée.
+     * Si le tronçon contenant cette cellule n'a pas encore été généré, il l'est
+     * immédiatement.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     *
+     * @return L'identifiant du type de bloc de la cellule.
+     *
+     * @throws IllegalArgumentException Si la position donnée est en dehors de cette
+     *         carte.
+     */
+    public int getBlock(int row, int column) {
+        checkLocation(row, column);
+        return getChunk(column).getBlock(row, column);
+    }
+
+    /**
+     * Donne le type de bloc occupant la cellule à la position donnée.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     *
+     * @return Le type de bloc de la cellule.
+     */
+    public BlockType getBlockType(int row, int column) {
+        return registry.get(getBlock(row, column));
+    }
+
+    /**
+     * Vérifie si le type de bloc occupant la cellule à la position donnée possède un
+     * indicateur donné.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     * @param flag L'indicateur à vérifier (voir {@link BlockType}).
+     *
+     * @return Si le bloc de la cellule possède l'indicateur.
+     */
+    public boolean hasFlag(int row, int column, int flag) {
+        return registry.hasFlag(getBlock(row, column), flag);
+    }
+
+    /**
+     * Modifie le type de bloc occupant la cellule à la position donnée.
+     *
+     * @param row La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     * @param block L'identifiant du nouveau type de bloc de la cellule.
+     *
+     * @throws IllegalArgumentException Si la position donnée est en dehors de cette
+     *         carte, ou si aucun type de bloc n'a l'identifiant donné.
+     */
+    public void setBlock(int row, int column, int block) {
+        checkLocation(row, column);
+        if ((block < 0) || (registry.size() <= block)) {
+            throw new IllegalArgumentException("Unknown block type " + block);
+        }
+
+        Chunk chunk = getChunk(column);
+        int previous = chunk.setBlock(row, column, block);
+        if (previous != block) {
+            chunk.setSolid(row, column, registry.hasFlag(block, BlockType.SOLID));
+            markChanged(chunk, row, column);
+            if ((registry.getLightEmission(previous) != registry.getLightEmission(block))
+                    || (registry.getLightOpacity(previous) != registry.getLightOpacity(block))) {
+                lightEngine.blockChanged(row, column);
+            }
+            if ((registry.hasFlag(previous, BlockType.SOLID) != registry.hasFlag(block, BlockType.SOLID))
+                    || (registry.hasFlag(previous, BlockType.CLIMBABLE) != registry.hasFlag(block, BlockType.CLIMBABLE))) {
+                navigation.blockChanged(column);
+            }
+        }
+    }
+
+    /**
+     * Marque le bloc d'une cellule de cette carte comme modifié, afin qu'elle fasse partie
+     * de la prochaine publication des modifications.
+     *
+     * @param chunk  Le tronçon contenant la cellule.
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     */
+    private void markChanged(Chunk chunk, int row, int column) {
+        if (chunk.markDirty(row, column)) {
+            dirtyChunks.add(chunk);
+        }
+    }
+
+    /**
+     * Marque l'éclairage d'une cellule de cette carte comme modifié, afin qu'elle fasse
+     * partie de la prochaine publication des modifications d'éclairage.
+     *
+     * @param chunk  Le tronçon contenant la cellule.
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     */
+    void markLightChanged(Chunk chunk, int row, int column) {
+        if (chunk.markLightDirty(row, column)) {
+            dirtyChunks.add(chunk);
+        }
+    }
+
+    /**
+     * Donne le niveau de lumière du ciel d'une cellule de cette carte.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     * @return Le niveau de lumière du ciel, entre {@code 0} et {@link LightEngine#MAX_LEVEL}.
+     */
+    public int getSkyLight(int row, int column) {
+        checkLocation(row, column);
+        return getChunk(column).getLight(LightEngine.SKY, row, column);
+    }
+
+    /**
+     * Donne le niveau de lumière émise par les blocs d'une cellule de cette carte.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     * @return Le niveau de lumière des blocs, entre {@code 0} et {@link LightEngine#MAX_LEVEL}.
+     */
+    public int getBlockLight(int row, int column) {
+        checkLocation(row, column);
+        return getChunk(column).getLight(LightEngine.BLOCK, row, column);
+    }
+
+    /**
+     * Donne le niveau de lumière d'une cellule de cette carte, c'est-à-dire le plus élevé
+     * de ses niveaux de lumière du ciel et des blocs.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     * @return Le niveau de lumière, entre {@code 0} et {@link LightEngine#MAX_LEVEL}.
+     */
+    public int getLight(int row, int column) {
+        checkLocation(row, column);
+        Chunk chunk = getChunk(column);
+        return Math.max(chunk.getLight(LightEngine.SKY, row, column), chunk.getLight(LightEngine.BLOCK, row, column));
+    }
+
+    /**
+     * Donne l'identifiant du type de bloc d'une cellule, sans charger ni générer son
+     * tronçon : une cellule d'un tronçon qui n'est pas chargé est considérée comme vide.
+     * Cette méthode est destinée à l'affichage, qui ne doit pas modifier le contenu de la
+     * carte : la partie ne dépend ainsi pas de ce qui est affiché.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     * @return L'identifiant du type de bloc de la cellule, ou {@link BlockRegistry#AIR} si
+     *         son tronçon n'est pas chargé.
+     *
+     * @throws IllegalArgumentException Si la position donnée est en dehors de cette
+     *         carte.
+     */
+    public int getLoadedBlock(int row, int column) {
+        checkLocation(row, column);
+        Chunk chunk = loadedChunk(column);
+        return (chunk == null) ? BlockRegistry.AIR : chunk.getBlock(row, column);
+    }
+
+    /**
+     * Donne le niveau de lumière d'une cellule, sans charger ni générer son tronçon : une
+     * cellule d'un tronçon qui n'est pas chargé est considérée comme éclairée par le ciel.
+     * Comme {@link #getLoadedBlock(int, int)}, cette méthode est destinée à l'affichage.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     * @return Le niveau de lumière, entre {@code 0} et {@link LightEngine#MAX_LEVEL}.
+     *
+     * @throws IllegalArgumentException Si la position donnée est en dehors de cette
+     *         carte.
+     */
+    public int getLoadedLight(int row, int column) {
+        checkLocation(row, column);
+        Chunk chunk = loadedChunk(column);
+        if (chunk == null) {
+            return LightEngine.MAX_LEVEL;
+        }
+        return Math.max(chunk.getLight(LightEngine.SKY, row, column), chunk.getLight(LightEngine.BLOCK, row, column));
+    }
+
+    /**
+     * Donne le moteur calculant l'éclairage de cette carte.
+     *
+     * @return Le moteur d'éclairage.
+     */
+    public LightEngine getLightEngine() {
+        return lightEngine;
+    }
+
+    /**
+     * Donne le graphe des déplacements possibles sur cette carte.
+     *
+     * @return Le graphe de navigation.
+     */
+    public NavigationGrid getNavigation() {
+        return navigation;
+    }
+
+    /**
+     * Donne la première ligne d'une colonne, à partir d'une ligne donnée, contenant un bloc
+     * solide.
+     * L'ensemble des cellules solides de chaque colonne étant tenu à jour à chaque
+     * modification, cette recherche ne parcourt pas les cellules une à une.
+     *
+     * @param row    La ligne à partir de laquelle chercher (incluse).
+     * @param column La colonne dans laquelle chercher.
+     * @return La première ligne solide à partir de {@code row}, ou {@link #getHeight()}
+     *         s'il n'y en a pas.
+     */
+    public int getNextSolidRow(int row, int column) {
+        checkLocation(0, column);
+        return getChunk(column).nextSolidRow(Math.max(row, 0), column);
+    }
+
+    /**
+     * Donne la ligne de la surface d'une colonne, c'est-à-dire celle de son premier bloc
+     * solide.
+     *
+     * @param column La colonne dont on cherche la surface.
+     * @return La ligne de la surface, ou {@link #getHeight()} si la colonne ne contient
+     *         aucun bloc solide.
+     */
+    public int getSurfaceRow(int column) {
+        return getNextSolidRow(0, column);
+    }
+
+    /**
+     * Modifie le stockage des tronçons sauvegardés de cette carte.
+     * Les tronçons qui y figurent sont lus plutôt que générés, la première fois que l'une
+     * de leurs cellules est consultée.
+     * Cette méthode doit être appelée avant la première consultation de la carte.
+     *
+     * @param store Le stockage des tronçons sauvegardés, ou {@code null} pour générer tous
+     *        les tronçons.
+     */
+    public void setChunkStore(IChunkStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Donne le cache contenant les tronçons déjà générés de cette carte, qui permet
+     * notamment de régler la mémoire qu'ils occupent.
+     *
+     * @return Le cache des tronçons.
+     */
+    public ChunkCache getChunkCache() {
+        return chunks;
+    }
+
+    /**
+     * Applique une action à chacun des tronçons déjà générés (ou lus) de cette carte, par
+     * ordre croissant d'indice.
+     *
+     * @param action L'action à appliquer.
+     */
+    public void forEachLoadedChunk(Consumer<IChunkView> action) {
+        forEachLoadedChunk(index -> true, action);
+    }
+
+    /**
+     * Applique une action à certains des tronçons déjà générés (ou lus) de cette carte, par
+     * ordre croissant d'indice.
+     * Les tronçons refroidis par le {@link ChunkCache} sont décodés le temps de l'action,
+     * sans être réchauffés.
+     *
+     * @param filter Le filtre sélectionnant les indices des tronçons concernés.
+     * @param action L'action à appliquer.
+     */
+    public void forEachLoadedChunk(IntPredicate filter, Consumer<IChunkView> action) {
+        for (int index : chunks.indices()) {
+            if (filter.test(index)) {
+                action.accept(chunks.view(index));
+            }
+        }
+    }
+
+    /**
+     * Calcule une empreinte du contenu de cette carte, c'est-à-dire des types de blocs de
+     * tous ses tronçons déjà générés.
+     * Deux cartes ayant la même empreinte ont, selon toute vraisemblance, le même contenu :
+     * cela permet notamment de vérifier qu'une partie rejouée se termine comme la partie
+     * enregistrée.
+     *
+     * @return L'empreinte du contenu de cette carte.
+     */
+    public long checksum() {
+        long hash = 0xCBF29CE484222325L;
+        for (int index : chunks.indices()) {
+            hash = chunks.view(index).checksum(hash);
+        }
+        return hash;
+    }
+
+    /**
+     * Publie aux écouteurs de cette carte, en une seule fois, l'ensemble des cellules
+     * modifiées depuis la publication précédente.
+     * Les cellules dont seul l'éclairage a changé sont publiées à part (voir
+     * {@link IMapListener#lightChanged(MapChanges)}).
+     * Cette méthode est destinée à être appelée une fois par image (ou par tick).
+     */
+    public void flushChanges() {
+        if (dirtyChunks.isEmpty()) {
+            return;
+        }
+
+        changes.clear();
+        lightChanges.clear();
+        for (Chunk chunk : dirtyChunks) {
+            chunk.collectChanges(changes, lightChanges);
+        }
+        dirtyChunks.clear();
+
+        if (!changes.isEmpty()) {
+            for (IMapListener listener : listeners) {
+                listener.mapChanged(changes);
+            }
+        }
+        if (!lightChanges.isEmpty()) {
+            for (IMapListener listener : listeners) {
+                listener.lightChanged(lightChanges);
+            }
+        }
+    }
+
+    /**
+     * Ajoute un écouteur informé des modifications du contenu de cette carte.
+     *
+     * @param listener L'écouteur à ajouter.
+     */
+    public void addListener(IMapListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Retire un écouteur des modifications du contenu de cette carte.
+     *
+     * @param listener L'écouteur à retirer.
+     */
+    public void removeListener(IMapListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Vérifie que la position donnée se trouve sur cette carte.
+     *
+     * @param row La ligne à vérifier.
+     * @param column La colonne à vérifier.
+     *
+     * @throws IllegalArgumentException Si la position donnée est en dehors de cette
+     *         carte.
+     */
+    private void checkLocation(int row, int column) {
         if ((row < 0) || (height <= row) || (column < 0) || (width <= column)) {
             throw new IllegalArgumentException("Incorrect cell location!");
         }
-        cells[row][column].replaceBy(cell);
+    }
+
+    /**
+     * Donne le tronçon contenant la colonne donnée, en le générant s'il n'existe pas
+     * encore.
+     *
+     * @param column La colonne dont on cherche le tronçon.
+     *
+     * @return Le tronçon contenant la colonne.
+     */
+    private Chunk getChunk(int column) {
+        int index = Chunk.indexOf(column);
+        if ((lastChunk != null) && (lastChunk.getIndex() == index)) {
+            chunks.touch(lastChunk);
+            return lastChunk;
+        }
+
+        Chunk chunk = chunks.get(index);
+        if (chunk == null) {
+            // Le tronçon est rempli avant d'être enregistré : ses blocs ne sont donc pas
+            // marqués comme modifiés, puisque personne n'a encore pu les observer.
+            chunk = new Chunk(index, height);
+            if (!chunks.restore(chunk) && !loadStored(chunk)) {
+                generator.generate(this, chunk);
+            }
+            install(chunk);
+        }
+        lastChunk = chunk;
+        return chunk;
+    }
+
+    /**
+     * Prépare à l'avance les tronçons contenant un ensemble de colonnes, qui ne sont pas
+     * encore chargés.
+     * Les tronçons à générer le sont en parallèle, chacun par une tâche de
+     * {@link ForkJoinPool#commonPool()} : un tronçon ne dépendant que de la graine et de son
+     * indice, le contenu de la carte est le même que si chacun avait été généré lors de sa
+     * première consultation.
+     * Les tronçons sont ensuite ajoutés à la carte un par un, par ordre croissant d'indice.
+     *
+     * @param fromColumn La première colonne (incluse).
+     * @param toColumn   La dernière colonne (exclue).
+     */
+    public void generateChunks(int fromColumn, int toColumn) {
+        int from = Chunk.indexOf(Math.max(0, fromColumn));
+        int to = Chunk.indexOf(Math.min(width, toColumn) - 1);
+        List<Chunk> prepared = new ArrayList<>();
+        List<Chunk> generated = new ArrayList<>();
+        for (int index = from; index <= to; index++) {
+            if (chunks.peek(index) == null) {
+                Chunk chunk = new Chunk(index, height);
+                if (!chunks.restore(chunk) && !loadStored(chunk)) {
+                    generated.add(chunk);
+                }
+                prepared.add(chunk);
+            }
+        }
+
+        if (!generated.isEmpty()) {
+            ForkJoinPool.commonPool().invoke(new ChunksTask(generated, 0, generated.size()));
+        }
+        prepared.forEach(this::install);
+    }
+
+    /**
+     * Garde chargés les tronçons contenant un ensemble de colonnes : ceux qui sont déjà
+     * chargés sont marqués comme consultés (ils ne peuvent alors pas être refroidis pendant
+     * {@link ChunkCache#RETAINED_TICKS} pas), et les autres sont préparés par
+     * {@link #generateChunks(int, int)}.
+     *
+     * @param fromColumn La première colonne (incluse).
+     * @param toColumn   La dernière colonne (exclue).
+     */
+    public void loadChunks(int fromColumn, int toColumn) {
+        int from = Chunk.indexOf(Math.max(0, fromColumn));
+        int to = Chunk.indexOf(Math.min(width, toColumn) - 1);
+        for (int index = from; index <= to; index++) {
+            Chunk chunk = chunks.peek(index);
+            if (chunk != null) {
+                chunks.touch(chunk);
+            }
+        }
+        generateChunks(fromColumn, toColumn);
+    }
+
+    /**
+     * Ajoute à la carte un tronçon qui vient d'être rempli, en calculant ses données
+     * dérivées (cellules solides, lumière, déplacements).
+     *
+     * @param chunk Le tronçon à ajouter.
+     */
+    private void install(Chunk chunk) {
+        chunk.computeSolid(registry);
+        chunks.put(chunk);
+        lightEngine.lightChunk(chunk);
+        navigation.chunkLoaded(chunk);
+
+        // Les cellules du tronçon sont publiées comme des modifications d'éclairage, qui ne
+        // concernent que les affichages : ceux-ci ne consultent que les tronçons chargés, et
+        // doivent redessiner le tronçon s'il est déjà visible.
+        if (chunk.markLightDirty(Math.min(Chunk.WIDTH, width - chunk.getFirstColumn()))) {
+            dirtyChunks.add(chunk);
+        }
+    }
+
+    /**
+     * Oublie un tronçon que le {@link ChunkCache} vient de refroidir : il ne fait plus partie
+     * des tronçons chargés, et les déplacements menant dans ce tronçon ne sont plus
+     * possibles.
+     *
+     * @param chunk Le tronçon refroidi.
+     */
+    private void chunkEvicted(Chunk chunk) {
+        if (lastChunk == chunk) {
+            lastChunk = null;
+        }
+        navigation.chunkUnloaded(chunk);
+    }
+
+    /**
+     * Remplit un tronçon à partir du stockage des tronçons sauvegardés, s'il y en a un.
+     *
+     * @param chunk Le tronçon à remplir, dont toutes les cellules sont vides.
+     * @return Si le tronçon a été rempli, ou {@code false} s'il doit être généré.
+     */
+    private boolean loadStored(Chunk chunk) {
+        if (store == null) {
+            return false;
+        }
+        short[] blocks = new short[height * Chunk.WIDTH];
+        if (!store.load(chunk.getIndex(), blocks)) {
+            return false;
+        }
+        chunk.copyBlocksFrom(blocks);
+        return true;
+    }
+
+    /**
+     * Donne le tronçon contenant la colonne donnée, sans le générer.
+     *
+     * @param column La colonne dont on cherche le tronçon.
+     * @return Le tronçon contenant cette colonne, ou {@code null} s'il n'a pas encore été
+     *         généré.
+     */
+    Chunk findChunk(int column) {
+        int index = Chunk.indexOf(column);
+        if ((lastChunk != null) && (lastChunk.getIndex() == index)) {
+            return lastChunk;
+        }
+
+        Chunk chunk = chunks.peek(index);
+        if (chunk != null) {
+            lastChunk = chunk;
+        }
+        return chunk;
+    }
+
+    /**
+     * Donne le tronçon contenant la colonne donnée, sans le générer ni modifier le dernier
+     * tronçon consulté.
+     * Contrairement à {@link #findChunk(int)}, cette méthode peut être appelée par
+     * plusieurs fils d'exécution en même temps, tant qu'aucun tronçon n'est généré.
+     *
+     * @param column La colonne dont on cherche le tronçon.
+     * @return Le tronçon contenant cette colonne, ou {@code null} s'il n'a pas encore été
+     *         généré.
+     */
+    Chunk loadedChunk(int column) {
+        return chunks.peek(Chunk.indexOf(column));
+    }
+
+    /**
+     * Donne l'identifiant du type de bloc d'une cellule appartenant à un tronçon déjà
+     * généré.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     * @return L'identifiant du type de bloc de la cellule.
+     */
+    int getChunkBlock(int row, int column) {
+        return findChunk(column).getBlock(row, column);
+    }
+
+    /**
+     * La classe {@link ChunksTask} génère un ensemble de tronçons de la carte.
+     * Si l'ensemble contient plusieurs tronçons, il est découpé en deux tâches exécutées en
+     * parallèle.
+     */
+    private final class ChunksTask extends RecursiveAction {
+
+        /**
+         * L'identifiant de version de cette classe (ses instances ne sont jamais
+         * sérialisées, mais {@link RecursiveAction} est {@link java.io.Serializable}).
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Les tronçons à générer.
+         */
+        private final transient List<Chunk> batch;
+
+        /**
+         * L'indice du premier tronçon à générer.
+         */
+        private final int from;
+
+        /**
+         * L'indice suivant celui du dernier tronçon à générer.
+         */
+        private final int to;
+
+        /**
+         * Crée une nouvelle instance de ChunksTask.
+         *
+         * @param batch  Les tronçons à générer.
+         * @param from   L'indice du premier tronçon à générer.
+         * @param to     L'indice suivant celui du dernier tronçon à générer.
+         */
+        ChunksTask(List<Chunk> batch, int from, int to) {
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if ((to - from) == 1) {
+                generator.generate(GameMap.this, batch.get(from));
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new ChunksTask(batch, from, middle), new ChunksTask(batch, middle, to));
+        }
+
     }
 
 }
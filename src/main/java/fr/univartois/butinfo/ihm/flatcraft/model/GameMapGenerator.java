@@ -14,12 +14,24 @@ package fr.univartois.butinfo.ihm.flatcraft.model; /**
  * Tous droits réservés.
  */
 
+import java.util.List;
 import java.util.Random;
 
 /**
  * La classe {@link GameMapGenerator} permet de générer différentes cartes du jeu Flatcraft.
  * La carte de base comporte une plaine ne comportant que de l'herbe et des plans d'eau en surface.
  * Cette carte peut aussi être enrichie avec des arbres, des terrils, etc.
+ * <p>
+ * Chaque tronçon est généré par un {@link GenerationPipeline}, qui lui applique dans
+ * l'ordre les passes suivantes : le relief ({@link HeightmapPass}), les couches du sous-sol
+ * ({@link StrataPass}), les grottes ({@link CavePass}), les filons de minerais
+ * ({@link OreVeinPass}) et enfin les décorations ({@link DecorationPass}).
+ * <p>
+ * La génération est entièrement déterminée par une graine : chaque tronçon, chaque passe
+ * et chaque colonne dérive de cette graine son propre générateur de nombres
+ * pseudo-aléatoires.
+ * Les colonnes peuvent ainsi être générées en parallèle, dans n'importe quel ordre, tout
+ * en produisant exactement la même carte pour une même graine.
  *
  * @author Daniel Le Berre
  * @author Romain Wallon
@@ -29,20 +41,11 @@ import java.util.Random;
 public final class GameMapGenerator {
 
     /**
-     * Le générateur de nombres pseudo-aléatoires utilisé pour placer les arbres et les terrils.
+     * Le générateur de nombres pseudo-aléatoires utilisé pour tirer une graine lorsqu'aucune
+     * n'est donnée.
      */
     private static final Random RANDOM = new Random();
 
-    /**
-     * La hauteur maximale des arbres.
-     */
-    private static final int MAX_TREE_HEIGHT = 5;
-
-    /**
-     * La hauteur maximale des terrils.
-     */
-    private static final int MAX_SLAG_HEAP_HEIGHT = 8;
-
     /**
      * Désactive l'instanciation en dehors de la classe.
      */
@@ -51,8 +54,9 @@ public final class GameMapGenerator {
     }
 
     /**
-     * Génère une carte de base pour le jeu Flatcraft.
+     * Génère une carte de base pour le jeu Flatcraft, à partir d'une graine aléatoire.
      * La carte est une plaine ne comportant que de l'herbe et des plans d'eau en surface.
+     * Ses tronçons ne sont générés que lorsqu'ils sont consultés pour la première fois.
      *
      * @param height La hauteur de la carte.
      * @param width La largeur de la carte.
@@ -61,38 +65,33 @@ public final class GameMapGenerator {
      * @return La carte générée.
      */
     public static GameMap generatePlainMap(int height, int width, CellFactory factory) {
-        GameMap map = new GameMap(height, width, 2 * height / 3);
-
-        // La première partie de la carte représente le ciel.
-        for (int i = 0; i < map.getSoilHeight(); i++) {
-            for (int j = 0; j < width; j++) {
-                map.setAt(i, j, factory.createSky());
-            }
-        }
-
-        // Une ligne permet de représenter la surface du sol.
-        for (int j = 0; j < width; j++) {
-            map.setAt(map.getSoilHeight(), j, factory.createSoilSurface());
-        }
-
-        // La dernière partie de la carte représente le sous-sol.
-        for (int i = map.getSoilHeight() + 1; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                map.setAt(i, j, factory.createSubSoil());
-            }
-        }
+        return generatePlainMap(RANDOM.nextLong(), height, width, factory);
+    }
 
-        return map;
+    /**
+     * Génère une carte de base pour le jeu Flatcraft.
+     * La carte est une plaine ne comportant que de l'herbe et des plans d'eau en surface.
+     * Ses tronçons ne sont générés que lorsqu'ils sont consultés pour la première fois.
+     *
+     * @param seed La graine déterminant le contenu de la carte.
+     * @param height La hauteur de la carte.
+     * @param width La largeur de la carte.
+     * @param factory La fabrique de cellules utilisée pour créer les cellules de la carte.
+     *
+     * @return La carte générée.
+     */
+    public static GameMap generatePlainMap(long seed, int height, int width, CellFactory factory) {
+        return generateMapWithTreesAndSlagHeaps(seed, height, width, factory, 0, 0);
     }
 
     /**
-     * Génère une carte pour le jeu Flatcraft.
+     * Génère une carte pour le jeu Flatcraft, à partir d'une graine aléatoire.
      * La carte comporte une plaine avec en plus des arbres.
      *
      * @param height La hauteur de la carte.
      * @param width La largeur de la carte.
      * @param factory La fabrique de cellules utilisée pour créer les cellules de la carte.
-     * @param nbTrees Le nombre d'arbres à ajouter à la carte.
+     * @param nbTrees Le nombre d'arbres à ajouter à chaque tronçon de la carte.
      *
      * @return La carte générée.
      */
@@ -101,13 +100,13 @@ public final class GameMapGenerator {
     }
 
     /**
-     * Génère une carte pour le jeu Flatcraft.
+     * Génère une carte pour le jeu Flatcraft, à partir d'une graine aléatoire.
      * La carte comporte une plaine avec en plus des terrils.
      *
      * @param height La hauteur de la carte.
      * @param width La largeur de la carte.
      * @param factory La fabrique de cellules utilisée pour créer les cellules de la carte.
-     * @param nbSlagHeaps Le nombre de terrils à ajouter à la carte.
+     * @param nbSlagHeaps Le nombre de terrils à ajouter à chaque tronçon de la carte.
      *
      * @return La carte générée.
      */
@@ -116,82 +115,80 @@ public final class GameMapGenerator {
     }
 
     /**
-     * Génère une carte pour le jeu Flatcraft.
+     * Génère une carte pour le jeu Flatcraft, à partir d'une graine aléatoire.
      * La carte comporte une plaine avec en plus des arbres et des terrils.
      *
      * @param height La hauteur de la carte.
      * @param width La largeur de la carte.
      * @param factory La fabrique de cellules utilisée pour créer les cellules de la carte.
-     * @param nbTrees Le nombre d'arbres à ajouter à la carte.
-     * @param nbSlagHeaps Le nombre de terrils à ajouter à la carte.
+     * @param nbTrees Le nombre d'arbres à ajouter à chaque tronçon de la carte.
+     * @param nbSlagHeaps Le nombre de terrils à ajouter à chaque tronçon de la carte.
      *
      * @return La carte générée.
      */
     public static GameMap generateMapWithTreesAndSlagHeaps(int height, int width,
                                                            CellFactory factory, int nbTrees, int nbSlagHeaps) {
-        GameMap map = generatePlainMap(height, width, factory);
-
-        for (int i = 0; i < nbTrees; i++) {
-            addTree(map, factory);
-        }
-
-        for (int i = 0; i < nbSlagHeaps; i++) {
-            addSlagHeap(map, factory);
-        }
-
-        return map;
+        return generateMapWithTreesAndSlagHeaps(RANDOM.nextLong(), height, width, factory, nbTrees, nbSlagHeaps);
     }
 
-
     /**
-     * Ajoute un arbre à une position aléatoire sur la carte.
+     * Génère une carte pour le jeu Flatcraft.
+     * La carte comporte une plaine avec en plus des arbres et des terrils.
+     *
+     * @param seed La graine déterminant le contenu de la carte.
+     * @param height La hauteur de la carte.
+     * @param width La largeur de la carte.
+     * @param factory La fabrique de cellules utilisée pour créer les cellules de la carte.
+     * @param nbTrees Le nombre d'arbres à ajouter à chaque tronçon de la carte.
+     * @param nbSlagHeaps Le nombre de terrils à ajouter à chaque tronçon de la carte.
      *
-     * @param map La carte à laquelle ajouter l'arbre.
-     * @param factory La fabrique de cellules utilisée pour créer les cellules d'arbre.
+     * @return La carte générée.
      */
-    private static void addTree(GameMap map, CellFactory factory) {
-        // On choisit l'endroit où placer l'arbre.
-        int treeHeight = RANDOM.nextInt(MAX_TREE_HEIGHT) + 1;
-        int col = RANDOM.nextInt(map.getWidth() - 2) + 1;
-        int row = map.getSoilHeight();
-
-        // On commence par placer le tronc.
-        for (int i = 0; i < treeHeight; i++) {
-            map.setAt(row, col, factory.createTrunk());
-            row--;
-        }
-
-        // On ajoute ensuite les feuilles.
-        map.setAt(row, col + 1, factory.createLeaves());
-        map.setAt(row, col, factory.createLeaves());
-        map.setAt(row, col - 1, factory.createLeaves());
-        map.setAt(row + 1, col + 1, factory.createLeaves());
-        map.setAt(row + 1, col - 1, factory.createLeaves());
+    public static GameMap generateMapWithTreesAndSlagHeaps(long seed, int height, int width,
+                                                           CellFactory factory, int nbTrees, int nbSlagHeaps) {
+        return new GameMap(height, width, 2 * height / 3, factory.getRegistry(),
+                createPipeline(seed, factory, nbTrees, nbSlagHeaps));
     }
 
     /**
-     * Ajoute un terril à une position aléatoire sur la carte.
+     * Crée le pipeline de génération utilisé pour les cartes du jeu Flatcraft.
+     *
+     * @param seed La graine déterminant le contenu de la carte.
+     * @param factory La fabrique de cellules utilisée pour créer les cellules de la carte.
+     * @param nbTrees Le nombre d'arbres à ajouter à chaque tronçon de la carte.
+     * @param nbSlagHeaps Le nombre de terrils à ajouter à chaque tronçon de la carte.
      *
-     * @param map La carte à laquelle ajouter le terril.
-     * @param factory La fabrique de cellules utilisée pour créer les cellules de terril.
+     * @return Le pipeline de génération.
      */
-    private static void addSlagHeap(GameMap map, CellFactory factory) {
-        // On choisit l'endroit où placer le terril.
-        int heapHeight = RANDOM.nextInt(MAX_SLAG_HEAP_HEIGHT) + 1;
-        int x = RANDOM.nextInt(map.getWidth() - heapHeight) + heapHeight;
-        int y = map.getSoilHeight();
+    public static GenerationPipeline createPipeline(long seed, CellFactory factory, int nbTrees, int nbSlagHeaps) {
+        return new GenerationPipeline(seed, List.of(
+                new HeightmapPass(mix(seed, -1), factory, 3, 48),
+                new StrataPass(factory, 2, 4),
+                new CavePass(mix(seed, -2), 12, 0.08, 3),
+                new OreVeinPass(BlockRegistry.GRAVEL, 2, 8, 1),
+                new OreVeinPass(BlockRegistry.COAL_BLOCK, 3, 6, 1),
+                new OreVeinPass(BlockRegistry.COPPER_BLOCK, 2, 5, 2),
+                new OreVeinPass(BlockRegistry.BRONZE_BLOCK, 2, 5, 3),
+                new OreVeinPass(BlockRegistry.GOLD_BLOCK, 1, 4, 4),
+                new OreVeinPass(BlockRegistry.DIAMOND_BLOCK, 1, 3, 5),
+                new DecorationPass(factory, nbTrees, nbSlagHeaps)));
+    }
 
-        // On place les blocs constituant le terril, en partant de son sommet.
-        for (int h = 0; h < heapHeight; h++) {
-            for (int w = 0; w < (2 * h + 1); w++) {
-                int row = y - heapHeight + h;
-                int column = x + w;
-                if ((column < map.getWidth()) && (0 <= row) && (row < map.getHeight())) {
-                    map.setAt(row, column, factory.createSubSoil());
-                }
-            }
-            x--;
-        }
+    /**
+     * Dérive une nouvelle graine à partir d'une graine et d'un indice, en utilisant la
+     * fonction de mélange de SplitMix64.
+     * Deux indices différents donnent des graines sans corrélation apparente.
+     *
+     * @param seed La graine d'origine.
+     * @param index L'indice à partir duquel dériver la nouvelle graine.
+     *
+     * @return La graine dérivée.
+     */
+    static long mix(long seed, long index) {
+        long z = seed + (index * 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
     }
 
 }
@@ -0,0 +1,208 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * La classe {@link GenerationContext} regroupe l'état partagé par les passes de
+ * génération d'un tronçon de la carte : le tronçon lui-même, la hauteur de la surface de
+ * chacune de ses colonnes, et les générateurs de nombres pseudo-aléatoires de chaque passe.
+ * <p>
+ * Ces générateurs sont dérivés de la graine du tronçon, de l'indice de la passe et, le cas
+ * échéant, de la colonne : le résultat ne dépend donc ni de l'ordre dans lequel les tronçons
+ * sont générés, ni de l'ordre dans lequel les colonnes sont traitées.
+ *
+ * @version 0.1.0
+ */
+public final class GenerationContext {
+
+    /**
+     * La carte dont un tronçon est généré.
+     */
+    private final GameMap map;
+
+    /**
+     * Le tronçon en cours de génération.
+     */
+    private final Chunk chunk;
+
+    /**
+     * La graine du tronçon.
+     */
+    private final long chunkSeed;
+
+    /**
+     * La première colonne du tronçon.
+     */
+    private final int fromColumn;
+
+    /**
+     * La colonne suivant la dernière colonne du tronçon située sur la carte.
+     */
+    private final int toColumn;
+
+    /**
+     * La ligne de la surface du sol de chaque colonne du tronçon.
+     */
+    private final int[] surface;
+
+    /**
+     * La graine de la passe en cours.
+     */
+    private long passSeed;
+
+    /**
+     * Crée une nouvelle instance de GenerationContext.
+     * Tant qu'aucune passe ne l'a modifiée, la surface de chaque colonne se trouve à la
+     * hauteur du sol de la carte.
+     *
+     * @param map       La carte dont un tronçon est généré.
+     * @param chunk     Le tronçon à générer.
+     * @param chunkSeed La graine du tronçon.
+     */
+    GenerationContext(GameMap map, Chunk chunk, long chunkSeed) {
+        this.map = map;
+        this.chunk = chunk;
+        this.chunkSeed = chunkSeed;
+        this.fromColumn = chunk.getFirstColumn();
+        this.toColumn = Math.min(fromColumn + Chunk.WIDTH, map.getWidth());
+        this.surface = new int[Math.max(0, toColumn - fromColumn)];
+        Arrays.fill(surface, map.getSoilHeight());
+    }
+
+    /**
+     * Prépare ce contexte pour l'application d'une nouvelle passe.
+     *
+     * @param pass L'indice de la passe dans le pipeline.
+     */
+    void startPass(int pass) {
+        passSeed = GameMapGenerator.mix(chunkSeed, pass + 1L);
+    }
+
+    /**
+     * Donne la hauteur de la carte.
+     *
+     * @return La hauteur de la carte.
+     */
+    public int getHeight() {
+        return map.getHeight();
+    }
+
+    /**
+     * Donne la hauteur du sol de référence de la carte.
+     *
+     * @return La hauteur du sol de la carte.
+     */
+    public int getSoilHeight() {
+        return map.getSoilHeight();
+    }
+
+    /**
+     * Donne la première colonne du tronçon.
+     *
+     * @return La première colonne du tronçon.
+     */
+    public int getFromColumn() {
+        return fromColumn;
+    }
+
+    /**
+     * Donne la colonne suivant la dernière colonne du tronçon située sur la carte.
+     *
+     * @return La colonne suivant la dernière colonne à générer.
+     */
+    public int getToColumn() {
+        return toColumn;
+    }
+
+    /**
+     * Donne la ligne de la surface du sol d'une colonne du tronçon.
+     *
+     * @param column La colonne, relativement au début de la carte.
+     * @return La ligne de la surface du sol de cette colonne.
+     */
+    public int getSurface(int column) {
+        return surface[column - fromColumn];
+    }
+
+    /**
+     * Modifie la ligne de la surface du sol d'une colonne du tronçon.
+     *
+     * @param column La colonne, relativement au début de la carte.
+     * @param row    La nouvelle ligne de la surface du sol.
+     */
+    public void setSurface(int column, int row) {
+        surface[column - fromColumn] = row;
+    }
+
+    /**
+     * Donne l'identifiant du type de bloc d'une cellule du tronçon.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule, relativement au début de la carte.
+     * @return L'identifiant du type de bloc de la cellule.
+     */
+    public int getBlock(int row, int column) {
+        return chunk.getBlock(row, column);
+    }
+
+    /**
+     * Modifie le type de bloc d'une cellule du tronçon.
+     * Les cellules situées en dehors du tronçon ou de la carte sont ignorées, ce qui permet
+     * aux passes de ne pas se soucier des bords.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule, relativement au début de la carte.
+     * @param block  L'identifiant du nouveau type de bloc de la cellule.
+     */
+    public void setBlock(int row, int column, int block) {
+        if ((fromColumn <= column) && (column < toColumn) && (0 <= row) && (row < map.getHeight())) {
+            chunk.setBlock(row, column, block);
+        }
+    }
+
+    /**
+     * Crée le générateur de nombres pseudo-aléatoires de la passe en cours, pour
+     * l'ensemble du tronçon.
+     *
+     * @return Le générateur de la passe.
+     */
+    public SplittableRandom random() {
+        return new SplittableRandom(passSeed);
+    }
+
+    /**
+     * Applique une action à chaque colonne du tronçon.
+     * Chaque colonne dispose de son propre générateur de nombres pseudo-aléatoires : l'action
+     * ne doit modifier que la colonne qui lui est donnée, et son résultat ne dépend donc pas
+     * de l'ordre dans lequel les colonnes sont traitées.
+     * Un tronçon étant trop petit pour que ses colonnes gagnent à être traitées en
+     * parallèle, ce sont les tronçons qui sont générés en parallèle (voir
+     * {@link GameMap#generateChunks(int, int)}).
+     *
+     * @param action L'action à appliquer.
+     */
+    public void forEachColumn(ColumnAction action) {
+        for (int j = fromColumn; j < toColumn; j++) {
+            action.apply(j, new SplittableRandom(GameMapGenerator.mix(passSeed, j)));
+        }
+    }
+
+    /**
+     * L'interface {@link ColumnAction} définit une action appliquée à une colonne d'un
+     * tronçon en cours de génération.
+     */
+    @FunctionalInterface
+    public interface ColumnAction {
+
+        /**
+         * Applique cette action à une colonne.
+         *
+         * @param column La colonne, relativement au début de la carte.
+         * @param random Le générateur de nombres pseudo-aléatoires propre à cette colonne.
+         */
+        void apply(int column, SplittableRandom random);
+
+    }
+
+}
@@ -0,0 +1,142 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * La classe {@link GenerationPipeline} génère les tronçons de la carte en leur appliquant,
+ * dans l'ordre, une suite de passes de génération.
+ * Elle mesure au passage le temps passé dans chaque passe, afin de suivre le débit de la
+ * génération (en nombre de colonnes par seconde) au fur et à mesure que des passes sont
+ * ajoutées.
+ *
+ * @version 0.1.0
+ */
+public final class GenerationPipeline implements IChunkGenerator {
+
+    /**
+     * La graine déterminant le contenu de la carte.
+     */
+    private final long seed;
+
+    /**
+     * Les passes appliquées à chaque tronçon, dans l'ordre.
+     */
+    private final List<IGenerationPass> passes;
+
+    /**
+     * Le temps passé dans chacune des passes, en nanosecondes.
+     */
+    private final LongAdder[] passNanos;
+
+    /**
+     * Le nombre de colonnes générées.
+     */
+    private final LongAdder columns = new LongAdder();
+
+    /**
+     * Crée une nouvelle instance de GenerationPipeline.
+     *
+     * @param seed   La graine déterminant le contenu de la carte.
+     * @param passes Les passes à appliquer à chaque tronçon, dans l'ordre.
+     */
+    public GenerationPipeline(long seed, List<IGenerationPass> passes) {
+        this.seed = seed;
+        this.passes = List.copyOf(passes);
+        this.passNanos = new LongAdder[this.passes.size()];
+        for (int i = 0; i < passNanos.length; i++) {
+            passNanos[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void generate(GameMap map, Chunk chunk) {
+        GenerationContext context = new GenerationContext(map, chunk, GameMapGenerator.mix(seed, chunk.getIndex()));
+        for (int i = 0; i < passes.size(); i++) {
+            long start = System.nanoTime();
+            context.startPass(i);
+            passes.get(i).apply(context);
+            passNanos[i].add(System.nanoTime() - start);
+        }
+        columns.add(Math.max(0, context.getToColumn() - context.getFromColumn()));
+    }
+
+    /**
+     * Donne les passes appliquées à chaque tronçon, dans l'ordre.
+     *
+     * @return Les passes de ce pipeline.
+     */
+    public List<IGenerationPass> getPasses() {
+        return passes;
+    }
+
+    /**
+     * Donne le nombre de colonnes générées jusqu'à présent.
+     *
+     * @return Le nombre de colonnes générées.
+     */
+    public long getGeneratedColumns() {
+        return columns.sum();
+    }
+
+    /**
+     * Donne le temps total passé à générer des colonnes, en nanosecondes.
+     *
+     * @return Le temps total de génération.
+     */
+    public long getTotalNanos() {
+        long total = 0;
+        for (LongAdder nanos : passNanos) {
+            total += nanos.sum();
+        }
+        return total;
+    }
+
+    /**
+     * Donne le débit de l'ensemble de la génération.
+     *
+     * @return Le nombre de colonnes générées par seconde.
+     */
+    public double getColumnsPerSecond() {
+        return throughput(getTotalNanos());
+    }
+
+    /**
+     * Donne le débit d'une passe de la génération, c'est-à-dire le débit qu'aurait la
+     * génération si elle ne comportait que cette passe.
+     *
+     * @param pass L'indice de la passe.
+     * @return Le nombre de colonnes traitées par seconde par cette passe.
+     */
+    public double getColumnsPerSecond(int pass) {
+        return throughput(passNanos[pass].sum());
+    }
+
+    /**
+     * Calcule un débit de génération.
+     *
+     * @param nanos Le temps passé à générer les colonnes, en nanosecondes.
+     * @return Le nombre de colonnes générées par seconde.
+     */
+    private double throughput(long nanos) {
+        if (nanos == 0) {
+            return 0;
+        }
+        return getGeneratedColumns() * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%d colonnes générées (%.0f colonnes/s)",
+                getGeneratedColumns(), getColumnsPerSecond()));
+        long total = Math.max(1, getTotalNanos());
+        for (int i = 0; i < passes.size(); i++) {
+            builder.append(String.format("%n  %-20s %12.0f colonnes/s %6.1f %%", passes.get(i).getName(),
+                    getColumnsPerSecond(i), 100.0 * passNanos[i].sum() / total));
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,139 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+/**
+ * La classe {@link GradientNoise} calcule un bruit de gradient (à la manière du bruit de
+ * Perlin) en une ou deux dimensions.
+ * Le bruit est continu et ne dépend que de la graine et des coordonnées : deux calculs
+ * au même point donnent toujours la même valeur, quel que soit l'ordre des calculs.
+ *
+ * @version 0.1.0
+ */
+public final class GradientNoise {
+
+    /**
+     * Les gradients utilisés en deux dimensions.
+     */
+    private static final double[][] GRADIENTS = {
+            { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 },
+            { Math.sqrt(0.5), Math.sqrt(0.5) }, { -Math.sqrt(0.5), Math.sqrt(0.5) },
+            { Math.sqrt(0.5), -Math.sqrt(0.5) }, { -Math.sqrt(0.5), -Math.sqrt(0.5) }
+    };
+
+    /**
+     * La graine de ce bruit.
+     */
+    private final long seed;
+
+    /**
+     * Crée une nouvelle instance de GradientNoise.
+     *
+     * @param seed La graine de ce bruit.
+     */
+    public GradientNoise(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Calcule la valeur du bruit en un point d'une droite.
+     *
+     * @param x L'abscisse du point.
+     * @return La valeur du bruit en ce point, comprise entre {@code -1} et {@code 1}.
+     */
+    public double noise(double x) {
+        long x0 = (long) Math.floor(x);
+        double t = x - x0;
+        double v0 = gradient(x0) * t;
+        double v1 = gradient(x0 + 1) * (t - 1);
+        return 2 * lerp(fade(t), v0, v1);
+    }
+
+    /**
+     * Calcule la valeur du bruit en un point du plan.
+     *
+     * @param x L'abscisse du point.
+     * @param y L'ordonnée du point.
+     * @return La valeur du bruit en ce point, comprise entre {@code -1} et {@code 1}.
+     */
+    public double noise(double x, double y) {
+        long x0 = (long) Math.floor(x);
+        long y0 = (long) Math.floor(y);
+        double tx = x - x0;
+        double ty = y - y0;
+        double v00 = dot(x0, y0, tx, ty);
+        double v10 = dot(x0 + 1, y0, tx - 1, ty);
+        double v01 = dot(x0, y0 + 1, tx, ty - 1);
+        double v11 = dot(x0 + 1, y0 + 1, tx - 1, ty - 1);
+        double u = fade(tx);
+        return Math.sqrt(2) * lerp(fade(ty), lerp(u, v00, v10), lerp(u, v01, v11));
+    }
+
+    /**
+     * Calcule la somme de plusieurs octaves du bruit en un point d'une droite.
+     * Chaque octave a une fréquence double et une amplitude moitié de la précédente.
+     *
+     * @param x       L'abscisse du point.
+     * @param octaves Le nombre d'octaves à additionner.
+     * @return La valeur du bruit en ce point, comprise entre {@code -1} et {@code 1}.
+     */
+    public double fractal(double x, int octaves) {
+        double sum = 0;
+        double amplitude = 1;
+        double total = 0;
+        for (int i = 0; i < octaves; i++) {
+            sum += amplitude * noise(x);
+            total += amplitude;
+            amplitude /= 2;
+            x *= 2;
+        }
+        return sum / total;
+    }
+
+    /**
+     * Donne le gradient associé à un point entier d'une droite.
+     *
+     * @param x L'abscisse du point.
+     * @return Le gradient en ce point, compris entre {@code -1} et {@code 1}.
+     */
+    private double gradient(long x) {
+        return (GameMapGenerator.mix(seed, x) >>> 11) * 0x1.0p-52 - 1;
+    }
+
+    /**
+     * Calcule le produit scalaire entre le gradient associé à un point entier du plan et
+     * le vecteur donné.
+     *
+     * @param x  L'abscisse du point entier.
+     * @param y  L'ordonnée du point entier.
+     * @param dx L'abscisse du vecteur.
+     * @param dy L'ordonnée du vecteur.
+     * @return Le produit scalaire obtenu.
+     */
+    private double dot(long x, long y, double dx, double dy) {
+        double[] gradient = GRADIENTS[(int) (GameMapGenerator.mix(GameMapGenerator.mix(seed, x), y) >>> 61)];
+        return gradient[0] * dx + gradient[1] * dy;
+    }
+
+    /**
+     * Adoucit un paramètre d'interpolation, de sorte que le bruit soit lisse aux points
+     * entiers.
+     *
+     * @param t Le paramètre, compris entre {@code 0} et {@code 1}.
+     * @return Le paramètre adouci.
+     */
+    private static double fade(double t) {
+        return t * t * t * (t * (t * 6 - 15) + 10);
+    }
+
+    /**
+     * Calcule une interpolation linéaire entre deux valeurs.
+     *
+     * @param t Le paramètre d'interpolation, compris entre {@code 0} et {@code 1}.
+     * @param a La valeur obtenue pour {@code t = 0}.
+     * @param b La valeur obtenue pour {@code t = 1}.
+     * @return La valeur interpolée.
+     */
+    private static double lerp(double t, double a, double b) {
+        return a + t * (b - a);
+    }
+
+}
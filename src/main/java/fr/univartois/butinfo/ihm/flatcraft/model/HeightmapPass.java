@@ -0,0 +1,67 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+/**
+ * La classe {@link HeightmapPass} est la passe de génération donnant son relief à la carte.
+ * La ligne de la surface de chaque colonne est obtenue à partir d'un bruit de gradient
+ * autour de la hauteur du sol de la carte ; le ciel est placé au-dessus de cette surface.
+ *
+ * @version 0.1.0
+ */
+public final class HeightmapPass implements IGenerationPass {
+
+    /**
+     * Le nombre d'octaves du bruit utilisé pour le relief.
+     */
+    private static final int OCTAVES = 4;
+
+    /**
+     * La fabrique de cellules utilisée pour le ciel et la surface du sol.
+     */
+    private final CellFactory factory;
+
+    /**
+     * Le bruit déterminant le relief.
+     */
+    private final GradientNoise noise;
+
+    /**
+     * L'écart maximal entre la surface et la hauteur du sol de la carte, en nombre de lignes.
+     */
+    private final int amplitude;
+
+    /**
+     * La largeur typique d'une colline, en nombre de colonnes.
+     */
+    private final double wavelength;
+
+    /**
+     * Crée une nouvelle instance de HeightmapPass.
+     *
+     * @param seed       La graine déterminant le relief.
+     * @param factory    La fabrique de cellules utilisée pour le ciel et la surface du sol.
+     * @param amplitude  L'écart maximal entre la surface et la hauteur du sol de la carte.
+     * @param wavelength La largeur typique d'une colline, en nombre de colonnes.
+     */
+    public HeightmapPass(long seed, CellFactory factory, int amplitude, double wavelength) {
+        this.factory = factory;
+        this.noise = new GradientNoise(seed);
+        this.amplitude = amplitude;
+        this.wavelength = wavelength;
+    }
+
+    @Override
+    public void apply(GenerationContext context) {
+        context.forEachColumn((column, random) -> {
+            int surface = context.getSoilHeight()
+                    + (int) Math.round(amplitude * noise.fractal(column / wavelength, OCTAVES));
+            surface = Math.max(1, Math.min(surface, context.getHeight() - 2));
+            context.setSurface(column, surface);
+
+            for (int i = 0; i < surface; i++) {
+                context.setBlock(i, column, factory.createSky(random).getBlockType().getId());
+            }
+            context.setBlock(surface, column, factory.createSoilSurface(random).getBlockType().getId());
+        });
+    }
+
+}
@@ -0,0 +1,25 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+/**
+ * L'interface {@link IChunkGenerator} définit la manière de générer le contenu d'un
+ * tronçon de la carte du jeu Flatcraft.
+ * Un tronçon n'est généré que la première fois qu'une de ses cellules est consultée.
+ *
+ * @version 0.1.0
+ */
+@FunctionalInterface
+public interface IChunkGenerator {
+
+    /**
+     * Génère le contenu des colonnes d'un tronçon de la carte.
+     * Le générateur écrit directement dans le tronçon : il ne doit consulter que les
+     * dimensions de la carte, et jamais ses cellules.
+     * Seules les colonnes du tronçon situées sur la carte (c'est-à-dire avant
+     * {@link GameMap#getWidth()}) doivent être remplies.
+     *
+     * @param map   La carte dont un tronçon doit être généré.
+     * @param chunk Le tronçon à remplir, dont toutes les cellules sont initialement vides.
+     */
+    void generate(GameMap map, Chunk chunk);
+
+}
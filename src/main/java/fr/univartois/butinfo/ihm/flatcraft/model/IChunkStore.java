@@ -0,0 +1,26 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+/**
+ * L'interface {@link IChunkStore} définit un stockage de tronçons sauvegardés, consulté
+ * par la {@link GameMap} avant de générer un tronçon.
+ * Les tronçons sauvegardés n'ont ainsi pas besoin d'être tous lus à l'ouverture d'une
+ * partie : chacun n'est lu que la première fois que l'une de ses cellules est consultée.
+ *
+ * @version 0.1.0
+ */
+@FunctionalInterface
+public interface IChunkStore {
+
+    /**
+     * Lit les blocs d'un tronçon à partir de sa sauvegarde, s'il en existe une.
+     *
+     * @param index  L'indice du tronçon dans la carte.
+     * @param blocks Le tableau à remplir avec les identifiants des types de blocs du
+     *        tronçon, rangés colonne par colonne : la cellule de ligne {@code i} de la
+     *        {@code j}-ième colonne du tronçon se trouve à l'indice {@code j * hauteur + i}.
+     * @return Si le tableau a été rempli, ou {@code false} si le tronçon n'a jamais été
+     *         sauvegardé (il doit alors être généré).
+     */
+    boolean load(int index, short[] blocks);
+
+}
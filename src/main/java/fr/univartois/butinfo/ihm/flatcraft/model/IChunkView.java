@@ -0,0 +1,43 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+/**
+ * L'interface {@link IChunkView} définit une vue en lecture seule sur les blocs d'un
+ * tronçon de la carte (voir {@link Chunk}).
+ * Elle permet notamment de sauvegarder les tronçons de la carte sans pouvoir les modifier
+ * en dehors de la {@link GameMap}.
+ *
+ * @version 0.1.0
+ */
+public interface IChunkView {
+
+    /**
+     * Donne l'indice du tronçon dans la carte.
+     *
+     * @return L'indice du tronçon.
+     */
+    int getIndex();
+
+    /**
+     * Donne la première colonne du tronçon, relativement au début de la carte.
+     *
+     * @return La première colonne du tronçon.
+     */
+    int getFirstColumn();
+
+    /**
+     * Donne la hauteur du tronçon, en nombre de cellules.
+     *
+     * @return La hauteur du tronçon.
+     */
+    int getHeight();
+
+    /**
+     * Donne l'identifiant du type de bloc de la cellule à la position donnée.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule, relativement au début de la carte.
+     * @return L'identifiant du type de bloc de la cellule.
+     */
+    int getBlock(int row, int column);
+
+}
@@ -0,0 +1,21 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+/**
+ * L'interface {@link ICommandListener} permet d'être informé des commandes soumises à une
+ * {@link CommandQueue}, par exemple afin de les enregistrer.
+ *
+ * @version 0.1.0
+ */
+@FunctionalInterface
+public interface ICommandListener {
+
+    /**
+     * Informe cet écouteur qu'une commande a été soumise.
+     *
+     * @param tick    Le numéro du prochain pas de la boucle de jeu, c'est-à-dire le premier
+     *                pas pouvant exécuter la commande.
+     * @param command La commande soumise.
+     */
+    void commandSubmitted(long tick, Command command);
+
+}
@@ -1,7 +1,5 @@
 package fr.univartois.butinfo.ihm.flatcraft.model;
 
-import javafx.beans.property.IntegerProperty;
-
 public interface IFlatcraftController {
     void setJeu(FlatcraftGame jeu);
 
@@ -11,5 +9,5 @@ public interface IFlatcraftController {
 
     void masquerMovable(AbstractMovable movable);
 
-    void setHealthProperty(IntegerProperty healthProperty);
+    void afficherSante(int sante);
 }
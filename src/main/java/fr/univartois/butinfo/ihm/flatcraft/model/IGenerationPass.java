@@ -0,0 +1,30 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+/**
+ * L'interface {@link IGenerationPass} définit une passe de la génération d'un tronçon de
+ * la carte (relief, couches du sous-sol, grottes, etc.).
+ * Les passes sont appliquées dans l'ordre par un {@link GenerationPipeline}, chacune
+ * travaillant sur le résultat des précédentes.
+ *
+ * @version 0.1.0
+ */
+@FunctionalInterface
+public interface IGenerationPass {
+
+    /**
+     * Applique cette passe au tronçon en cours de génération.
+     *
+     * @param context Le contexte de génération du tronçon.
+     */
+    void apply(GenerationContext context);
+
+    /**
+     * Donne le nom de cette passe, utilisé dans les statistiques de génération.
+     *
+     * @return Le nom de cette passe.
+     */
+    default String getName() {
+        return getClass().getSimpleName();
+    }
+
+}
@@ -0,0 +1,20 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+/**
+ * L'interface {@link IHealthListener} définit les observateurs des points de vie d'un
+ * objet mobile.
+ *
+ * @version 0.1.0
+ */
+@FunctionalInterface
+public interface IHealthListener {
+
+    /**
+     * Informe cet observateur que les points de vie d'un objet mobile ont changé.
+     *
+     * @param movable L'objet mobile dont les points de vie ont changé.
+     * @param health  Les nouveaux points de vie de l'objet mobile.
+     */
+    void healthChanged(AbstractMovable movable, int health);
+
+}
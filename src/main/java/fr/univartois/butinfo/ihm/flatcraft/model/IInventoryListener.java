@@ -0,0 +1,20 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+/**
+ * L'interface {@link IInventoryListener} définit les observateurs de l'inventaire d'un
+ * joueur.
+ *
+ * @version 0.1.0
+ */
+@FunctionalInterface
+public interface IInventoryListener {
+
+    /**
+     * Informe cet observateur que l'un des emplacements d'un inventaire a changé.
+     *
+     * @param inventory L'inventaire qui a changé.
+     * @param slot      L'emplacement qui a changé.
+     */
+    void stackChanged(Inventory inventory, int slot);
+
+}
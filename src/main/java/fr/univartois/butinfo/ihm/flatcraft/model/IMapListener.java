@@ -0,0 +1,42 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+/**
+ * L'interface {@link IMapListener} permet d'être informé des modifications apportées au
+ * contenu d'une {@link GameMap}.
+ * Les modifications sont regroupées et publiées en une seule fois, lors de l'appel à
+ * {@link GameMap#flushChanges()}.
+ * Les modifications de blocs et celles de l'éclairage sont publiées séparément : seules
+ * les premières concernent les objets qui dépendent des blocs de la carte (comme
+ * l'automate des blocs ou le journal de la sauvegarde).
+ *
+ * @version 0.1.0
+ */
+@FunctionalInterface
+public interface IMapListener {
+
+    /**
+     * Informe cet écouteur que le bloc de certaines cellules de la carte a changé.
+     * L'ensemble des modifications donné n'est valable que pendant l'appel à cette
+     * méthode.
+     *
+     * @param changes Les cellules dont le bloc a changé depuis la publication précédente.
+     */
+    void mapChanged(MapChanges changes);
+
+    /**
+     * Informe cet écouteur que seul l'éclairage de certaines cellules de la carte a
+     * changé.
+     * Les cellules dont le bloc a aussi changé ne font partie que des modifications
+     * données à {@link #mapChanged(MapChanges)}.
+     * L'ensemble des modifications donné n'est valable que pendant l'appel à cette
+     * méthode.
+     * Par défaut, cette méthode ne fait rien.
+     *
+     * @param changes Les cellules dont l'éclairage a changé depuis la publication
+     *        précédente.
+     */
+    default void lightChanged(MapChanges changes) {
+        // Seuls les affichages ont besoin de l'éclairage.
+    }
+
+}
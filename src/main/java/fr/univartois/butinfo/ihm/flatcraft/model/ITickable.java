@@ -0,0 +1,19 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+/**
+ * L'interface {@link ITickable} définit les éléments du jeu mis à jour à chaque pas de
+ * la boucle de jeu (voir {@link GameLoop}).
+ *
+ * @version 0.1.0
+ */
+@FunctionalInterface
+public interface ITickable {
+
+    /**
+     * Met à jour cet élément pour un pas de la boucle de jeu.
+     *
+     * @param tick Le numéro du pas en cours, compté depuis le démarrage de la boucle.
+     */
+    void tick(long tick);
+
+}
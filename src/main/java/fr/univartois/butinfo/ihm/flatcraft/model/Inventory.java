@@ -0,0 +1,233 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * La classe {@link Inventory} représente l'inventaire d'un joueur, composé de
+ * {@link #SLOTS} emplacements contenant chacun une pile d'au plus {@link #MAX_STACK}
+ * ressources d'un même type.
+ * <p>
+ * Le nombre de ressources de chaque type est tenu à jour dans un tableau indexé par
+ * l'identifiant du type de bloc : la place occupée par l'inventaire ne dépend donc pas du
+ * nombre de ressources qu'il contient.
+ * Chaque modification ne concerne qu'un seul emplacement, dont les observateurs de
+ * l'inventaire sont informés.
+ *
+ * @version 0.1.0
+ */
+public final class Inventory {
+
+    /**
+     * Le nombre d'emplacements d'un inventaire.
+     */
+    public static final int SLOTS = 36;
+
+    /**
+     * Le nombre maximal de ressources d'une pile.
+     */
+    public static final int MAX_STACK = 64;
+
+    /**
+     * Les piles rangées dans les emplacements de cet inventaire ({@code null} pour un
+     * emplacement vide).
+     */
+    private final ItemStack[] stacks = new ItemStack[SLOTS];
+
+    /**
+     * Le nombre de ressources de chaque type dans cet inventaire, indexé par l'identifiant
+     * du type de bloc.
+     */
+    private int[] counts = new int[0];
+
+    /**
+     * Les observateurs de cet inventaire.
+     */
+    private final List<IInventoryListener> listeners = new ArrayList<>();
+
+    /**
+     * Ajoute une ressource à cet inventaire.
+     * La ressource complète la première pile de son type qui n'est pas pleine, ou à
+     * défaut occupe le premier emplacement vide.
+     *
+     * @param resource La ressource à ajouter.
+     * @return L'emplacement où la ressource a été rangée, ou {@code -1} si l'inventaire est
+     *         plein.
+     */
+    public int add(Resource resource) {
+        int empty = -1;
+        for (int slot = 0; slot < SLOTS; slot++) {
+            ItemStack stack = stacks[slot];
+            if (stack == null) {
+                if (empty < 0) {
+                    empty = slot;
+                }
+            } else if (stack.getResource().equals(resource) && !stack.isFull()) {
+                setStack(slot, new ItemStack(resource, stack.getCount() + 1));
+                return slot;
+            }
+        }
+
+        if (empty >= 0) {
+            setStack(empty, new ItemStack(resource, 1));
+        }
+        return empty;
+    }
+
+    /**
+     * Retire une ressource de cet inventaire.
+     * La ressource est prise dans la dernière pile de son type.
+     *
+     * @param resource La ressource à retirer.
+     * @return L'emplacement d'où la ressource a été retirée.
+     *
+     * @throws NoSuchElementException Si la ressource n'est pas présente dans l'inventaire.
+     */
+    public int remove(Resource resource) {
+        if (count(resource) == 0) {
+            throw new NoSuchElementException("No " + resource + " in inventory");
+        }
+
+        int slot = SLOTS - 1;
+        while (!resource.equals(getResource(slot))) {
+            slot--;
+        }
+        int count = stacks[slot].getCount() - 1;
+        setStack(slot, (count == 0) ? null : new ItemStack(resource, count));
+        return slot;
+    }
+
+    /**
+     * Donne le nombre de ressources d'un type dans cet inventaire.
+     *
+     * @param resource Le type de ressource.
+     * @return Le nombre de ressources de ce type.
+     */
+    public int count(Resource resource) {
+        int id = resource.getId();
+        return (id < counts.length) ? counts[id] : 0;
+    }
+
+    /**
+     * Vérifie si cet inventaire contient une ressource d'un type donné.
+     *
+     * @param resource Le type de ressource.
+     * @return Si l'inventaire contient au moins une ressource de ce type.
+     */
+    public boolean contains(Resource resource) {
+        return count(resource) > 0;
+    }
+
+    /**
+     * Donne la pile rangée dans un emplacement de cet inventaire.
+     *
+     * @param slot L'emplacement de la pile.
+     * @return La pile de cet emplacement, ou {@code null} s'il est vide.
+     *
+     * @throws IndexOutOfBoundsException Si l'emplacement n'existe pas.
+     */
+    public ItemStack getStack(int slot) {
+        return stacks[slot];
+    }
+
+    /**
+     * Donne le type des ressources rangées dans un emplacement de cet inventaire.
+     *
+     * @param slot L'emplacement.
+     * @return Le type des ressources de cet emplacement, ou {@code null} s'il est vide.
+     */
+    private Resource getResource(int slot) {
+        ItemStack stack = stacks[slot];
+        return (stack == null) ? null : stack.getResource();
+    }
+
+    /**
+     * Range une pile dans un emplacement de cet inventaire, en remplaçant celle qui s'y
+     * trouvait.
+     *
+     * @param slot  L'emplacement de la pile.
+     * @param stack La pile à ranger, ou {@code null} pour vider l'emplacement.
+     *
+     * @throws IndexOutOfBoundsException Si l'emplacement n'existe pas.
+     */
+    public void setStack(int slot, ItemStack stack) {
+        ItemStack previous = stacks[slot];
+        if (previous != null) {
+            counts[previous.getResource().getId()] -= previous.getCount();
+        }
+        if (stack != null) {
+            int id = stack.getResource().getId();
+            if (id >= counts.length) {
+                counts = Arrays.copyOf(counts, id + 1);
+            }
+            counts[id] += stack.getCount();
+        }
+
+        stacks[slot] = stack;
+        fireStackChanged(slot);
+    }
+
+    /**
+     * Donne le nombre total de ressources dans cet inventaire.
+     *
+     * @return Le nombre total de ressources.
+     */
+    public int getTotal() {
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Ajoute un observateur de cet inventaire.
+     *
+     * @param listener L'observateur à ajouter.
+     */
+    public void addListener(IInventoryListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Retire un observateur de cet inventaire.
+     *
+     * @param listener L'observateur à retirer.
+     */
+    public void removeListener(IInventoryListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Informe les observateurs de cet inventaire que l'un de ses emplacements a changé.
+     *
+     * @param slot L'emplacement qui a changé.
+     */
+    private void fireStackChanged(int slot) {
+        for (IInventoryListener listener : listeners) {
+            listener.stackChanged(this, slot);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (ItemStack stack : stacks) {
+            if (stack != null) {
+                if (builder.length() > 1) {
+                    builder.append(", ");
+                }
+                builder.append(stack);
+            }
+        }
+        return builder.append(']').toString();
+    }
+
+}
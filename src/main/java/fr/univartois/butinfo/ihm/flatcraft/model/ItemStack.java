@@ -0,0 +1,100 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+/**
+ * La classe {@link ItemStack} représente une pile de ressources d'un même type, rangée
+ * dans un emplacement d'un {@link Inventory}.
+ * Une pile n'est pas modifiable : lorsque le nombre de ressources d'un emplacement change,
+ * une nouvelle pile y est rangée.
+ *
+ * @version 0.1.0
+ */
+public final class ItemStack {
+
+    /**
+     * Le type des ressources de cette pile.
+     */
+    private final Resource resource;
+
+    /**
+     * Le nombre de ressources de cette pile.
+     */
+    private final int count;
+
+    /**
+     * Crée une nouvelle instance de ItemStack.
+     *
+     * @param resource Le type des ressources de la pile.
+     * @param count    Le nombre de ressources de la pile.
+     *
+     * @throws IllegalArgumentException Si le nombre de ressources n'est pas compris entre
+     *         1 et {@link Inventory#MAX_STACK}.
+     */
+    public ItemStack(Resource resource, int count) {
+        if ((count <= 0) || (count > Inventory.MAX_STACK)) {
+            throw new IllegalArgumentException("Incorrect stack size!");
+        }
+        this.resource = resource;
+        this.count = count;
+    }
+
+    /**
+     * Donne le type des ressources de cette pile.
+     *
+     * @return Le type des ressources de cette pile.
+     */
+    public Resource getResource() {
+        return resource;
+    }
+
+    /**
+     * Donne le nombre de ressources de cette pile.
+     *
+     * @return Le nombre de ressources de cette pile.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Vérifie si cette pile est pleine.
+     *
+     * @return Si cette pile contient {@link Inventory#MAX_STACK} ressources.
+     */
+    public boolean isFull() {
+        return count == Inventory.MAX_STACK;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return 31 * resource.hashCode() + count;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (other instanceof ItemStack stack) {
+            return resource.equals(stack.resource) && (count == stack.count);
+        }
+        return false;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return resource + " x" + count;
+    }
+
+}
@@ -0,0 +1,472 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+import java.util.Arrays;
+
+/**
+ * La classe {@link LightEngine} calcule l'éclairage de la carte.
+ * Deux lumières sont propagées séparément : celle du ciel, qui descend sans faiblir
+ * tant qu'elle ne rencontre aucun obstacle, et celle émise par certains blocs (comme les
+ * torches).
+ * Dans les deux cas, la lumière perd un niveau par cellule parcourue, plus l'atténuation
+ * propre au bloc traversé (voir {@link BlockRegistry#getLightOpacity(int)}).
+ * <p>
+ * L'éclairage d'un tronçon est calculé une fois, lors de sa génération.
+ * Ensuite, chaque modification d'un bloc ne recalcule que la zone concernée : la lumière
+ * qui provenait de la cellule modifiée est d'abord retirée par un parcours en largeur,
+ * puis la lumière des cellules voisines est propagée à nouveau.
+ * Seuls les tronçons déjà générés sont éclairés, ce qui évite de générer la carte de
+ * proche en proche.
+ *
+ * @version 0.1.0
+ */
+public final class LightEngine {
+
+    /**
+     * Le niveau de lumière maximal.
+     */
+    public static final int MAX_LEVEL = 15;
+
+    /**
+     * La position de la lumière du ciel dans l'octet d'une cellule.
+     */
+    static final int SKY = 0;
+
+    /**
+     * La position de la lumière des blocs dans l'octet d'une cellule.
+     */
+    static final int BLOCK = 4;
+
+    /**
+     * Les décalages de ligne vers les quatre cellules voisines (la dernière est celle du
+     * dessous).
+     */
+    private static final int[] DROWS = { -1, 0, 0, 1 };
+
+    /**
+     * Les décalages de colonne vers les quatre cellules voisines.
+     */
+    private static final int[] DCOLUMNS = { 0, -1, 1, 0 };
+
+    /**
+     * L'indice de la cellule du dessous dans {@link #DROWS} et {@link #DCOLUMNS}.
+     */
+    private static final int DOWN = 3;
+
+    /**
+     * La carte dont l'éclairage est calculé.
+     */
+    private final GameMap map;
+
+    /**
+     * Le registre des types de blocs de la carte.
+     */
+    private final BlockRegistry registry;
+
+    /**
+     * La file des cellules dont la lumière doit être retirée.
+     */
+    private final CellQueue removals = new CellQueue();
+
+    /**
+     * La file des cellules dont la lumière doit être propagée.
+     */
+    private final CellQueue additions = new CellQueue();
+
+    /**
+     * Le tronçon en cours d'éclairage initial, dont les modifications ne sont pas publiées.
+     */
+    private Chunk lighting;
+
+    /**
+     * Le nombre de cellules parcourues lors du dernier recalcul.
+     */
+    private int lastCost;
+
+    /**
+     * Le nombre maximal de cellules parcourues lors d'un recalcul.
+     */
+    private int maxCost;
+
+    /**
+     * Le nombre de recalculs effectués suite à la modification d'un bloc.
+     */
+    private long relights;
+
+    /**
+     * Le nombre total de cellules parcourues lors des recalculs.
+     */
+    private long totalCost;
+
+    /**
+     * Crée une nouvelle instance de LightEngine.
+     *
+     * @param map La carte dont l'éclairage doit être calculé.
+     */
+    LightEngine(GameMap map) {
+        this.map = map;
+        this.registry = map.getRegistry();
+    }
+
+    /**
+     * Calcule l'éclairage d'un tronçon qui vient d'être généré.
+     * La lumière des tronçons voisins déjà générés se propage dans ce tronçon, et
+     * inversement.
+     *
+     * @param chunk Le tronçon à éclairer.
+     */
+    void lightChunk(Chunk chunk) {
+        lighting = chunk;
+        int from = chunk.getFirstColumn();
+        int to = Math.min(from + Chunk.WIDTH, map.getWidth());
+
+        for (int channel = SKY; channel <= BLOCK; channel += BLOCK) {
+            for (int j = from; j < to; j++) {
+                if (channel == SKY) {
+                    seedSky(0, j);
+                } else {
+                    for (int i = 0; i < map.getHeight(); i++) {
+                        seedEmission(i, j);
+                    }
+                }
+            }
+            seedBorder(channel, from - 1);
+            seedBorder(channel, to);
+            propagate(channel);
+        }
+
+        lighting = null;
+    }
+
+    /**
+     * Recalcule l'éclairage autour d'une cellule dont le bloc vient d'être modifié.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     */
+    void blockChanged(int row, int column) {
+        lastCost = 0;
+        relight(SKY, row, column);
+        relight(BLOCK, row, column);
+        maxCost = Math.max(maxCost, lastCost);
+        totalCost += lastCost;
+        relights++;
+    }
+
+    /**
+     * Recalcule l'un des éclairages autour d'une cellule dont le bloc vient d'être modifié.
+     *
+     * @param channel L'éclairage à recalculer.
+     * @param row     La ligne de la cellule.
+     * @param column  La colonne de la cellule.
+     */
+    private void relight(int channel, int row, int column) {
+        // On retire d'abord toute la lumière provenant de la cellule modifiée.
+        int old = get(channel, row, column);
+        if (old > 0) {
+            set(channel, row, column, 0);
+            removals.add(row, column, old);
+        }
+
+        while (!removals.isEmpty()) {
+            long cell = removals.poll();
+            int level = removals.polledValue();
+            lastCost++;
+            for (int d = 0; d < DROWS.length; d++) {
+                int r = CellQueue.row(cell) + DROWS[d];
+                int c = CellQueue.column(cell) + DCOLUMNS[d];
+                int neighbour = get(channel, r, c);
+                if (neighbour <= 0) {
+                    continue;
+                }
+
+                if ((neighbour < level) || ((channel == SKY) && (d == DOWN) && (level == MAX_LEVEL))) {
+                    // Cette lumière provenait de la cellule retirée.
+                    set(channel, r, c, 0);
+                    removals.add(r, c, neighbour);
+                } else {
+                    // Cette lumière a une autre source : elle éclairera à nouveau la zone.
+                    additions.add(r, c, 0);
+                }
+            }
+        }
+
+        // On propage ensuite la lumière de la cellule et de ses voisines.
+        if (channel == SKY) {
+            seedSky(row, column);
+        } else {
+            seedEmission(row, column);
+        }
+        for (int d = 0; d < DROWS.length; d++) {
+            if (get(channel, row + DROWS[d], column + DCOLUMNS[d]) > 0) {
+                additions.add(row + DROWS[d], column + DCOLUMNS[d], 0);
+            }
+        }
+        propagate(channel);
+    }
+
+    /**
+     * Propage la lumière des cellules en attente dans {@link #additions}.
+     *
+     * @param channel L'éclairage à propager.
+     */
+    private void propagate(int channel) {
+        while (!additions.isEmpty()) {
+            long cell = additions.poll();
+            int row = CellQueue.row(cell);
+            int column = CellQueue.column(cell);
+            int level = get(channel, row, column);
+            lastCost++;
+            if (level <= 1) {
+                continue;
+            }
+
+            for (int d = 0; d < DROWS.length; d++) {
+                int r = row + DROWS[d];
+                int c = column + DCOLUMNS[d];
+                if (!isLoaded(r, c)) {
+                    continue;
+                }
+
+                int opacity = registry.getLightOpacity(map.getChunkBlock(r, c));
+                int candidate = level - 1 - opacity;
+                if ((channel == SKY) && (d == DOWN) && (level == MAX_LEVEL) && (opacity == 0)) {
+                    // La lumière du ciel descend sans faiblir.
+                    candidate = MAX_LEVEL;
+                }
+                if (candidate > get(channel, r, c)) {
+                    set(channel, r, c, candidate);
+                    additions.add(r, c, 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Éclaire une cellule de la première ligne de la carte par la lumière du ciel, si elle
+     * la laisse passer.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     */
+    private void seedSky(int row, int column) {
+        if ((row == 0) && (registry.getLightOpacity(map.getChunkBlock(row, column)) == 0)) {
+            set(SKY, row, column, MAX_LEVEL);
+            additions.add(row, column, 0);
+        }
+    }
+
+    /**
+     * Éclaire une cellule par la lumière qu'émet son bloc, s'il en émet.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     */
+    private void seedEmission(int row, int column) {
+        int emission = registry.getLightEmission(map.getChunkBlock(row, column));
+        if (emission > get(BLOCK, row, column)) {
+            set(BLOCK, row, column, emission);
+            additions.add(row, column, 0);
+        }
+    }
+
+    /**
+     * Ajoute les cellules éclairées d'une colonne voisine d'un tronçon en cours
+     * d'éclairage aux cellules dont la lumière doit être propagée.
+     *
+     * @param channel L'éclairage à propager.
+     * @param column  La colonne voisine.
+     */
+    private void seedBorder(int channel, int column) {
+        if (!isLoaded(0, column)) {
+            return;
+        }
+        for (int i = 0; i < map.getHeight(); i++) {
+            if (get(channel, i, column) > 1) {
+                additions.add(i, column, 0);
+            }
+        }
+    }
+
+    /**
+     * Vérifie si une cellule se trouve sur la carte, dans un tronçon déjà généré.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     * @return Si la cellule peut être éclairée.
+     */
+    private boolean isLoaded(int row, int column) {
+        return (0 <= row) && (row < map.getHeight()) && (0 <= column) && (column < map.getWidth())
+                && (map.findChunk(column) != null);
+    }
+
+    /**
+     * Donne l'un des niveaux de lumière d'une cellule.
+     *
+     * @param channel L'éclairage à consulter.
+     * @param row     La ligne de la cellule.
+     * @param column  La colonne de la cellule.
+     * @return Le niveau de lumière, ou {@code 0} si la cellule n'est pas éclairable.
+     */
+    private int get(int channel, int row, int column) {
+        if (!isLoaded(row, column)) {
+            return 0;
+        }
+        return map.findChunk(column).getLight(channel, row, column);
+    }
+
+    /**
+     * Modifie l'un des niveaux de lumière d'une cellule, et marque son éclairage comme
+     * modifié.
+     *
+     * @param channel L'éclairage à modifier.
+     * @param row     La ligne de la cellule.
+     * @param column  La colonne de la cellule.
+     * @param level   Le nouveau niveau de lumière.
+     */
+    private void set(int channel, int row, int column, int level) {
+        Chunk chunk = map.findChunk(column);
+        chunk.setLight(channel, row, column, level);
+        if (chunk != lighting) {
+            map.markLightChanged(chunk, row, column);
+        }
+    }
+
+    /**
+     * Donne le nombre de cellules parcourues lors du dernier recalcul de l'éclairage.
+     *
+     * @return Le coût du dernier recalcul.
+     */
+    public int getLastCost() {
+        return lastCost;
+    }
+
+    /**
+     * Donne le nombre maximal de cellules parcourues lors d'un recalcul de l'éclairage.
+     *
+     * @return Le coût du pire recalcul.
+     */
+    public int getMaxCost() {
+        return maxCost;
+    }
+
+    /**
+     * Donne le nombre de recalculs de l'éclairage effectués suite à la modification d'un
+     * bloc.
+     *
+     * @return Le nombre de recalculs.
+     */
+    public long getRelights() {
+        return relights;
+    }
+
+    /**
+     * Donne le nombre moyen de cellules parcourues lors d'un recalcul de l'éclairage.
+     *
+     * @return Le coût moyen d'un recalcul.
+     */
+    public double getAverageCost() {
+        if (relights == 0) {
+            return 0;
+        }
+        return (double) totalCost / relights;
+    }
+
+    /**
+     * La classe {@link CellQueue} est une file de cellules, chacune accompagnée d'une
+     * valeur, stockée dans des tableaux de types primitifs.
+     */
+    private static final class CellQueue {
+
+        /**
+         * Les cellules de la file, codées dans des entiers longs.
+         */
+        private long[] cells = new long[256];
+
+        /**
+         * Les valeurs associées aux cellules de la file.
+         */
+        private int[] values = new int[256];
+
+        /**
+         * L'indice de la première cellule de la file.
+         */
+        private int head;
+
+        /**
+         * L'indice suivant celui de la dernière cellule de la file.
+         */
+        private int tail;
+
+        /**
+         * Ajoute une cellule à la fin de cette file.
+         *
+         * @param row    La ligne de la cellule.
+         * @param column La colonne de la cellule.
+         * @param value  La valeur associée à la cellule.
+         */
+        void add(int row, int column, int value) {
+            if (tail == cells.length) {
+                cells = Arrays.copyOf(cells, cells.length * 2);
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            cells[tail] = ((long) row << 32) | (column & 0xFFFFFFFFL);
+            values[tail] = value;
+            tail++;
+        }
+
+        /**
+         * Vérifie si cette file est vide.
+         * Lorsqu'elle l'est, son espace est réutilisé depuis le début.
+         *
+         * @return Si cette file est vide.
+         */
+        boolean isEmpty() {
+            if (head == tail) {
+                head = 0;
+                tail = 0;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Retire la première cellule de cette file.
+         *
+         * @return La cellule retirée, codée dans un entier long.
+         */
+        long poll() {
+            return cells[head++];
+        }
+
+        /**
+         * Donne la valeur associée à la dernière cellule retirée de cette file.
+         *
+         * @return La valeur de la dernière cellule retirée.
+         */
+        int polledValue() {
+            return values[head - 1];
+        }
+
+        /**
+         * Donne la ligne d'une cellule codée.
+         *
+         * @param cell La cellule codée.
+         * @return La ligne de la cellule.
+         */
+        static int row(long cell) {
+            return (int) (cell >> 32);
+        }
+
+        /**
+         * Donne la colonne d'une cellule codée.
+         *
+         * @param cell La cellule codée.
+         * @return La colonne de la cellule.
+         */
+        static int column(long cell) {
+            return (int) cell;
+        }
+
+    }
+
+}
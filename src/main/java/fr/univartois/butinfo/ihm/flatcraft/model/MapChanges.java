@@ -0,0 +1,91 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+import java.util.Arrays;
+
+/**
+ * La classe {@link MapChanges} regroupe les positions des cellules d'une {@link GameMap}
+ * modifiées depuis la dernière publication des modifications de la carte.
+ * Chaque position n'y apparaît qu'une seule fois, même si la cellule correspondante a été
+ * modifiée plusieurs fois.
+ *
+ * @version 0.1.0
+ */
+public final class MapChanges {
+
+    /**
+     * Les lignes des cellules modifiées.
+     */
+    private int[] rows = new int[64];
+
+    /**
+     * Les colonnes des cellules modifiées.
+     */
+    private int[] columns = new int[64];
+
+    /**
+     * Le nombre de cellules modifiées.
+     */
+    private int size;
+
+    /**
+     * Ajoute une cellule modifiée.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     */
+    void add(int row, int column) {
+        if (size == rows.length) {
+            rows = Arrays.copyOf(rows, 2 * size);
+            columns = Arrays.copyOf(columns, 2 * size);
+        }
+        rows[size] = row;
+        columns[size] = column;
+        size++;
+    }
+
+    /**
+     * Vide cet ensemble de modifications.
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Donne le nombre de cellules modifiées.
+     *
+     * @return Le nombre de cellules modifiées.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Vérifie s'il n'y a aucune cellule modifiée.
+     *
+     * @return S'il n'y a aucune cellule modifiée.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Donne la ligne de la {@code index}-ième cellule modifiée.
+     *
+     * @param index L'indice de la modification.
+     * @return La ligne de la cellule modifiée.
+     */
+    public int getRow(int index) {
+        return rows[index];
+    }
+
+    /**
+     * Donne la colonne de la {@code index}-ième cellule modifiée.
+     *
+     * @param index L'indice de la modification.
+     * @return La colonne de la cellule modifiée.
+     */
+    public int getColumn(int index) {
+        return columns[index];
+    }
+
+}
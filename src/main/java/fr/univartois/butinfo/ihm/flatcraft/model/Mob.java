@@ -14,17 +14,14 @@ package fr.univartois.butinfo.ihm.flatcraft.model; /**
  * Tous droits réservés.
  */
 
-import javafx.animation.Animation;
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
-import javafx.scene.image.Image;
-import javafx.util.Duration;
-
-import java.util.Random;
+import java.util.List;
+import java.util.SplittableRandom;
 
 /**
  * La classe fr.univartois.butinfo.ihm.flatcraft.model.Mob représente une créature vivante du jeu Flatcraft.
- * Celle-ci peut se déplacer seule, sans avoir besoin d'être contrôlée par le joueur.
+ * Celle-ci peut se déplacer seule, sans avoir besoin d'être contrôlée par le joueur :
+ * elle se dirige vers le joueur lorsqu'il est assez proche (en suivant un chemin calculé
+ * par le {@link NavigationGrid} de la carte), et se déplace au hasard sinon.
  *
  * @author Romain Wallon
  * @version 0.1.0
@@ -33,44 +30,109 @@ public final class Mob extends AbstractMovable {
 
     /**
      * Le générateur de nombres pseudo-aléatoires utilisé pour les déplacements aléatoires
-     * des mobs.
+     * de ce mob.
+     */
+    private final SplittableRandom random;
+
+    /**
+     * Le pas de la boucle de jeu à partir duquel ce mob se déplace à nouveau.
+     */
+    private long nextMove = -1;
+
+    /**
+     * Si ce mob agit lors du pas en cours.
      */
-    private static final Random RANDOM = new Random();
+    private boolean acting;
 
     /**
-     * La timeline permettant d'animer le mob.
+     * Le déplacement choisi pour le pas en cours, ou {@code null} si ce mob reste sur
+     * place.
      */
-    private Timeline timeline;
+    private Direction planned;
 
     /**
      * Crée une nouvelle instance de fr.univartois.butinfo.ihm.flatcraft.model.Mob.
      *
      * @param game          Le jeu dans lequel le mob évolue.
-     * @param sprite        Le sprite représentant le mob.
+     * @param spriteName    Le nom du sprite représentant le mob.
      * @param initialHealth Les points de vie initiaux du mob.
      */
-    public Mob(FlatcraftGame game, Image sprite, int initialHealth) {
-        super(game, sprite, initialHealth);
+    public Mob(FlatcraftGame game, String spriteName, int initialHealth) {
+        super(game, spriteName, initialHealth);
+        this.random = game.splitRandom();
     }
 
     /**
-     * Anime ce mob afin qu'il se déplace seul.
+     * Anime ce mob afin qu'il se déplace seul, une fois par seconde de jeu.
      */
     public void animate() {
-        timeline = new Timeline(new KeyFrame(Duration.seconds(1), e -> moveRandomly()));
-        timeline.setCycleCount(Animation.INDEFINITE);
-        timeline.play();
+        game.getMobUpdater().add(this);
+    }
+
+    /**
+     * Choisit le déplacement de ce mob pour le pas en cours, sans modifier la partie.
+     * Cette méthode peut être appelée en parallèle pour plusieurs mobs (voir
+     * {@link MobUpdater}).
+     *
+     * @param tick Le numéro du pas en cours.
+     */
+    void plan(long tick) {
+        acting = false;
+        if (nextMove < 0) {
+            nextMove = tick + game.getGameLoop().getTickRate();
+
+        } else if (tick >= nextMove) {
+            acting = true;
+            planned = chooseMove();
+            nextMove = tick + game.getGameLoop().getTickRate();
+        }
+    }
+
+    /**
+     * Réalise le déplacement choisi pour le pas en cours, puis blesse le joueur s'il se
+     * trouve dans la même cellule.
+     */
+    void commit() {
+        if (acting) {
+            if (planned != null) {
+                planned.apply(game, this);
+            }
+            attack();
+        }
     }
 
     /**
-     * Réalise un déplacement aléatoire de ce mob.
+     * Choisit le premier déplacement du plus court chemin menant de ce mob au joueur.
+     * Le chemin est recalculé à chaque déplacement, afin de suivre le joueur et les
+     * modifications de la carte.
+     * Si le joueur est trop loin, ou si aucun déplacement ne permet de s'en rapprocher, le
+     * mob se déplace au hasard (sauf s'il a déjà rejoint le joueur).
+     *
+     * @return Le déplacement choisi, ou {@code null} si le mob reste sur place.
      */
-    private void moveRandomly() {
-        if (RANDOM.nextBoolean()) {
-            game.moveLeft(this);
+    private Direction chooseMove() {
+        Player player = game.getJoueur();
+        if ((player != null) && (Math.abs(player.getColumn() - getColumn()) <= NavigationGrid.SEARCH_RADIUS)) {
+            List<Direction> path = game.getMap().getNavigation().findPath(
+                    getRow(), getColumn(), player.getRow(), player.getColumn());
+            if (!path.isEmpty()) {
+                return path.get(0);
+            }
+            if ((player.getRow() == getRow()) && (player.getColumn() == getColumn())) {
+                return null;
+            }
+        }
+        return random.nextBoolean() ? Direction.LEFT : Direction.RIGHT;
+    }
 
-        } else {
-            game.moveRight(this);
+    /**
+     * Blesse le joueur si ce mob se trouve dans la même cellule que lui.
+     */
+    private void attack() {
+        for (AbstractMovable movable : game.getEntities().getAt(getRow(), getColumn())) {
+            if (movable instanceof Player player) {
+                player.decrementHealth();
+            }
         }
     }
 
@@ -83,7 +145,7 @@ public final class Mob extends AbstractMovable {
     public void decrementHealth() {
         super.decrementHealth();
         if (getHealth() == 0) {
-            timeline.stop();
+            game.getMobUpdater().remove(this);
         }
     }
 
@@ -0,0 +1,151 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * La classe {@link MobUpdater} anime les mobs de la partie, à chaque pas de la boucle de
+ * jeu.
+ * Chaque pas se déroule en deux phases : les mobs choisissent d'abord leur déplacement
+ * (ce qui comprend la recherche d'un chemin vers le joueur) en parallèle, sans modifier la
+ * partie ; les déplacements choisis sont ensuite réalisés un à un, dans l'ordre
+ * d'apparition des mobs.
+ * Les choix de chaque mob ne dépendant que de l'état de la partie au début du pas et de son
+ * propre générateur de nombres pseudo-aléatoires, le résultat ne dépend pas du nombre de
+ * fils d'exécution.
+ *
+ * @version 0.1.0
+ */
+public final class MobUpdater implements ITickable {
+
+    /**
+     * Le nombre de mobs en dessous duquel les déplacements sont choisis séquentiellement,
+     * le coût du parallélisme dépassant alors son bénéfice.
+     */
+    private static final int PARALLEL_THRESHOLD = 64;
+
+    /**
+     * Les mobs animés, dans l'ordre de leur apparition.
+     */
+    private final List<Mob> mobs = new ArrayList<>();
+
+    /**
+     * Les mobs à animer à partir du prochain pas.
+     */
+    private final List<Mob> added = new ArrayList<>();
+
+    /**
+     * Les mobs à ne plus animer à partir du prochain pas.
+     */
+    private final List<Mob> removed = new ArrayList<>();
+
+    /**
+     * Ajoute un mob à animer, à partir du prochain pas.
+     *
+     * @param mob Le mob à animer.
+     */
+    public void add(Mob mob) {
+        added.add(mob);
+    }
+
+    /**
+     * Retire un mob animé, à partir du prochain pas.
+     *
+     * @param mob Le mob à ne plus animer.
+     */
+    public void remove(Mob mob) {
+        removed.add(mob);
+    }
+
+    /**
+     * Donne le nombre de mobs animés.
+     *
+     * @return Le nombre de mobs animés.
+     */
+    public int size() {
+        return mobs.size();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see fr.univartois.butinfo.ihm.flatcraft.model.ITickable#tick(long)
+     */
+    @Override
+    public void tick(long tick) {
+        mobs.removeAll(removed);
+        removed.clear();
+        mobs.addAll(added);
+        added.clear();
+
+        if (mobs.size() >= PARALLEL_THRESHOLD) {
+            ForkJoinPool.commonPool().invoke(new PlanTask(tick, 0, mobs.size()));
+        } else {
+            for (Mob mob : mobs) {
+                mob.plan(tick);
+            }
+        }
+
+        for (Mob mob : mobs) {
+            mob.commit();
+        }
+    }
+
+    /**
+     * La classe {@link PlanTask} fait choisir leur déplacement à un ensemble de mobs.
+     * Si l'ensemble est assez grand, il est découpé en deux tâches exécutées en parallèle.
+     */
+    private final class PlanTask extends RecursiveAction {
+
+        /**
+         * L'identifiant de version de cette classe (ses instances ne sont jamais
+         * sérialisées, mais {@link RecursiveAction} est {@link java.io.Serializable}).
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Le numéro du pas en cours.
+         */
+        private final long tick;
+
+        /**
+         * L'indice du premier mob à traiter.
+         */
+        private final int from;
+
+        /**
+         * L'indice suivant celui du dernier mob à traiter.
+         */
+        private final int to;
+
+        /**
+         * Crée une nouvelle instance de PlanTask.
+         *
+         * @param tick Le numéro du pas en cours.
+         * @param from L'indice du premier mob à traiter.
+         * @param to   L'indice suivant celui du dernier mob à traiter.
+         */
+        PlanTask(long tick, int from, int to) {
+            this.tick = tick;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if ((to - from) <= PARALLEL_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    mobs.get(i).plan(tick);
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new PlanTask(tick, from, middle), new PlanTask(tick, middle, to));
+        }
+
+    }
+
+}
@@ -0,0 +1,605 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * La classe {@link NavigationGrid} représente le graphe des déplacements possibles sur la
+ * carte, et permet d'y rechercher des chemins.
+ * Les arcs de ce graphe suivent exactement les règles de déplacement de
+ * {@link FlatcraftGame} : avancer d'une colonne (puis tomber), grimper sur un bloc, ou
+ * monter et descendre le long d'une échelle.
+ * <p>
+ * Les déplacements possibles depuis chaque cellule sont conservés dans son tronçon, et
+ * calculés colonne par colonne lors de leur première utilisation.
+ * Lorsqu'un bloc change, seules sa colonne et les deux colonnes voisines sont à
+ * recalculer : de nombreux objets mobiles peuvent donc rechercher un chemin à chaque pas
+ * sans reconstruire le graphe.
+ * Seuls les tronçons chargés sont parcourus, ce qui évite de générer la carte de
+ * proche en proche.
+ * <p>
+ * Les chemins sont recherchés avec l'algorithme A*, dans une fenêtre de
+ * {@link #SEARCH_RADIUS} colonnes de part et d'autre du point de départ.
+ * Les structures utilisées pendant la recherche sont propres à chaque fil d'exécution, et
+ * réutilisées d'une recherche à l'autre.
+ * Plusieurs chemins peuvent ainsi être recherchés en parallèle, tant que la carte n'est pas
+ * modifiée pendant ces recherches.
+ *
+ * @version 0.1.0
+ */
+public final class NavigationGrid {
+
+    /**
+     * Le nombre de colonnes parcourues, de part et d'autre du point de départ, lors de la
+     * recherche d'un chemin.
+     */
+    public static final int SEARCH_RADIUS = 48;
+
+    /**
+     * Le nombre maximal de cellules examinées lors de la recherche d'un chemin.
+     */
+    private static final int MAX_EXPANDED = 2048;
+
+    /**
+     * L'indicateur d'un déplacement vers la gauche, suivi d'une éventuelle chute.
+     */
+    static final int WALK_LEFT = 1;
+
+    /**
+     * L'indicateur d'un déplacement vers la gauche en grimpant sur un bloc.
+     */
+    static final int CLIMB_LEFT = 2;
+
+    /**
+     * L'indicateur d'un déplacement vers la droite, suivi d'une éventuelle chute.
+     */
+    static final int WALK_RIGHT = 4;
+
+    /**
+     * L'indicateur d'un déplacement vers la droite en grimpant sur un bloc.
+     */
+    static final int CLIMB_RIGHT = 8;
+
+    /**
+     * L'indicateur de la montée le long d'une échelle.
+     */
+    static final int UP = 16;
+
+    /**
+     * L'indicateur de la descente le long d'une échelle.
+     */
+    static final int DOWN = 32;
+
+    /**
+     * Les directions, indexées par leur rang dans l'énumération.
+     */
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /**
+     * La carte sur laquelle les chemins sont recherchés.
+     */
+    private final GameMap map;
+
+    /**
+     * Le registre des types de blocs de la carte.
+     */
+    private final BlockRegistry registry;
+
+    /**
+     * Les structures de recherche de chaque fil d'exécution.
+     */
+    private final ThreadLocal<Search> search = ThreadLocal.withInitial(Search::new);
+
+    /**
+     * Le nombre de recherches de chemins effectuées.
+     */
+    private final LongAdder searches = new LongAdder();
+
+    /**
+     * Le nombre total de cellules examinées lors des recherches.
+     */
+    private final LongAdder expanded = new LongAdder();
+
+    /**
+     * Le nombre de colonnes dont les déplacements ont été calculés.
+     */
+    private final LongAdder computedColumns = new LongAdder();
+
+    /**
+     * Crée une nouvelle instance de NavigationGrid.
+     *
+     * @param map La carte sur laquelle les chemins sont recherchés.
+     */
+    NavigationGrid(GameMap map) {
+        this.map = map;
+        this.registry = map.getRegistry();
+    }
+
+    /**
+     * Recherche le plus court chemin entre deux cellules de la carte.
+     * Si la cellule d'arrivée ne peut pas être atteinte, le chemin mène à la cellule la plus
+     * proche de celle-ci parmi celles qui ont été examinées.
+     *
+     * @param fromRow    La ligne de la cellule de départ.
+     * @param fromColumn La colonne de la cellule de départ.
+     * @param toRow      La ligne de la cellule d'arrivée.
+     * @param toColumn   La colonne de la cellule d'arrivée.
+     * @return La suite des déplacements à réaliser, qui est vide si aucun déplacement ne
+     *         rapproche de la cellule d'arrivée (ou si la cellule de départ n'est pas
+     *         chargée).
+     */
+    public List<Direction> findPath(int fromRow, int fromColumn, int toRow, int toColumn) {
+        if (!isLoaded(fromColumn)) {
+            return List.of();
+        }
+        return search.get().find(fromRow, fromColumn, toRow, toColumn);
+    }
+
+    /**
+     * Estime le nombre minimal de déplacements nécessaires pour aller d'une cellule à une
+     * autre.
+     * Chaque déplacement change la colonne d'au plus une unité et ne fait monter que d'une
+     * ligne au plus (seules les chutes font descendre de plusieurs lignes) : cette
+     * estimation ne surestime donc jamais la longueur d'un chemin.
+     *
+     * @param row      La ligne de la cellule de départ.
+     * @param column   La colonne de la cellule de départ.
+     * @param toRow    La ligne de la cellule d'arrivée.
+     * @param toColumn La colonne de la cellule d'arrivée.
+     * @return L'estimation du nombre de déplacements.
+     */
+    private static int estimate(int row, int column, int toRow, int toColumn) {
+        return Math.max(Math.abs(toColumn - column), row - toRow);
+    }
+
+    /**
+     * Donne la distance entre deux cellules, utilisée pour choisir la cellule la plus
+     * proche de l'arrivée lorsque celle-ci ne peut pas être atteinte.
+     *
+     * @param row      La ligne de la première cellule.
+     * @param column   La colonne de la première cellule.
+     * @param toRow    La ligne de la seconde cellule.
+     * @param toColumn La colonne de la seconde cellule.
+     * @return La distance entre les deux cellules.
+     */
+    private static int distance(int row, int column, int toRow, int toColumn) {
+        return Math.abs(toColumn - column) + Math.abs(toRow - row);
+    }
+
+    /**
+     * Donne la ligne sur laquelle atterrit un objet mobile arrivant dans une colonne.
+     *
+     * @param row    La ligne à laquelle l'objet arrive dans la colonne.
+     * @param column La colonne dans laquelle l'objet arrive.
+     * @return La ligne sur laquelle l'objet s'arrête (ou celle à laquelle il arrive, si la
+     *         colonne n'est pas chargée).
+     */
+    private int landingRow(int row, int column) {
+        Chunk chunk = map.loadedChunk(column);
+        if (chunk == null) {
+            return row;
+        }
+        return chunk.nextSolidRow(row + 1, column) - 1;
+    }
+
+    /**
+     * Donne les déplacements possibles depuis une cellule, en les calculant pour toute sa
+     * colonne s'ils ne sont pas à jour.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     * @return Les déplacements possibles, sous la forme d'indicateurs (aucun si la cellule
+     *         n'appartient pas à un tronçon chargé).
+     */
+    int getMoves(int row, int column) {
+        Chunk chunk = map.loadedChunk(column);
+        if (chunk == null) {
+            return 0;
+        }
+        if (!chunk.isNavigable(column)) {
+            computeColumn(chunk, column);
+        }
+        return chunk.getMoves(row, column);
+    }
+
+    /**
+     * Calcule les déplacements possibles depuis toutes les cellules d'une colonne.
+     *
+     * @param chunk  Le tronçon contenant la colonne.
+     * @param column La colonne dont les déplacements sont calculés.
+     */
+    private void computeColumn(Chunk chunk, int column) {
+        boolean left = isLoaded(column - 1);
+        boolean right = isLoaded(column + 1);
+        for (int row = 0; row < map.getHeight(); row++) {
+            int moves = 0;
+            if (left) {
+                moves |= sideMoves(row, column - 1, WALK_LEFT, CLIMB_LEFT);
+            }
+            if (right) {
+                moves |= sideMoves(row, column + 1, WALK_RIGHT, CLIMB_RIGHT);
+            }
+            if ((row > 0) && hasFlag(row, column, BlockType.CLIMBABLE) && !hasFlag(row - 1, column, BlockType.SOLID)) {
+                moves |= UP;
+            }
+            if ((row + 1 < map.getHeight()) && hasFlag(row + 1, column, BlockType.CLIMBABLE)) {
+                moves |= DOWN;
+            }
+            chunk.setMoves(row, column, moves);
+        }
+        chunk.setNavigable(column, true);
+        computedColumns.increment();
+    }
+
+    /**
+     * Donne le déplacement possible vers une colonne voisine, en suivant les règles de
+     * {@link FlatcraftGame} : l'objet avance si la cellule voisine n'est pas solide, et
+     * grimpe dessus sinon, si la cellule au-dessus d'elle est libre.
+     *
+     * @param row    La ligne de départ.
+     * @param target La colonne voisine.
+     * @param walk   L'indicateur du déplacement en avançant.
+     * @param climb  L'indicateur du déplacement en grimpant.
+     * @return L'indicateur du déplacement possible, ou {@code 0} s'il n'y en a pas.
+     */
+    private int sideMoves(int row, int target, int walk, int climb) {
+        if (!hasFlag(row, target, BlockType.SOLID)) {
+            return walk;
+        }
+        if ((row > 0) && !hasFlag(row - 1, target, BlockType.SOLID)) {
+            return climb;
+        }
+        return 0;
+    }
+
+    /**
+     * Vérifie si le bloc d'une cellule d'un tronçon chargé possède un indicateur.
+     *
+     * @param row    La ligne de la cellule.
+     * @param column La colonne de la cellule.
+     * @param flag   L'indicateur à vérifier.
+     * @return Si le bloc de la cellule possède l'indicateur, ou {@code false} si la cellule
+     *         n'appartient pas à un tronçon chargé.
+     */
+    private boolean hasFlag(int row, int column, int flag) {
+        Chunk chunk = map.loadedChunk(column);
+        return (chunk != null) && registry.hasFlag(chunk.getBlock(row, column), flag);
+    }
+
+    /**
+     * Vérifie si une colonne se trouve sur la carte, dans un tronçon déjà généré.
+     *
+     * @param column La colonne à vérifier.
+     * @return Si la colonne peut être parcourue.
+     */
+    private boolean isLoaded(int column) {
+        return (0 <= column) && (column < map.getWidth()) && (map.loadedChunk(column) != null);
+    }
+
+    /**
+     * Invalide les déplacements qui dépendent d'un bloc venant de changer, c'est-à-dire
+     * ceux de sa colonne et des deux colonnes voisines.
+     *
+     * @param column La colonne du bloc modifié.
+     */
+    void blockChanged(int column) {
+        for (int j = column - 1; j <= column + 1; j++) {
+            invalidate(j);
+        }
+    }
+
+    /**
+     * Invalide les déplacements des colonnes voisines d'un tronçon qui vient d'être généré,
+     * qui peuvent désormais mener dans ce tronçon.
+     *
+     * @param chunk Le tronçon généré.
+     */
+    void chunkLoaded(Chunk chunk) {
+        invalidate(chunk.getFirstColumn() - 1);
+        invalidate(chunk.getFirstColumn() + Chunk.WIDTH);
+    }
+
+    /**
+     * Invalide les déplacements des colonnes voisines d'un tronçon qui vient d'être
+     * refroidi, qui ne peuvent plus mener dans ce tronçon.
+     *
+     * @param chunk Le tronçon refroidi.
+     */
+    void chunkUnloaded(Chunk chunk) {
+        invalidate(chunk.getFirstColumn() - 1);
+        invalidate(chunk.getFirstColumn() + Chunk.WIDTH);
+    }
+
+    /**
+     * Invalide les déplacements d'une colonne, si elle appartient à un tronçon déjà généré.
+     *
+     * @param column La colonne à invalider.
+     */
+    private void invalidate(int column) {
+        if (isLoaded(column)) {
+            map.loadedChunk(column).setNavigable(column, false);
+        }
+    }
+
+    /**
+     * Donne le nombre de recherches de chemins effectuées.
+     *
+     * @return Le nombre de recherches.
+     */
+    public long getSearches() {
+        return searches.sum();
+    }
+
+    /**
+     * Donne le nombre moyen de cellules examinées lors d'une recherche de chemin.
+     *
+     * @return Le coût moyen d'une recherche.
+     */
+    public double getAverageExpanded() {
+        long count = searches.sum();
+        if (count == 0) {
+            return 0;
+        }
+        return (double) expanded.sum() / count;
+    }
+
+    /**
+     * Donne le nombre de colonnes dont les déplacements ont été calculés, y compris les
+     * recalculs suite à une modification de la carte.
+     *
+     * @return Le nombre de colonnes calculées.
+     */
+    public long getComputedColumns() {
+        return computedColumns.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d recherches de chemin (%.1f cellules examinées en moyenne), %d colonnes calculées",
+                getSearches(), getAverageExpanded(), getComputedColumns());
+    }
+
+    /**
+     * La classe {@link Search} contient les structures utilisées pendant la recherche d'un
+     * chemin.
+     * Chaque fil d'exécution dispose de la sienne, réutilisée d'une recherche à l'autre.
+     */
+    private final class Search {
+
+        /**
+         * Le numéro de la recherche en cours, qui permet de savoir quelles cellules ont été
+         * atteintes sans effacer les tableaux entre deux recherches.
+         */
+        private int stamp;
+
+        /**
+         * Le numéro de la dernière recherche ayant atteint chaque cellule de la fenêtre.
+         */
+        private int[] reached = new int[0];
+
+        /**
+         * Le numéro de la dernière recherche ayant examiné chaque cellule de la fenêtre.
+         */
+        private int[] closed = new int[0];
+
+        /**
+         * La longueur du plus court chemin connu vers chaque cellule de la fenêtre.
+         */
+        private int[] cost = new int[0];
+
+        /**
+         * La cellule précédant chaque cellule de la fenêtre sur le plus court chemin connu.
+         */
+        private int[] parent = new int[0];
+
+        /**
+         * Le déplacement menant à chaque cellule de la fenêtre depuis la précédente.
+         */
+        private byte[] via = new byte[0];
+
+        /**
+         * Le tas binaire des cellules à examiner, chacune codée avec son coût estimé dans les
+         * bits de poids fort.
+         */
+        private long[] heap = new long[256];
+
+        /**
+         * Le nombre de cellules présentes dans le tas.
+         */
+        private int heapSize;
+
+        /**
+         * Recherche le plus court chemin entre deux cellules de la carte.
+         *
+         * @param fromRow    La ligne de la cellule de départ.
+         * @param fromColumn La colonne de la cellule de départ.
+         * @param toRow      La ligne de la cellule d'arrivée.
+         * @param toColumn   La colonne de la cellule d'arrivée.
+         * @return La suite des déplacements à réaliser.
+         */
+        List<Direction> find(int fromRow, int fromColumn, int toRow, int toColumn) {
+            int height = map.getHeight();
+            int minColumn = Math.max(0, fromColumn - SEARCH_RADIUS);
+            int maxColumn = Math.min(map.getWidth() - 1, fromColumn + SEARCH_RADIUS);
+            prepareSearch((maxColumn - minColumn + 1) * height);
+
+            int start = (fromColumn - minColumn) * height + fromRow;
+            reached[start] = stamp;
+            cost[start] = 0;
+            parent[start] = -1;
+            push(estimate(fromRow, fromColumn, toRow, toColumn), start);
+
+            int best = start;
+            int bestDistance = distance(fromRow, fromColumn, toRow, toColumn);
+            int examined = 0;
+            while ((heapSize > 0) && (examined < MAX_EXPANDED)) {
+                int node = pop();
+                if (closed[node] == stamp) {
+                    continue;
+                }
+                closed[node] = stamp;
+                examined++;
+
+                int row = node % height;
+                int column = minColumn + (node / height);
+                int remaining = distance(row, column, toRow, toColumn);
+                if ((remaining < bestDistance) || ((remaining == bestDistance) && (cost[node] < cost[best]))) {
+                    best = node;
+                    bestDistance = remaining;
+                }
+                if (remaining == 0) {
+                    break;
+                }
+
+                int moves = getMoves(row, column);
+                if ((moves & WALK_LEFT) != 0) {
+                    relax(node, landingRow(row, column - 1), column - 1, Direction.LEFT, minColumn, maxColumn, toRow, toColumn);
+                } else if ((moves & CLIMB_LEFT) != 0) {
+                    relax(node, row - 1, column - 1, Direction.LEFT, minColumn, maxColumn, toRow, toColumn);
+                }
+                if ((moves & WALK_RIGHT) != 0) {
+                    relax(node, landingRow(row, column + 1), column + 1, Direction.RIGHT, minColumn, maxColumn, toRow, toColumn);
+                } else if ((moves & CLIMB_RIGHT) != 0) {
+                    relax(node, row - 1, column + 1, Direction.RIGHT, minColumn, maxColumn, toRow, toColumn);
+                }
+                if ((moves & UP) != 0) {
+                    relax(node, row - 1, column, Direction.UP, minColumn, maxColumn, toRow, toColumn);
+                }
+                if ((moves & DOWN) != 0) {
+                    relax(node, row + 1, column, Direction.DOWN, minColumn, maxColumn, toRow, toColumn);
+                }
+            }
+
+            searches.increment();
+            expanded.add(examined);
+            return buildPath(best);
+        }
+
+        /**
+         * Prépare les structures utilisées pendant une recherche pour une fenêtre d'une taille
+         * donnée.
+         *
+         * @param size Le nombre de cellules de la fenêtre.
+         */
+        private void prepareSearch(int size) {
+            if (reached.length < size) {
+                reached = new int[size];
+                closed = new int[size];
+                cost = new int[size];
+                parent = new int[size];
+                via = new byte[size];
+                stamp = 0;
+            }
+
+            stamp++;
+            if (stamp == 0) {
+                Arrays.fill(reached, 0);
+                Arrays.fill(closed, 0);
+                stamp = 1;
+            }
+            heapSize = 0;
+        }
+
+        /**
+         * Met à jour le plus court chemin connu vers une cellule atteinte depuis une autre.
+         *
+         * @param node      La cellule de départ, dans la fenêtre.
+         * @param row       La ligne de la cellule atteinte.
+         * @param column    La colonne de la cellule atteinte.
+         * @param direction Le déplacement réalisé.
+         * @param minColumn La première colonne de la fenêtre.
+         * @param maxColumn La dernière colonne de la fenêtre.
+         * @param toRow     La ligne de la cellule d'arrivée.
+         * @param toColumn  La colonne de la cellule d'arrivée.
+         */
+        private void relax(int node, int row, int column, Direction direction, int minColumn, int maxColumn,
+                int toRow, int toColumn) {
+            if ((column < minColumn) || (maxColumn < column)) {
+                return;
+            }
+
+            int next = (column - minColumn) * map.getHeight() + row;
+            int length = cost[node] + 1;
+            if ((reached[next] != stamp) || (length < cost[next])) {
+                reached[next] = stamp;
+                cost[next] = length;
+                parent[next] = node;
+                via[next] = (byte) direction.ordinal();
+                push(length + estimate(row, column, toRow, toColumn), next);
+            }
+        }
+
+        /**
+         * Construit la suite des déplacements menant à une cellule lors de la dernière
+         * recherche.
+         *
+         * @param node La cellule d'arrivée, dans la fenêtre.
+         * @return La suite des déplacements menant à la cellule.
+         */
+        private List<Direction> buildPath(int node) {
+            if (parent[node] < 0) {
+                return Collections.emptyList();
+            }
+
+            List<Direction> path = new ArrayList<>(cost[node]);
+            for (int current = node; parent[current] >= 0; current = parent[current]) {
+                path.add(DIRECTIONS[via[current]]);
+            }
+            Collections.reverse(path);
+            return path;
+        }
+
+        /**
+         * Ajoute une cellule au tas des cellules à examiner.
+         *
+         * @param priority Le coût estimé d'un chemin passant par la cellule.
+         * @param node     La cellule, dans la fenêtre.
+         */
+        private void push(int priority, int node) {
+            if (heapSize == heap.length) {
+                heap = Arrays.copyOf(heap, heap.length * 2);
+            }
+
+            long entry = ((long) priority << 32) | node;
+            int i = heapSize++;
+            while (i > 0) {
+                int up = (i - 1) >>> 1;
+                if (heap[up] <= entry) {
+                    break;
+                }
+                heap[i] = heap[up];
+                i = up;
+            }
+            heap[i] = entry;
+        }
+
+        /**
+         * Retire du tas la cellule dont le coût estimé est le plus faible.
+         *
+         * @return La cellule retirée, dans la fenêtre.
+         */
+        private int pop() {
+            long top = heap[0];
+            long last = heap[--heapSize];
+            int i = 0;
+            int child;
+            while ((child = 2 * i + 1) < heapSize) {
+                if ((child + 1 < heapSize) && (heap[child + 1] < heap[child])) {
+                    child++;
+                }
+                if (last <= heap[child]) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+            return (int) top;
+        }
+
+    }
+
+}
@@ -0,0 +1,87 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+import java.util.SplittableRandom;
+
+/**
+ * La classe {@link OreVeinPass} est la passe de génération ajoutant des filons d'un
+ * minerai dans le sous-sol de la carte.
+ * Chaque filon est une marche aléatoire qui ne remplace que de la terre.
+ *
+ * @version 0.1.0
+ */
+public final class OreVeinPass implements IGenerationPass {
+
+    /**
+     * L'identifiant du type de bloc du minerai.
+     */
+    private final int ore;
+
+    /**
+     * Le nombre de filons par tronçon.
+     */
+    private final int veinsPerChunk;
+
+    /**
+     * Le nombre maximal de blocs d'un filon.
+     */
+    private final int veinSize;
+
+    /**
+     * La profondeur minimale des filons sous la surface, en nombre de lignes.
+     */
+    private final int minDepth;
+
+    /**
+     * Crée une nouvelle instance de OreVeinPass.
+     *
+     * @param ore           L'identifiant du type de bloc du minerai.
+     * @param veinsPerChunk Le nombre de filons par tronçon.
+     * @param veinSize      Le nombre maximal de blocs d'un filon.
+     * @param minDepth      La profondeur minimale des filons sous la surface.
+     */
+    public OreVeinPass(int ore, int veinsPerChunk, int veinSize, int minDepth) {
+        this.ore = ore;
+        this.veinsPerChunk = veinsPerChunk;
+        this.veinSize = veinSize;
+        this.minDepth = minDepth;
+    }
+
+    @Override
+    public void apply(GenerationContext context) {
+        if (context.getToColumn() <= context.getFromColumn()) {
+            return;
+        }
+
+        SplittableRandom random = context.random();
+        for (int v = 0; v < veinsPerChunk; v++) {
+            int column = random.nextInt(context.getFromColumn(), context.getToColumn());
+            int top = context.getSurface(column) + minDepth;
+            if (top >= context.getHeight()) {
+                continue;
+            }
+
+            int row = random.nextInt(top, context.getHeight());
+            for (int i = 0; i < veinSize; i++) {
+                if ((context.getFromColumn() <= column) && (column < context.getToColumn())
+                        && (row < context.getHeight()) && (context.getBlock(row, column) == BlockRegistry.DIRT)) {
+                    context.setBlock(row, column, ore);
+                }
+
+                // Le filon se prolonge dans une direction au hasard.
+                switch (random.nextInt(4)) {
+                    case 0 -> row--;
+                    case 1 -> row++;
+                    case 2 -> column--;
+                    default -> column++;
+                }
+                row = Math.max(top, row);
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "OreVeinPass(" + ore + ")";
+    }
+
+}
@@ -14,10 +14,6 @@ package fr.univartois.butinfo.ihm.flatcraft.model; /**
  * Tous droits réservés.
  */
 
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
-import javafx.scene.image.Image;
-
 import java.util.NoSuchElementException;
 
 /**
@@ -31,26 +27,26 @@ public final class Player extends AbstractMovable {
     /**
      * Attribut correspondant à l'inventaire du joueur.
      */
-    private final ObservableList<Resource> inventaire;
+    private final Inventory inventaire = new Inventory();
 
     /**
      * Crée une nouvelle instance de fr.univartois.butinfo.ihm.flatcraft.model.Player.
      *
      * @param game   Le jeu dans lequel le joueur évolue.
-     * @param sprite Le sprite représentant le joueur.
+     * @param spriteName Le nom du sprite représentant le joueur.
      */
-    public Player(FlatcraftGame game, Image sprite) {
-        super(game, sprite, 3);
-        this.inventaire = FXCollections.observableArrayList();
+    public Player(FlatcraftGame game, String spriteName) {
+        super(game, spriteName, 3);
     }
 
     /**
      * Ajoute un objet à l'inventaire de ce joueur.
      *
      * @param resource L'objet à ajouter.
+     * @return Si l'objet a été ajouté, ou {@code false} si l'inventaire est plein.
      */
-    public void addToInventory(Resource resource) {
-        inventaire.add(resource);
+    public boolean addToInventory(Resource resource) {
+        return inventaire.add(resource) >= 0;
     }
 
     /**
@@ -63,7 +59,31 @@ public final class Player extends AbstractMovable {
         inventaire.remove(resource);
     }
 
-    public ObservableList<Resource> getInventaire() {
+    /**
+     * Donne l'inventaire de ce joueur.
+     *
+     * @return L'inventaire de ce joueur.
+     */
+    public Inventory getInventaire() {
         return inventaire;
     }
+
+    /**
+     * Ajoute un observateur de l'inventaire de ce joueur.
+     *
+     * @param listener L'observateur à ajouter.
+     */
+    public void addInventoryListener(IInventoryListener listener) {
+        inventaire.addListener(listener);
+    }
+
+    /**
+     * Retire un observateur de l'inventaire de ce joueur.
+     *
+     * @param listener L'observateur à retirer.
+     */
+    public void removeInventoryListener(IInventoryListener listener) {
+        inventaire.removeListener(listener);
+    }
+
 }
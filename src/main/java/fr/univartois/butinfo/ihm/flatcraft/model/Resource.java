@@ -14,10 +14,6 @@ package fr.univartois.butinfo.ihm.flatcraft.model; /**
  * Tous droits réservés.
  */
 
-import javafx.scene.image.Image;
-
-import java.util.Objects;
-
 /**
  * Une ressource est un élément de la carte avec lequel le joueur peut interagir.
  * Il peut soit l'extraire, soit la laisser sur place.
@@ -28,25 +24,42 @@ import java.util.Objects;
  */
 public final class Resource {
 
+    /**
+     * L'identifiant du type de bloc dont provient cette ressource.
+     */
+    private final int id;
+
     /**
      * Le nom unique identifiant le type de cette ressource.
      */
     private final String name;
 
     /**
-     * L'image représentant cette ressource.
+     * Le nom du sprite représentant cette ressource.
      */
-    private final Image sprite;
+    private final String spriteName;
 
     /**
      * Crée une nouvelle instance de fr.univartois.butinfo.ihm.flatcraft.model.Resource.
+     * Les ressources sont créées une seule fois par type de bloc (voir {@link BlockType}).
      *
+     * @param id     L'identifiant du type de bloc dont provient cette ressource.
      * @param name   Le nom unique identifiant le type de cette ressource.
-     * @param sprite L'image représentant cette ressource.
+     * @param spriteName Le nom du sprite représentant cette ressource.
      */
-    public Resource(String name, Image sprite) {
+    Resource(int id, String name, String spriteName) {
+        this.id = id;
         this.name = name;
-        this.sprite = sprite;
+        this.spriteName = spriteName;
+    }
+
+    /**
+     * Donne l'identifiant du type de bloc dont provient cette ressource.
+     *
+     * @return L'identifiant du type de bloc de cette ressource.
+     */
+    public int getId() {
+        return id;
     }
 
     /**
@@ -59,12 +72,12 @@ public final class Resource {
     }
 
     /**
-     * Donne l'image représentant cette ressource.
+     * Donne le nom du sprite représentant cette ressource.
      *
-     * @return L'image représentant cette ressource.
+     * @return Le nom du sprite représentant cette ressource.
      */
-    public Image getSprite() {
-        return sprite;
+    public String getSpriteName() {
+        return spriteName;
     }
 
     /*
@@ -74,7 +87,7 @@ public final class Resource {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(name);
+        return id;
     }
 
     /*
@@ -85,7 +98,7 @@ public final class Resource {
     @Override
     public boolean equals(Object other) {
         if (other instanceof Resource resource) {
-            return name.equals(resource.name);
+            return id == resource.id;
         }
         return false;
     }
@@ -0,0 +1,58 @@
+package fr.univartois.butinfo.ihm.flatcraft.model;
+
+/**
+ * La classe {@link StrataPass} est la passe de génération remplissant le sous-sol de la
+ * carte.
+ * Sous la surface se trouve d'abord une couche de terre (ou de sable, sous l'eau), dont
+ * l'épaisseur varie d'une colonne à l'autre, puis un sous-sol plus profond parsemé de
+ * minerais.
+ *
+ * @version 0.1.0
+ */
+public final class StrataPass implements IGenerationPass {
+
+    /**
+     * La fabrique de cellules utilisée pour le sous-sol profond.
+     */
+    private final CellFactory factory;
+
+    /**
+     * L'épaisseur minimale de la couche de terre.
+     */
+    private final int minTopsoil;
+
+    /**
+     * L'épaisseur maximale de la couche de terre.
+     */
+    private final int maxTopsoil;
+
+    /**
+     * Crée une nouvelle instance de StrataPass.
+     *
+     * @param factory    La fabrique de cellules utilisée pour le sous-sol profond.
+     * @param minTopsoil L'épaisseur minimale de la couche de terre.
+     * @param maxTopsoil L'épaisseur maximale de la couche de terre.
+     */
+    public StrataPass(CellFactory factory, int minTopsoil, int maxTopsoil) {
+        this.factory = factory;
+        this.minTopsoil = minTopsoil;
+        this.maxTopsoil = maxTopsoil;
+    }
+
+    @Override
+    public void apply(GenerationContext context) {
+        context.forEachColumn((column, random) -> {
+            int surface = context.getSurface(column);
+            int topsoil = surface + random.nextInt(minTopsoil, maxTopsoil + 1);
+            int soil = (context.getBlock(surface, column) == BlockRegistry.WATER) ? BlockRegistry.SAND : BlockRegistry.DIRT;
+            for (int i = surface + 1; i < context.getHeight(); i++) {
+                if (i <= topsoil) {
+                    context.setBlock(i, column, soil);
+                } else {
+                    context.setBlock(i, column, factory.createSubSoil(random).getBlockType().getId());
+                }
+            }
+        });
+    }
+
+}
@@ -0,0 +1,131 @@
+package fr.univartois.butinfo.ihm.flatcraft.replay;
+
+import fr.univartois.butinfo.ihm.flatcraft.model.Command;
+import fr.univartois.butinfo.ihm.flatcraft.model.FlatcraftGame;
+import fr.univartois.butinfo.ihm.flatcraft.model.ICommandListener;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * La classe {@link InputRecorder} enregistre une partie de Flatcraft, afin de pouvoir la
+ * rejouer à l'identique (voir {@link InputRecording}).
+ * La partie étant entièrement déterminée par sa graine et par les commandes du joueur,
+ * seules celles-ci sont enregistrées, chacune avec le numéro du pas de la boucle de jeu
+ * auquel elle a été soumise.
+ * L'enregistrement doit donc commencer avant le premier pas de la partie.
+ * <p>
+ * Le format de l'enregistrement est décrit dans {@link InputRecording}.
+ *
+ * @version 0.1.0
+ */
+public final class InputRecorder implements ICommandListener, Closeable {
+
+    /**
+     * La partie enregistrée.
+     */
+    private final FlatcraftGame game;
+
+    /**
+     * Le flux dans lequel la partie est enregistrée.
+     */
+    private final DataOutputStream output;
+
+    /**
+     * Le numéro du pas auquel la commande précédente a été soumise.
+     */
+    private long lastTick;
+
+    /**
+     * La première erreur survenue lors de l'écriture, signalée à la fermeture.
+     */
+    private IOException error;
+
+    /**
+     * Crée une nouvelle instance de InputRecorder, qui commence immédiatement à enregistrer
+     * une partie préparée, mais pas encore démarrée.
+     *
+     * @param game   La partie à enregistrer.
+     * @param output Le flux dans lequel la partie est enregistrée.
+     *
+     * @throws IOException Si l'en-tête de l'enregistrement ne peut pas être écrit.
+     * @throws IllegalStateException Si la boucle de jeu a déjà exécuté des pas.
+     */
+    public InputRecorder(FlatcraftGame game, OutputStream output) throws IOException {
+        if (game.getGameLoop().getTicks() != 0) {
+            throw new IllegalStateException("The game has already started!");
+        }
+
+        this.game = game;
+        this.output = new DataOutputStream(new BufferedOutputStream(output));
+
+        this.output.writeInt(InputRecording.MAGIC);
+        this.output.writeLong(game.getSeed());
+        this.output.writeInt(game.getWidth());
+        this.output.writeInt(game.getHeight());
+        this.output.writeInt(game.getMapWidth());
+        game.getCommands().addListener(this);
+    }
+
+    /**
+     * Crée une nouvelle instance de InputRecorder, qui enregistre une partie déjà préparée
+     * dans un fichier.
+     *
+     * @param game La partie à enregistrer.
+     * @param path Le chemin du fichier dans lequel la partie est enregistrée.
+     * @return L'enregistreur de la partie.
+     *
+     * @throws IOException Si le fichier ne peut pas être créé.
+     */
+    public static InputRecorder create(FlatcraftGame game, Path path) throws IOException {
+        return new InputRecorder(game, Files.newOutputStream(path));
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see fr.univartois.butinfo.ihm.flatcraft.model.ICommandListener#commandSubmitted(long,
+     * fr.univartois.butinfo.ihm.flatcraft.model.Command)
+     */
+    @Override
+    public void commandSubmitted(long tick, Command command) {
+        if (error != null) {
+            return;
+        }
+
+        try {
+            InputRecording.writeVarLong(output, tick - lastTick);
+            output.writeByte(command.ordinal());
+            lastTick = tick;
+
+        } catch (IOException e) {
+            error = e;
+        }
+    }
+
+    /**
+     * Termine l'enregistrement, en y ajoutant le nombre de pas exécutés et l'empreinte de
+     * la carte, puis ferme le flux.
+     *
+     * @throws IOException Si l'enregistrement ne peut pas être terminé, ou si une erreur
+     *         est survenue pendant l'enregistrement.
+     */
+    @Override
+    public void close() throws IOException {
+        game.getCommands().removeListener(this);
+        try (output) {
+            if (error != null) {
+                throw error;
+            }
+            InputRecording.writeVarLong(output, game.getGameLoop().getTicks() - lastTick);
+            output.writeByte(InputRecording.END);
+            output.writeLong(game.getMap().checksum());
+        }
+    }
+
+}
@@ -0,0 +1,298 @@
+package fr.univartois.butinfo.ihm.flatcraft.replay;
+
+import fr.univartois.butinfo.ihm.flatcraft.model.Command;
+import fr.univartois.butinfo.ihm.flatcraft.model.FlatcraftGame;
+import fr.univartois.butinfo.ihm.flatcraft.model.GameLoop;
+import fr.univartois.butinfo.ihm.flatcraft.model.IFlatcraftController;
+
+import java.io.BufferedInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * La classe {@link InputRecording} représente une partie de Flatcraft enregistrée par un
+ * {@link InputRecorder}, et permet de la rejouer.
+ * <p>
+ * Un enregistrement est composé :
+ * <ul>
+ * <li>d'un en-tête, contenant un nombre magique ({@link #MAGIC}), la graine de la carte,
+ * et les dimensions de la partie (largeur et hauteur affichées, puis largeur de la
+ * carte) ;</li>
+ * <li>des commandes soumises, chacune codée par le nombre de pas écoulés depuis la
+ * commande précédente (sous la forme d'un entier de taille variable, le plus souvent
+ * sur un seul octet), suivi du rang de la commande dans {@link Command} ;</li>
+ * <li>du nombre de pas écoulés depuis la dernière commande, suivi de l'octet
+ * {@link #END} et de l'empreinte de la carte à la fin de la partie.</li>
+ * </ul>
+ *
+ * @version 0.1.0
+ */
+public final class InputRecording {
+
+    /**
+     * Le nombre magique identifiant un enregistrement (les caractères {@code FCR1}).
+     */
+    static final int MAGIC = 0x46435231;
+
+    /**
+     * L'octet marquant la fin des commandes d'un enregistrement.
+     */
+    static final int END = 0xFF;
+
+    /**
+     * Les commandes, indexées par leur rang dans l'énumération.
+     */
+    private static final Command[] COMMANDS = Command.values();
+
+    /**
+     * La graine de la carte de la partie enregistrée.
+     */
+    private final long seed;
+
+    /**
+     * La largeur de la carte affichée.
+     */
+    private final int width;
+
+    /**
+     * La hauteur de la carte affichée.
+     */
+    private final int height;
+
+    /**
+     * La largeur de la carte complète.
+     */
+    private final int mapWidth;
+
+    /**
+     * Les numéros des pas auxquels les commandes ont été soumises.
+     */
+    private final long[] ticks;
+
+    /**
+     * Les commandes soumises.
+     */
+    private final Command[] commands;
+
+    /**
+     * Le nombre de pas exécutés pendant la partie enregistrée.
+     */
+    private final long totalTicks;
+
+    /**
+     * L'empreinte de la carte à la fin de la partie enregistrée.
+     */
+    private final long checksum;
+
+    /**
+     * Crée une nouvelle instance de InputRecording.
+     *
+     * @param seed       La graine de la carte.
+     * @param width      La largeur de la carte affichée.
+     * @param height     La hauteur de la carte affichée.
+     * @param mapWidth   La largeur de la carte complète.
+     * @param ticks      Les numéros des pas auxquels les commandes ont été soumises.
+     * @param commands   Les commandes soumises.
+     * @param totalTicks Le nombre de pas exécutés pendant la partie.
+     * @param checksum   L'empreinte de la carte à la fin de la partie.
+     */
+    private InputRecording(long seed, int width, int height, int mapWidth, long[] ticks, Command[] commands,
+            long totalTicks, long checksum) {
+        this.seed = seed;
+        this.width = width;
+        this.height = height;
+        this.mapWidth = mapWidth;
+        this.ticks = ticks;
+        this.commands = commands;
+        this.totalTicks = totalTicks;
+        this.checksum = checksum;
+    }
+
+    /**
+     * Lit un enregistrement depuis un fichier.
+     *
+     * @param path Le chemin du fichier à lire.
+     * @return L'enregistrement lu.
+     *
+     * @throws IOException Si le fichier ne peut pas être lu, ou s'il ne contient pas un
+     *         enregistrement valide.
+     */
+    public static InputRecording read(Path path) throws IOException {
+        try (InputStream input = Files.newInputStream(path)) {
+            return read(input);
+        }
+    }
+
+    /**
+     * Lit un enregistrement depuis un flux.
+     *
+     * @param input Le flux à lire.
+     * @return L'enregistrement lu.
+     *
+     * @throws IOException Si le flux ne peut pas être lu, ou s'il ne contient pas un
+     *         enregistrement valide.
+     */
+    public static InputRecording read(InputStream input) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(input));
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a Flatcraft recording!");
+        }
+
+        long seed = data.readLong();
+        int width = data.readInt();
+        int height = data.readInt();
+        int mapWidth = data.readInt();
+
+        long[] ticks = new long[64];
+        Command[] commands = new Command[64];
+        int size = 0;
+        long tick = 0;
+        while (true) {
+            tick += readVarLong(data);
+            int command = data.readUnsignedByte();
+            if (command == END) {
+                break;
+            }
+            if (command >= COMMANDS.length) {
+                throw new IOException("Unknown command " + command);
+            }
+
+            if (size == ticks.length) {
+                ticks = Arrays.copyOf(ticks, size * 2);
+                commands = Arrays.copyOf(commands, size * 2);
+            }
+            ticks[size] = tick;
+            commands[size] = COMMANDS[command];
+            size++;
+        }
+
+        return new InputRecording(seed, width, height, mapWidth, Arrays.copyOf(ticks, size),
+                Arrays.copyOf(commands, size), tick, data.readLong());
+    }
+
+    /**
+     * Crée et prépare une partie identique à celle qui a été enregistrée, avant son premier
+     * pas.
+     *
+     * @param controleur Le contrôleur de la partie.
+     * @return La partie créée.
+     */
+    public FlatcraftGame createGame(IFlatcraftController controleur) {
+        FlatcraftGame game = new FlatcraftGame(width, height, mapWidth);
+        game.setControleur(controleur);
+        controleur.setJeu(game);
+        game.setSeed(seed);
+        game.prepare();
+        return game;
+    }
+
+    /**
+     * Rejoue la partie enregistrée aussi vite que possible, en soumettant chaque commande
+     * au pas où elle avait été soumise.
+     *
+     * @param game La partie dans laquelle rejouer, créée par {@link #createGame(IFlatcraftController)}.
+     * @return Si la carte obtenue a la même empreinte que celle de la partie enregistrée.
+     */
+    public boolean replay(FlatcraftGame game) {
+        GameLoop loop = game.getGameLoop();
+        for (int i = 0; i < commands.length; i++) {
+            runUntil(loop, ticks[i]);
+            game.getCommands().submit(commands[i]);
+        }
+        runUntil(loop, totalTicks);
+        return game.getMap().checksum() == checksum;
+    }
+
+    /**
+     * Exécute les pas d'une boucle de jeu jusqu'à un pas donné (exclu).
+     *
+     * @param loop La boucle de jeu.
+     * @param tick Le numéro du pas à atteindre.
+     */
+    private static void runUntil(GameLoop loop, long tick) {
+        while (loop.getTicks() < tick) {
+            loop.runTicks((int) Math.min(tick - loop.getTicks(), Integer.MAX_VALUE));
+        }
+    }
+
+    /**
+     * Donne la graine de la carte de la partie enregistrée.
+     *
+     * @return La graine de la carte.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Donne le nombre de commandes soumises pendant la partie enregistrée.
+     *
+     * @return Le nombre de commandes.
+     */
+    public int getCommandCount() {
+        return commands.length;
+    }
+
+    /**
+     * Donne le nombre de pas exécutés pendant la partie enregistrée.
+     *
+     * @return Le nombre de pas.
+     */
+    public long getTotalTicks() {
+        return totalTicks;
+    }
+
+    /**
+     * Donne l'empreinte de la carte à la fin de la partie enregistrée.
+     *
+     * @return L'empreinte de la carte.
+     */
+    public long getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * Écrit un entier positif sous une forme de taille variable : 7 bits par octet, le bit
+     * de poids fort indiquant si d'autres octets suivent.
+     *
+     * @param output Le flux dans lequel écrire.
+     * @param value  L'entier à écrire.
+     *
+     * @throws IOException Si l'écriture échoue.
+     */
+    static void writeVarLong(DataOutput output, long value) throws IOException {
+        long v = value;
+        while ((v & ~0x7FL) != 0) {
+            output.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        output.writeByte((int) v);
+    }
+
+    /**
+     * Lit un entier écrit par {@link #writeVarLong(DataOutput, long)}.
+     *
+     * @param input Le flux dans lequel lire.
+     * @return L'entier lu.
+     *
+     * @throws IOException Si la lecture échoue.
+     */
+    static long readVarLong(DataInput input) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer!");
+    }
+
+}
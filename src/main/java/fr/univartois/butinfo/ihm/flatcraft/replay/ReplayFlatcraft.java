@@ -0,0 +1,65 @@
+package fr.univartois.butinfo.ihm.flatcraft.replay;
+
+import fr.univartois.butinfo.ihm.flatcraft.headless.HeadlessController;
+import fr.univartois.butinfo.ihm.flatcraft.model.FlatcraftGame;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * La classe {@link ReplayFlatcraft} rejoue sans interface graphique, et aussi vite que
+ * possible, une partie enregistrée par un {@link InputRecorder}.
+ * Elle vérifie que la carte obtenue est identique à celle de la partie enregistrée, puis
+ * affiche les statistiques de la partie : un enregistrement sert ainsi à la fois de test
+ * de reproductibilité et de mesure de performances sur une partie réaliste.
+ * <p>
+ * Son argument est le chemin du fichier contenant l'enregistrement.
+ *
+ * @version 0.1.0
+ */
+public final class ReplayFlatcraft {
+
+    /**
+     * Désactive l'instanciation en dehors de la classe.
+     */
+    private ReplayFlatcraft() {
+        throw new AssertionError("No fr.univartois.butinfo.ihm.flatcraft.replay.ReplayFlatcraft instances for you!");
+    }
+
+    /**
+     * Rejoue une partie enregistrée.
+     *
+     * @param args Le chemin du fichier contenant l'enregistrement.
+     *
+     * @throws IOException Si l'enregistrement ne peut pas être lu.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: ReplayFlatcraft <recording>");
+            System.exit(2);
+        }
+
+        InputRecording recording = InputRecording.read(Path.of(args[0]));
+        FlatcraftGame jeu = recording.createGame(new HeadlessController());
+
+        long start = System.nanoTime();
+        boolean identical = recording.replay(jeu);
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println(jeu.getGenerationPipeline());
+        System.out.println(jeu.getGameLoop());
+        System.out.println(jeu.getCommands());
+        System.out.printf("%d commandes rejouées en %d pas, %.0f pas/s%n", recording.getCommandCount(),
+                recording.getTotalTicks(), recording.getTotalTicks() * (double) TimeUnit.SECONDS.toNanos(1) / elapsed);
+        System.out.printf("Empreinte de la carte : %016x (attendue %016x)%n", jeu.getMap().checksum(),
+                recording.getChecksum());
+        jeu.getMap().getChunkCache().close();
+
+        if (!identical) {
+            System.err.println("La partie rejouée diffère de la partie enregistrée !");
+            System.exit(1);
+        }
+    }
+
+}
@@ -0,0 +1,181 @@
+package fr.univartois.butinfo.ihm.flatcraft.save;
+
+import fr.univartois.butinfo.ihm.flatcraft.model.Chunk;
+import fr.univartois.butinfo.ihm.flatcraft.model.IChunkView;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * La classe {@link ChunkCodec} code les blocs d'un {@link Chunk} sous une forme compacte,
+ * pour les sauvegarder dans un {@link RegionFile}.
+ * <p>
+ * Un tronçon codé est composé :
+ * <ul>
+ * <li>de sa palette : le nombre de types de blocs différents qu'il contient, suivi de
+ * leurs identifiants, par ordre de première apparition ;</li>
+ * <li>de ses cellules, parcourues colonne par colonne et de haut en bas, sous la forme de
+ * séquences de cellules identiques : chaque séquence est codée par le rang de son type de
+ * bloc dans la palette, suivi de sa longueur.</li>
+ * </ul>
+ * Tous ces entiers sont écrits sous une forme de taille variable (7 bits par octet), si
+ * bien qu'une colonne faite de ciel, de terre et de quelques minerais n'occupe en général
+ * que quelques dizaines d'octets.
+ *
+ * @version 0.1.0
+ */
+final class ChunkCodec {
+
+    /**
+     * Empêche d'instancier cette classe.
+     */
+    private ChunkCodec() {
+        throw new AssertionError("No ChunkCodec instances for you!");
+    }
+
+    /**
+     * Code les blocs d'un tronçon.
+     *
+     * @param chunk Le tronçon à coder.
+     * @return Les octets codant les blocs du tronçon.
+     */
+    static byte[] encode(IChunkView chunk) {
+        int height = chunk.getHeight();
+        int first = chunk.getFirstColumn();
+
+        // La palette est indexée par les identifiants des blocs, qui sont peu nombreux.
+        int[] ranks = new int[16];
+        Arrays.fill(ranks, -1);
+        int[] palette = new int[16];
+        int paletteSize = 0;
+
+        // Les séquences sont d'abord rangées par paires (rang, longueur).
+        int[] runs = new int[64];
+        int nbRuns = 0;
+        int current = -1;
+        int length = 0;
+
+        for (int column = first; column < first + Chunk.WIDTH; column++) {
+            for (int row = 0; row < height; row++) {
+                int block = chunk.getBlock(row, column);
+                if (block == current) {
+                    length++;
+                    continue;
+                }
+
+                if (length > 0) {
+                    if (nbRuns + 2 > runs.length) {
+                        runs = Arrays.copyOf(runs, runs.length * 2);
+                    }
+                    runs[nbRuns++] = ranks[current];
+                    runs[nbRuns++] = length;
+                }
+
+                if (block >= ranks.length) {
+                    int size = ranks.length;
+                    ranks = Arrays.copyOf(ranks, Math.max(block + 1, size * 2));
+                    Arrays.fill(ranks, size, ranks.length, -1);
+                }
+                if (ranks[block] < 0) {
+                    if (paletteSize == palette.length) {
+                        palette = Arrays.copyOf(palette, paletteSize * 2);
+                    }
+                    ranks[block] = paletteSize;
+                    palette[paletteSize++] = block;
+                }
+                current = block;
+                length = 1;
+            }
+        }
+        if (nbRuns + 2 > runs.length) {
+            runs = Arrays.copyOf(runs, runs.length + 2);
+        }
+        runs[nbRuns++] = ranks[current];
+        runs[nbRuns++] = length;
+
+        ByteBuffer buffer = ByteBuffer.allocate(5 * (1 + paletteSize + nbRuns));
+        putVarInt(buffer, paletteSize);
+        for (int i = 0; i < paletteSize; i++) {
+            putVarInt(buffer, palette[i]);
+        }
+        for (int i = 0; i < nbRuns; i++) {
+            putVarInt(buffer, runs[i]);
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    /**
+     * Décode les blocs d'un tronçon.
+     *
+     * @param buffer Le tampon contenant les octets codant les blocs, à partir de sa position
+     *        courante.
+     * @param index  L'indice du tronçon dans la carte.
+     * @param blocks Le tableau dans lequel placer les identifiants des blocs décodés,
+     *        colonne par colonne.
+     *
+     * @throws IOException Si les octets ne codent pas un tronçon de cette taille.
+     */
+    static void decode(ByteBuffer buffer, int index, short[] blocks) throws IOException {
+        try {
+            int[] palette = new int[getVarInt(buffer)];
+            for (int i = 0; i < palette.length; i++) {
+                palette[i] = getVarInt(buffer);
+            }
+
+            int cells = blocks.length;
+            int cell = 0;
+            while (cell < cells) {
+                int block = palette[getVarInt(buffer)];
+                int length = getVarInt(buffer);
+                if ((length <= 0) || (length > cells - cell)) {
+                    throw new IOException("Corrupted chunk " + index);
+                }
+
+                Arrays.fill(blocks, cell, cell + length, (short) block);
+                cell += length;
+            }
+
+        } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Corrupted chunk " + index, e);
+        }
+    }
+
+    /**
+     * Écrit un entier positif sous une forme de taille variable : 7 bits par octet, le bit
+     * de poids fort indiquant si d'autres octets suivent.
+     *
+     * @param buffer Le tampon dans lequel écrire.
+     * @param value  L'entier à écrire.
+     */
+    private static void putVarInt(ByteBuffer buffer, int value) {
+        int v = value;
+        while ((v & ~0x7F) != 0) {
+            buffer.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        buffer.put((byte) v);
+    }
+
+    /**
+     * Lit un entier écrit par {@link #putVarInt(ByteBuffer, int)}.
+     *
+     * @param buffer Le tampon dans lequel lire.
+     * @return L'entier lu.
+     *
+     * @throws IOException Si l'entier est mal formé.
+     */
+    private static int getVarInt(ByteBuffer buffer) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            int b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer!");
+    }
+
+}
@@ -0,0 +1,196 @@
+package fr.univartois.butinfo.ihm.flatcraft.save;
+
+import fr.univartois.butinfo.ihm.flatcraft.model.BlockRegistry;
+import fr.univartois.butinfo.ihm.flatcraft.model.FlatcraftGame;
+import fr.univartois.butinfo.ihm.flatcraft.model.Inventory;
+import fr.univartois.butinfo.ihm.flatcraft.model.ItemStack;
+import fr.univartois.butinfo.ihm.flatcraft.model.Player;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * La classe {@link PlayerState} représente l'état sauvegardé du joueur : sa position, ses
+ * points de vie et son inventaire.
+ * Cet état est capturé sur le fil d'exécution du jeu, puis peut être écrit depuis
+ * n'importe quel autre fil.
+ *
+ * @version 0.1.0
+ */
+final class PlayerState {
+
+    /**
+     * Le nombre de bits codant le nombre de ressources d'une pile.
+     */
+    private static final int COUNT_BITS = Byte.SIZE;
+
+    /**
+     * Le masque extrayant le nombre de ressources d'une pile codée.
+     */
+    private static final int COUNT_MASK = (1 << COUNT_BITS) - 1;
+
+    /**
+     * La ligne de la cellule du joueur.
+     */
+    private final int row;
+
+    /**
+     * La colonne de la cellule du joueur.
+     */
+    private final int column;
+
+    /**
+     * Les points de vie du joueur.
+     */
+    private final int health;
+
+    /**
+     * Les piles de l'inventaire du joueur, indexées par leur emplacement.
+     * Chaque pile est codée par l'identifiant de ses ressources, décalé de
+     * {@link #COUNT_BITS} bits, suivi de leur nombre (une valeur nulle désignant un
+     * emplacement vide).
+     */
+    private final int[] inventory;
+
+    /**
+     * Crée une nouvelle instance de PlayerState.
+     *
+     * @param row       La ligne de la cellule du joueur.
+     * @param column    La colonne de la cellule du joueur.
+     * @param health    Les points de vie du joueur.
+     * @param inventory Les piles codées de l'inventaire du joueur.
+     */
+    private PlayerState(int row, int column, int health, int[] inventory) {
+        this.row = row;
+        this.column = column;
+        this.health = health;
+        this.inventory = inventory;
+    }
+
+    /**
+     * Capture l'état actuel d'un joueur.
+     *
+     * @param joueur Le joueur.
+     * @return L'état du joueur.
+     */
+    static PlayerState of(Player joueur) {
+        Inventory inventaire = joueur.getInventaire();
+        int[] inventory = new int[Inventory.SLOTS];
+        for (int slot = 0; slot < inventory.length; slot++) {
+            ItemStack stack = inventaire.getStack(slot);
+            if (stack != null) {
+                inventory[slot] = (stack.getResource().getId() << COUNT_BITS) | stack.getCount();
+            }
+        }
+        return new PlayerState(joueur.getRow(), joueur.getColumn(), joueur.getHealth(), inventory);
+    }
+
+    /**
+     * Lit l'état d'un joueur écrit par {@link #write(DataOutput)}.
+     *
+     * @param input Le flux dans lequel lire.
+     * @return L'état lu.
+     *
+     * @throws IOException Si la lecture échoue.
+     */
+    static PlayerState read(DataInput input) throws IOException {
+        int row = input.readInt();
+        int column = input.readInt();
+        int health = input.readInt();
+        int size = input.readUnsignedByte();
+        int[] inventory = new int[Inventory.SLOTS];
+        for (int i = 0; i < size; i++) {
+            int slot = input.readUnsignedByte();
+            int id = input.readUnsignedShort();
+            int count = input.readUnsignedByte();
+            if ((slot >= inventory.length) || (count == 0) || (count > Inventory.MAX_STACK)) {
+                throw new IOException("Corrupted inventory!");
+            }
+            inventory[slot] = (id << COUNT_BITS) | count;
+        }
+        return new PlayerState(row, column, health, inventory);
+    }
+
+    /**
+     * Écrit cet état dans un flux.
+     *
+     * @param output Le flux dans lequel écrire.
+     *
+     * @throws IOException Si l'écriture échoue.
+     */
+    void write(DataOutput output) throws IOException {
+        output.writeInt(row);
+        output.writeInt(column);
+        output.writeInt(health);
+        int size = 0;
+        for (int stack : inventory) {
+            if (stack != 0) {
+                size++;
+            }
+        }
+
+        output.writeByte(size);
+        for (int slot = 0; slot < inventory.length; slot++) {
+            if (inventory[slot] != 0) {
+                output.writeByte(slot);
+                output.writeShort(inventory[slot] >>> COUNT_BITS);
+                output.writeByte(inventory[slot] & COUNT_MASK);
+            }
+        }
+    }
+
+    /**
+     * Restaure cet état sur le joueur d'une partie qui vient d'être préparée.
+     *
+     * @param game La partie dont le joueur doit être restauré.
+     *
+     * @throws IOException Si l'inventaire contient une ressource inconnue.
+     */
+    void applyTo(FlatcraftGame game) throws IOException {
+        Player joueur = game.getJoueur();
+        game.moveTo(joueur, row, column);
+        joueur.setHealth(health);
+
+        // Les emplacements vides dans la sauvegarde sont aussi vidés : le joueur d'une partie
+        // qui vient d'être préparée a déjà reçu ses premières ressources.
+        BlockRegistry registry = game.getMap().getRegistry();
+        for (int slot = 0; slot < inventory.length; slot++) {
+            ItemStack stack = null;
+            if (inventory[slot] != 0) {
+                int id = inventory[slot] >>> COUNT_BITS;
+                if ((id >= registry.size()) || (registry.get(id).getResource() == null)) {
+                    throw new IOException("Unknown resource " + id);
+                }
+                stack = new ItemStack(registry.get(id).getResource(), inventory[slot] & COUNT_MASK);
+            }
+            joueur.getInventaire().setStack(slot, stack);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return 31 * (31 * (31 * row + column) + health) + Arrays.hashCode(inventory);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (other instanceof PlayerState state) {
+            return (row == state.row) && (column == state.column) && (health == state.health)
+                    && Arrays.equals(inventory, state.inventory);
+        }
+        return false;
+    }
+
+}
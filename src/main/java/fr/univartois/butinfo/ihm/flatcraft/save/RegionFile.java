@@ -0,0 +1,275 @@
+package fr.univartois.butinfo.ihm.flatcraft.save;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+/**
+ * La classe {@link RegionFile} représente un fichier de région, contenant les blocs
+ * sauvegardés de {@link #CHUNKS} tronçons consécutifs de la carte.
+ * <p>
+ * Un fichier de région est composé :
+ * <ul>
+ * <li>d'un en-tête, contenant un nombre magique ({@link #MAGIC}), la version du format et
+ * la hauteur des tronçons ;</li>
+ * <li>d'un index, donnant pour chaque tronçon de la région la position et la taille de
+ * ses blocs dans le fichier (une position nulle indiquant que le tronçon n'a jamais été
+ * sauvegardé) ;</li>
+ * <li>des blocs des tronçons, codés par {@link ChunkCodec}.</li>
+ * </ul>
+ * Le fichier est projeté en mémoire (avec {@link FileChannel#map(FileChannel.MapMode, long, long)}) :
+ * lire un tronçon ne touche ainsi que l'index et les quelques pages contenant ses blocs,
+ * quelle que soit la taille du fichier.
+ * <p>
+ * Un fichier de région n'est jamais modifié une fois écrit : chaque sauvegarde écrit un
+ * nouveau fichier, dont le nom contient la génération de la sauvegarde
+ * ({@code r.<région>.<génération>.fcr}).
+ * Un fichier peut ainsi rester projeté en mémoire pendant qu'une sauvegarde plus récente
+ * de sa région est écrite (ce que certains systèmes, comme Windows, interdisent de faire
+ * sur le fichier projeté lui-même).
+ *
+ * @version 0.1.0
+ */
+final class RegionFile {
+
+    /**
+     * Le nombre de tronçons d'une région.
+     */
+    static final int CHUNKS = 32;
+
+    /**
+     * Le nombre magique identifiant un fichier de région (les caractères {@code FCRG}).
+     */
+    private static final int MAGIC = 0x46435247;
+
+    /**
+     * La version du format des fichiers de région.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * La taille de l'en-tête et de l'index d'un fichier de région, en octets.
+     */
+    private static final int HEADER_SIZE = 3 * Integer.BYTES + CHUNKS * 2 * Integer.BYTES;
+
+    /**
+     * Le chemin de ce fichier de région.
+     */
+    private final Path path;
+
+    /**
+     * Le contenu de ce fichier de région, projeté en mémoire.
+     */
+    private final ByteBuffer content;
+
+    /**
+     * Crée une nouvelle instance de RegionFile.
+     *
+     * @param path    Le chemin du fichier de région.
+     * @param content Le contenu du fichier de région, projeté en mémoire.
+     */
+    private RegionFile(Path path, ByteBuffer content) {
+        this.path = path;
+        this.content = content;
+    }
+
+    /**
+     * Donne l'indice de la région contenant un tronçon.
+     *
+     * @param chunkIndex L'indice du tronçon.
+     * @return L'indice de la région qui le contient.
+     */
+    static int indexOf(int chunkIndex) {
+        return Math.floorDiv(chunkIndex, CHUNKS);
+    }
+
+    /**
+     * Donne le chemin du fichier d'une région écrit lors d'une sauvegarde.
+     *
+     * @param directory  Le répertoire contenant les fichiers de région.
+     * @param region     L'indice de la région.
+     * @param generation La génération de la sauvegarde.
+     * @return Le chemin du fichier de la région.
+     */
+    static Path pathOf(Path directory, int region, long generation) {
+        return directory.resolve("r." + region + "." + generation + ".fcr");
+    }
+
+    /**
+     * Donne l'indice de la région d'un fichier de région, d'après le nom du fichier.
+     *
+     * @param path Le chemin du fichier de région.
+     * @return L'indice de la région.
+     */
+    static int regionOf(Path path) {
+        String name = path.getFileName().toString();
+        return Integer.parseInt(name.substring("r.".length(), name.indexOf('.', "r.".length())));
+    }
+
+    /**
+     * Donne la génération de la sauvegarde ayant écrit un fichier de région, d'après le
+     * nom du fichier.
+     *
+     * @param path Le chemin du fichier de région.
+     * @return La génération du fichier.
+     */
+    static long generationOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(name.indexOf('.', "r.".length()) + 1,
+                name.length() - ".fcr".length()));
+    }
+
+    /**
+     * Ouvre un fichier de région en le projetant en mémoire.
+     * Le fichier peut être fermé dès qu'il est projeté : la projection reste valide
+     * jusqu'à ce qu'elle ne soit plus utilisée.
+     *
+     * @param path   Le chemin du fichier de région.
+     * @param height La hauteur attendue des tronçons.
+     * @return Le fichier de région ouvert, ou {@code null} s'il n'existe pas.
+     *
+     * @throws IOException Si le fichier ne peut pas être lu, ou s'il ne s'agit pas d'un
+     *         fichier de région valide.
+     */
+    static RegionFile open(Path path, int height) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Truncated region file " + path);
+            }
+
+            ByteBuffer content = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if ((content.getInt(0) != MAGIC) || (content.getInt(Integer.BYTES) != VERSION)) {
+                throw new IOException("Not a Flatcraft region file: " + path);
+            }
+            if (content.getInt(2 * Integer.BYTES) != height) {
+                throw new IOException("Incorrect chunk height in " + path);
+            }
+            return new RegionFile(path, content);
+
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Donne les octets codant les blocs d'un tronçon de cette région.
+     *
+     * @param chunkIndex L'indice du tronçon dans la carte.
+     * @return Une vue sur les octets codant les blocs du tronçon, ou {@code null} s'il n'a
+     *         jamais été sauvegardé.
+     *
+     * @throws IOException Si l'index désigne des octets en dehors du fichier.
+     */
+    ByteBuffer slice(int chunkIndex) throws IOException {
+        int entry = 3 * Integer.BYTES + Math.floorMod(chunkIndex, CHUNKS) * 2 * Integer.BYTES;
+        int offset = content.getInt(entry);
+        int length = content.getInt(entry + Integer.BYTES);
+        if (offset == 0) {
+            return null;
+        }
+        if ((offset < HEADER_SIZE) || (length < 0) || (offset > content.capacity() - length)) {
+            throw new IOException("Corrupted index in " + path);
+        }
+        return content.slice(offset, length);
+    }
+
+    /**
+     * Lit les blocs d'un tronçon de cette région.
+     *
+     * @param chunkIndex L'indice du tronçon dans la carte.
+     * @param blocks     Le tableau à remplir avec les identifiants des blocs du tronçon,
+     *        colonne par colonne.
+     * @return Si le tableau a été rempli, ou {@code false} si le tronçon n'a jamais été
+     *         sauvegardé.
+     *
+     * @throws IOException Si les blocs du tronçon sont corrompus.
+     */
+    boolean read(int chunkIndex, short[] blocks) throws IOException {
+        ByteBuffer data = slice(chunkIndex);
+        if (data == null) {
+            return false;
+        }
+        ChunkCodec.decode(data, chunkIndex, blocks);
+        return true;
+    }
+
+    /**
+     * Écrit un nouveau fichier de région.
+     * Les tronçons dont un nouveau codage est donné remplacent ceux de l'ancien fichier,
+     * tandis que les octets des autres sont recopiés depuis l'ancien fichier, sans être
+     * décodés.
+     * L'ancien fichier n'est pas modifié : une interruption pendant la sauvegarde ne peut
+     * donc pas corrompre la région.
+     *
+     * @param path     Le chemin du nouveau fichier de région.
+     * @param region   L'indice de la région.
+     * @param height   La hauteur des tronçons.
+     * @param encoded  Les nouveaux codages (par {@link ChunkCodec}) de tronçons de la
+     *        région, indexés par l'indice du tronçon dans la carte.
+     * @param previous L'ancien fichier de région, ou {@code null} s'il n'existe pas.
+     *
+     * @throws IOException Si le fichier ne peut pas être écrit.
+     */
+    static void write(Path path, int region, int height, Map<Integer, byte[]> encoded, RegionFile previous)
+            throws IOException {
+        ByteBuffer[] data = new ByteBuffer[CHUNKS];
+        int size = HEADER_SIZE;
+        for (int i = 0; i < CHUNKS; i++) {
+            int chunkIndex = region * CHUNKS + i;
+            byte[] chunk = encoded.get(chunkIndex);
+            if (chunk != null) {
+                data[i] = ByteBuffer.wrap(chunk);
+            } else if (previous != null) {
+                data[i] = previous.slice(chunkIndex);
+            }
+            if (data[i] != null) {
+                size += data[i].remaining();
+            }
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(height);
+        int offset = HEADER_SIZE;
+        for (ByteBuffer chunk : data) {
+            if (chunk == null) {
+                header.putInt(0).putInt(0);
+            } else {
+                header.putInt(offset).putInt(chunk.remaining());
+                offset += chunk.remaining();
+            }
+        }
+        header.flip();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header);
+            for (ByteBuffer chunk : data) {
+                if (chunk != null) {
+                    writeFully(channel, chunk);
+                }
+            }
+            if (channel.size() != size) {
+                throw new IOException("Incomplete region file " + path);
+            }
+        }
+    }
+
+    /**
+     * Écrit tous les octets restants d'un tampon dans un fichier.
+     *
+     * @param channel Le fichier dans lequel écrire.
+     * @param buffer  Le tampon à écrire.
+     *
+     * @throws IOException Si l'écriture échoue.
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+}
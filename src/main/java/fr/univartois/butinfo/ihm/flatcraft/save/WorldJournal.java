@@ -0,0 +1,631 @@
+package fr.univartois.butinfo.ihm.flatcraft.save;
+
+import fr.univartois.butinfo.ihm.flatcraft.model.Chunk;
+import fr.univartois.butinfo.ihm.flatcraft.model.FlatcraftGame;
+import fr.univartois.butinfo.ihm.flatcraft.model.GameMap;
+import fr.univartois.butinfo.ihm.flatcraft.model.IChunkView;
+import fr.univartois.butinfo.ihm.flatcraft.model.IMapListener;
+import fr.univartois.butinfo.ihm.flatcraft.model.ITickable;
+import fr.univartois.butinfo.ihm.flatcraft.model.MapChanges;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * La classe {@link WorldJournal} enregistre, au fur et à mesure de la partie, les
+ * modifications de la carte et de l'état du joueur dans le journal d'une
+ * {@link WorldSave}.
+ * <p>
+ * Sur le fil d'exécution du jeu, chaque modification publiée par la carte n'est que codée
+ * dans un tampon (la position de la cellule et son nouveau bloc, en quelques octets).
+ * Une fois par seconde, ce tampon est confié à un fil d'écriture dédié, qui l'ajoute à la
+ * fin du journal.
+ * Périodiquement, le journal est compacté : les tronçons modifiés depuis le compactage
+ * précédent sont codés (sur le fil du jeu, ce qui ne coûte que quelques microsecondes par
+ * tronçon), puis le fil d'écriture les range dans les fichiers de région et supprime le
+ * journal devenu inutile.
+ * Ni l'enregistrement ni le compactage n'attendent donc jamais le disque sur le fil du
+ * jeu.
+ * <p>
+ * Les erreurs du fil d'écriture sont signalées au jeu dès le pas suivant (voir
+ * {@link #WorldJournal(WorldSave, FlatcraftGame, Consumer)}), et l'enregistrement
+ * continue : un lot qui n'a pas pu être écrit est remplacé par un compactage, et les
+ * tronçons d'un compactage qui a échoué sont inclus dans le suivant.
+ * <p>
+ * Un journal est composé d'un en-tête, contenant un nombre magique ({@link #MAGIC}) et sa
+ * génération, puis de lots de modifications.
+ * Chaque lot est précédé de sa taille et de sa somme de contrôle (CRC-32) : après un arrêt
+ * brutal, seuls les lots complets sont rejoués, un éventuel lot tronqué étant ignoré.
+ * Un lot contient des enregistrements de modification de bloc ({@link #BLOCK}, suivi de la
+ * colonne, de la ligne et du nouveau bloc, sous une forme de taille variable) et d'état du
+ * joueur ({@link #PLAYER}).
+ *
+ * @version 0.1.0
+ */
+public final class WorldJournal implements IMapListener, ITickable, Closeable {
+
+    /**
+     * Le nombre de pas entre deux écritures du journal (une seconde).
+     */
+    public static final int SYNC_TICKS = FlatcraftGame.TICK_RATE;
+
+    /**
+     * Le nombre de pas entre deux compactages du journal (une minute).
+     */
+    public static final int COMPACT_TICKS = 60 * FlatcraftGame.TICK_RATE;
+
+    /**
+     * La taille du journal (en octets) à partir de laquelle il est compacté sans attendre
+     * {@link #COMPACT_TICKS} pas.
+     */
+    public static final int COMPACT_BYTES = 1 << 20;
+
+    /**
+     * Le nombre magique identifiant un journal (les caractères {@code FCJ2}).
+     */
+    private static final int MAGIC = 0x46434A32;
+
+    /**
+     * Le type des enregistrements de modification de bloc.
+     */
+    private static final int BLOCK = 1;
+
+    /**
+     * Le type des enregistrements d'état du joueur.
+     */
+    private static final int PLAYER = 2;
+
+    /**
+     * La sauvegarde dans laquelle la partie est enregistrée.
+     */
+    private final WorldSave save;
+
+    /**
+     * La partie enregistrée.
+     */
+    private final FlatcraftGame game;
+
+    /**
+     * Le fil d'écriture du journal.
+     */
+    private final ExecutorService writer;
+
+    /**
+     * L'action informant le jeu des erreurs survenues sur le fil d'écriture.
+     */
+    private final Consumer<IOException> errorHandler;
+
+    /**
+     * Le tampon contenant les enregistrements du lot en cours.
+     */
+    private final ByteArrayOutputStream batch = new ByteArrayOutputStream();
+
+    /**
+     * Le flux permettant d'écrire dans {@link #batch}.
+     */
+    private final DataOutputStream output = new DataOutputStream(batch);
+
+    /**
+     * Les indices des tronçons modifiés depuis le dernier compactage.
+     */
+    private final Set<Integer> modified = new HashSet<>();
+
+    /**
+     * Les indices des tronçons d'un compactage qui a échoué, à inclure dans le compactage
+     * suivant.
+     * Ils sont ajoutés par le fil d'écriture.
+     */
+    private final Queue<Integer> unsaved = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Si le prochain enregistrement doit être un compactage, parce qu'une erreur est
+     * survenue sur le fil d'écriture.
+     */
+    private boolean recovering;
+
+    /**
+     * Le dernier état du joueur enregistré.
+     */
+    private PlayerState player;
+
+    /**
+     * La génération du journal en cours d'écriture.
+     */
+    private long generation;
+
+    /**
+     * La taille du journal en cours depuis le dernier compactage, en octets.
+     */
+    private long journalBytes;
+
+    /**
+     * Le numéro du pas du dernier compactage.
+     */
+    private long lastCompaction;
+
+    /**
+     * Le journal ouvert par le fil d'écriture (qui est le seul à y accéder).
+     */
+    private FileChannel channel;
+
+    /**
+     * La génération du journal ouvert par le fil d'écriture (qui est le seul à y accéder).
+     */
+    private long channelGeneration;
+
+    /**
+     * La génération du journal dont un lot n'a pas pu être écrit (le fil d'écriture est le
+     * seul à y accéder).
+     * Les lots suivants de cette génération sont ignorés : ils ne pourraient pas être
+     * rejoués sans celui qui manque.
+     */
+    private long brokenGeneration = Long.MIN_VALUE;
+
+    /**
+     * L'erreur survenue sur le fil d'écriture qui n'a pas encore été signalée au jeu.
+     */
+    private final AtomicReference<IOException> failure = new AtomicReference<>();
+
+    /**
+     * Le nombre d'erreurs signalées au jeu.
+     */
+    private long errors;
+
+    /**
+     * Le nombre d'enregistrements de modification de bloc.
+     */
+    private long records;
+
+    /**
+     * Le nombre de lots confiés au fil d'écriture.
+     */
+    private long batches;
+
+    /**
+     * Le nombre total d'octets confiés au fil d'écriture.
+     */
+    private long bytes;
+
+    /**
+     * Le nombre de compactages.
+     */
+    private long compactions;
+
+    /**
+     * La durée du plus long travail réalisé sur le fil du jeu (enregistrement d'un lot ou
+     * capture d'un compactage), en nanosecondes.
+     */
+    private long maxTickNanos;
+
+    /**
+     * La durée du dernier compactage sur le fil d'écriture, en nanosecondes.
+     */
+    private volatile long lastCompactionNanos;
+
+    /**
+     * Crée une nouvelle instance de WorldJournal, qui commence immédiatement à enregistrer
+     * les modifications d'une partie.
+     *
+     * @param save         La sauvegarde dans laquelle la partie est enregistrée.
+     * @param game         La partie à enregistrer, qui doit avoir été chargée depuis la
+     *        sauvegarde ou y avoir été sauvegardée.
+     * @param errorHandler L'action informant le jeu des erreurs survenues pendant
+     *        l'enregistrement, exécutée sur le fil du jeu (pendant un pas de la boucle de
+     *        jeu).
+     *
+     * @throws IllegalStateException Si la partie n'appartient pas à la sauvegarde.
+     */
+    public WorldJournal(WorldSave save, FlatcraftGame game, Consumer<IOException> errorHandler) {
+        if (!save.contains(game)) {
+            throw new IllegalStateException("The game must be saved or loaded first!");
+        }
+
+        this.save = save;
+        this.game = game;
+        this.errorHandler = errorHandler;
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            // Le fil d'écriture ne doit pas prendre le processeur au fil du jeu.
+            Thread thread = new Thread(runnable, "journal-writer");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        this.lastCompaction = game.getGameLoop().getTicks();
+
+        // Le premier compactage range dans les fichiers de région les tronçons modifiés par
+        // les journaux rejoués au chargement, et ouvre la génération dans laquelle la
+        // partie est ensuite enregistrée.
+        modified.addAll(save.takeReplayedChunks());
+        compact();
+        game.getMap().addListener(this);
+        game.getGameLoop().add(this);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see fr.univartois.butinfo.ihm.flatcraft.model.IMapListener#mapChanged(fr.univartois.butinfo.ihm.flatcraft.model.MapChanges)
+     */
+    @Override
+    public void mapChanged(MapChanges changes) {
+        GameMap map = game.getMap();
+        try {
+            for (int i = 0; i < changes.size(); i++) {
+                int row = changes.getRow(i);
+                int column = changes.getColumn(i);
+                output.writeByte(BLOCK);
+                writeVarInt(output, column);
+                writeVarInt(output, row);
+                writeVarInt(output, map.getBlock(row, column));
+                modified.add(Math.floorDiv(column, Chunk.WIDTH));
+            }
+            records += changes.size();
+
+        } catch (IOException e) {
+            // Impossible : le tampon est en mémoire.
+            throw new AssertionError(e);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see fr.univartois.butinfo.ihm.flatcraft.model.ITickable#tick(long)
+     */
+    @Override
+    public void tick(long tick) {
+        IOException e = failure.getAndSet(null);
+        if (e != null) {
+            // Les modifications qui n'ont pas pu être écrites sont sauvegardées par un
+            // compactage, dès la prochaine écriture du journal.
+            errors++;
+            recovering = true;
+            errorHandler.accept(e);
+        }
+        if (tick % SYNC_TICKS != 0) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        if (recovering || (tick - lastCompaction >= COMPACT_TICKS) || (journalBytes >= COMPACT_BYTES)) {
+            recovering = false;
+            lastCompaction = tick;
+            compact();
+        } else {
+            sync();
+        }
+        maxTickNanos = Math.max(maxTickNanos, System.nanoTime() - start);
+    }
+
+    /**
+     * Confie au fil d'écriture le lot en cours, complété par l'état du joueur s'il a
+     * changé.
+     */
+    private void sync() {
+        PlayerState current = PlayerState.of(game.getJoueur());
+        try {
+            if (!current.equals(player)) {
+                output.writeByte(PLAYER);
+                current.write(output);
+                player = current;
+            }
+
+        } catch (IOException e) {
+            // Impossible : le tampon est en mémoire.
+            throw new AssertionError(e);
+        }
+
+        if (batch.size() == 0) {
+            return;
+        }
+
+        byte[] payload = batch.toByteArray();
+        batch.reset();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer framed = ByteBuffer.allocate(2 * Integer.BYTES + payload.length);
+        framed.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+
+        batches++;
+        bytes += framed.remaining();
+        journalBytes += framed.remaining();
+        long journalGeneration = generation;
+        writer.execute(() -> append(journalGeneration, framed));
+    }
+
+    /**
+     * Compacte le journal : les tronçons modifiés depuis le compactage précédent sont codés,
+     * puis confiés au fil d'écriture avec l'état du joueur, et les modifications suivantes
+     * sont enregistrées dans une nouvelle génération du journal.
+     */
+    private void compact() {
+        sync();
+
+        for (Integer index = unsaved.poll(); index != null; index = unsaved.poll()) {
+            modified.add(index);
+        }
+        List<IChunkView> chunks = new ArrayList<>();
+        game.getMap().forEachLoadedChunk(modified::contains, chunks::add);
+        modified.clear();
+
+        WorldSave.Snapshot snapshot = save.snapshot(game, chunks);
+        int[] indices = chunks.stream().mapToInt(IChunkView::getIndex).toArray();
+        generation = snapshot.getGeneration();
+        journalBytes = 0;
+        compactions++;
+        writer.execute(() -> {
+            try {
+                long start = System.nanoTime();
+                closeChannel();
+                save.write(snapshot);
+                lastCompactionNanos = System.nanoTime() - start;
+
+            } catch (IOException e) {
+                // Les journaux précédents restent valides, tant que la sauvegarde ne
+                // désigne pas la nouvelle génération : seuls les tronçons de ce
+                // compactage doivent être sauvegardés de nouveau.
+                for (int index : indices) {
+                    unsaved.add(index);
+                }
+                fail(e);
+            }
+        });
+    }
+
+    /**
+     * Ajoute un lot à la fin d'un journal.
+     * Cette méthode est exécutée par le fil d'écriture.
+     *
+     * @param journalGeneration La génération du journal.
+     * @param framed            Le lot, précédé de sa taille et de sa somme de contrôle.
+     */
+    private void append(long journalGeneration, ByteBuffer framed) {
+        if (journalGeneration == brokenGeneration) {
+            return;
+        }
+
+        try {
+            if ((channel == null) || (channelGeneration != journalGeneration)) {
+                closeChannel();
+                channel = FileChannel.open(save.journalOf(journalGeneration), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                channelGeneration = journalGeneration;
+                ByteBuffer header = ByteBuffer.allocate(Integer.BYTES + Long.BYTES);
+                header.putInt(MAGIC).putLong(journalGeneration).flip();
+                writeFully(header);
+            }
+            writeFully(framed);
+            channel.force(false);
+
+        } catch (IOException e) {
+            brokenGeneration = journalGeneration;
+            try {
+                closeChannel();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            fail(e);
+        }
+    }
+
+    /**
+     * Enregistre une erreur survenue sur le fil d'écriture, afin qu'elle soit signalée au
+     * jeu lors de son prochain pas.
+     * Si une erreur n'a pas encore été signalée, les suivantes (qui ont généralement la
+     * même cause) sont ignorées.
+     *
+     * @param e L'erreur survenue.
+     */
+    private void fail(IOException e) {
+        failure.compareAndSet(null, e);
+    }
+
+    /**
+     * Écrit tous les octets restants d'un tampon dans le journal ouvert.
+     *
+     * @param buffer Le tampon à écrire.
+     *
+     * @throws IOException Si l'écriture échoue.
+     */
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Ferme le journal ouvert par le fil d'écriture, s'il y en a un.
+     *
+     * @throws IOException Si le journal ne peut pas être fermé.
+     */
+    private void closeChannel() throws IOException {
+        if (channel != null) {
+            try {
+                channel.close();
+            } finally {
+                channel = null;
+            }
+        }
+    }
+
+    /**
+     * Arrête l'enregistrement de la partie, après un dernier compactage, et attend que le
+     * fil d'écriture ait terminé.
+     *
+     * @throws IOException Si le dernier compactage échoue, ou si une erreur survenue
+     *         pendant l'enregistrement n'a pas encore été signalée au jeu.
+     */
+    @Override
+    public void close() throws IOException {
+        game.getGameLoop().remove(this);
+        game.getMap().removeListener(this);
+        compact();
+        writer.execute(() -> {
+            try {
+                closeChannel();
+            } catch (IOException e) {
+                fail(e);
+            }
+        });
+        writer.shutdown();
+
+        try {
+            writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while saving the world!", e);
+        }
+        IOException e = failure.getAndSet(null);
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    /**
+     * Rejoue un journal sur une partie qui vient d'être préparée.
+     * Les lots sont rejoués jusqu'au premier lot incomplet ou corrompu (qui ne peut être que
+     * le dernier, interrompu par un arrêt brutal).
+     *
+     * @param path Le chemin du journal.
+     * @param game La partie sur laquelle rejouer le journal.
+     * @param save La sauvegarde à laquelle appartient le journal.
+     * @return Le dernier état du joueur enregistré dans le journal, ou {@code null} s'il
+     *         n'y en a pas.
+     *
+     * @throws IOException Si le journal ne peut pas être lu.
+     */
+    static PlayerState replay(Path path, FlatcraftGame game, WorldSave save) throws IOException {
+        PlayerState last = null;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if ((input.readInt() != MAGIC) || (input.readLong() != generationOf(path))) {
+                throw new IOException("Not a Flatcraft journal: " + path);
+            }
+
+            GameMap map = game.getMap();
+            while (true) {
+                byte[] payload;
+                try {
+                    int length = input.readInt();
+                    int checksum = input.readInt();
+                    if (length <= 0) {
+                        break;
+                    }
+                    payload = input.readNBytes(length);
+                    CRC32 crc = new CRC32();
+                    crc.update(payload);
+                    if ((payload.length != length) || ((int) crc.getValue() != checksum)) {
+                        break;
+                    }
+
+                } catch (EOFException e) {
+                    break;
+                }
+
+                DataInputStream records = new DataInputStream(new ByteArrayInputStream(payload));
+                for (int type = records.read(); type >= 0; type = records.read()) {
+                    if (type == BLOCK) {
+                        int column = readVarInt(records);
+                        int row = readVarInt(records);
+                        map.setBlock(row, column, readVarInt(records));
+                        save.blockReplayed(column);
+                    } else if (type == PLAYER) {
+                        last = PlayerState.read(records);
+                    } else {
+                        throw new IOException("Unknown journal record " + type + " in " + path);
+                    }
+                }
+            }
+
+        } catch (EOFException e) {
+            // Le journal a été créé, mais son en-tête n'a pas été entièrement écrit.
+        }
+        return last;
+    }
+
+    /**
+     * Donne la génération d'un journal, d'après le nom de son fichier.
+     *
+     * @param path Le chemin du journal.
+     * @return La génération du journal.
+     */
+    static long generationOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring("journal.".length(), name.length() - ".log".length()));
+    }
+
+    /**
+     * Écrit un entier positif sous une forme de taille variable : 7 bits par octet, le bit
+     * de poids fort indiquant si d'autres octets suivent.
+     *
+     * @param output Le flux dans lequel écrire.
+     * @param value  L'entier à écrire.
+     *
+     * @throws IOException Si l'écriture échoue.
+     */
+    private static void writeVarInt(DataOutput output, int value) throws IOException {
+        int v = value;
+        while ((v & ~0x7F) != 0) {
+            output.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        output.writeByte(v);
+    }
+
+    /**
+     * Lit un entier écrit par {@link #writeVarInt(DataOutput, int)}.
+     *
+     * @param input Le flux dans lequel lire.
+     * @return L'entier lu.
+     *
+     * @throws IOException Si la lecture échoue.
+     */
+    private static int readVarInt(DataInput input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer!");
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format(
+                "WorldJournal[records=%d, batches=%d, bytes=%d, compactions=%d, errors=%d, maxTick=%.3f ms, lastCompaction=%.3f ms]",
+                records, batches, bytes, compactions, errors, maxTickNanos / 1e6, lastCompactionNanos / 1e6);
+    }
+
+}
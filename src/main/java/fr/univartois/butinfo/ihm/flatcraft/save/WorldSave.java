@@ -0,0 +1,661 @@
+package fr.univartois.butinfo.ihm.flatcraft.save;
+
+import fr.univartois.butinfo.ihm.flatcraft.model.Chunk;
+import fr.univartois.butinfo.ihm.flatcraft.model.FlatcraftGame;
+import fr.univartois.butinfo.ihm.flatcraft.model.IChunkStore;
+import fr.univartois.butinfo.ihm.flatcraft.model.IChunkView;
+import fr.univartois.butinfo.ihm.flatcraft.model.IFlatcraftController;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * La classe {@link WorldSave} représente la sauvegarde d'une partie de Flatcraft dans un
+ * répertoire.
+ * <p>
+ * Ce répertoire contient :
+ * <ul>
+ * <li>le fichier {@code world.dat}, qui contient un nombre magique ({@link #MAGIC}), la
+ * version du format, la graine et les dimensions de la partie, la première génération de
+ * ses fichiers de région, la génération de la dernière sauvegarde complète (à partir de
+ * laquelle rejouer les journaux), puis la position, les points de vie et l'inventaire du
+ * joueur ;</li>
+ * <li>le répertoire {@code region}, qui contient les blocs des tronçons de la carte ayant
+ * été générés, regroupés en fichiers de région (voir {@link RegionFile}) ;</li>
+ * <li>les fichiers {@code journal.<génération>.log}, qui contiennent les modifications
+ * postérieures à la dernière sauvegarde complète (voir {@link WorldJournal}).</li>
+ * </ul>
+ * Les tronçons qui n'ont jamais été générés ne sont pas sauvegardés : ne dépendant que de
+ * la graine, ils sont générés à l'identique lorsqu'ils sont consultés pour la première
+ * fois.
+ * <p>
+ * Lors du chargement d'une partie, seuls le fichier {@code world.dat} et les journaux sont
+ * lus : les tronçons sont ensuite lus un à un, lorsque la carte les consulte pour la
+ * première fois (c'est-à-dire lorsque le joueur s'en approche).
+ * Le temps de chargement ne dépend donc pas de la taille du monde sauvegardé.
+ * <p>
+ * Chaque sauvegarde écrit de nouveaux fichiers pour les régions qu'elle modifie, sans
+ * jamais remplacer un fichier existant (qui peut être projeté en mémoire).
+ * Pour chaque région, le fichier lu est celui de la génération la plus récente comprise
+ * entre les deux générations données par {@code world.dat} : les fichiers plus anciens
+ * ou appartenant à une sauvegarde interrompue sont supprimés dès qu'ils ne sont plus
+ * utilisés.
+ *
+ * @version 0.1.0
+ */
+public final class WorldSave implements IChunkStore {
+
+    /**
+     * Le nombre magique identifiant le fichier {@code world.dat} (les caractères
+     * {@code FCW1}).
+     */
+    private static final int MAGIC = 0x46435731;
+
+    /**
+     * La version du format de sauvegarde.
+     */
+    private static final int VERSION = 4;
+
+    /**
+     * Le répertoire de la sauvegarde.
+     */
+    private final Path directory;
+
+    /**
+     * Le répertoire contenant les fichiers de région.
+     */
+    private final Path regions;
+
+    /**
+     * Les fichiers de région déjà ouverts, indexés par l'indice de leur région (associé à
+     * {@code null} si la région n'a jamais été sauvegardée).
+     */
+    private final Map<Integer, RegionFile> regionFiles = new HashMap<>();
+
+    /**
+     * Les générations des fichiers de région à lire, indexées par l'indice de leur région
+     * (protégées, comme {@link #base}, par le verrou de {@link #regionFiles}).
+     */
+    private final Map<Integer, Long> regionGenerations = new HashMap<>();
+
+    /**
+     * La première génération des fichiers de région de la partie sauvegardée : les
+     * fichiers plus anciens appartiennent à une partie qu'elle a remplacée.
+     */
+    private long base;
+
+    /**
+     * La partie chargée depuis cette sauvegarde, ou qui y a été sauvegardée.
+     */
+    private FlatcraftGame game;
+
+    /**
+     * La dernière génération de journal utilisée.
+     */
+    private long generation;
+
+    /**
+     * Le nombre de tronçons lus depuis cette sauvegarde.
+     */
+    private int loadedChunks;
+
+    /**
+     * Le nombre de modifications de blocs rejouées depuis les journaux lors du chargement.
+     */
+    private int replayedBlocks;
+
+    /**
+     * Les indices des tronçons modifiés par les journaux rejoués lors du chargement, qui
+     * n'ont pas encore été sauvegardés dans les fichiers de région.
+     */
+    private final Set<Integer> replayedChunks = new HashSet<>();
+
+    /**
+     * Crée une nouvelle instance de WorldSave.
+     *
+     * @param directory Le répertoire de la sauvegarde.
+     */
+    public WorldSave(Path directory) {
+        this.directory = directory;
+        this.regions = directory.resolve("region");
+    }
+
+    /**
+     * Indique si ce répertoire contient une partie sauvegardée.
+     *
+     * @return Si une partie peut être chargée depuis cette sauvegarde.
+     */
+    public boolean exists() {
+        return Files.isRegularFile(directory.resolve("world.dat"));
+    }
+
+    /**
+     * Charge la partie sauvegardée.
+     * La partie est créée et préparée avec la graine et les dimensions sauvegardées, puis
+     * les modifications enregistrées dans les journaux depuis la dernière sauvegarde
+     * complète sont rejouées (ce qui permet de reprendre une partie interrompue
+     * brutalement).
+     * Le joueur est enfin replacé à sa dernière position connue, avec ses points de vie et
+     * son inventaire.
+     *
+     * @param controleur Le contrôleur de la partie.
+     * @return La partie chargée.
+     *
+     * @throws IOException Si la sauvegarde ne peut pas être lue.
+     * @throws IllegalStateException Si une partie a déjà été chargée depuis cette
+     *         sauvegarde.
+     */
+    public FlatcraftGame load(IFlatcraftController controleur) throws IOException {
+        if (game != null) {
+            throw new IllegalStateException("The world has already been loaded!");
+        }
+
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(directory.resolve("world.dat"))))) {
+            if ((input.readInt() != MAGIC) || (input.readInt() != VERSION)) {
+                throw new IOException("Not a Flatcraft world: " + directory);
+            }
+
+            long seed = input.readLong();
+            int width = input.readInt();
+            int height = input.readInt();
+            int mapWidth = input.readInt();
+            long firstRegion = input.readLong();
+            long first = input.readLong();
+            PlayerState joueur = PlayerState.read(input);
+            scanRegions(firstRegion, first);
+
+            FlatcraftGame loaded = new FlatcraftGame(width, height, mapWidth);
+            loaded.setControleur(controleur);
+            controleur.setJeu(loaded);
+            loaded.setSeed(seed);
+            loaded.setChunkStore(this);
+            loaded.prepare();
+
+            // Les journaux postérieurs à la sauvegarde complète sont rejoués dans l'ordre.
+            synchronized (this) {
+                generation = first;
+                for (Path journal : journals(first)) {
+                    PlayerState last = WorldJournal.replay(journal, loaded, this);
+                    if (last != null) {
+                        joueur = last;
+                    }
+                    generation = Math.max(generation, WorldJournal.generationOf(journal));
+                }
+                game = loaded;
+            }
+
+            joueur.applyTo(loaded);
+            return loaded;
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see fr.univartois.butinfo.ihm.flatcraft.model.IChunkStore#load(int, short[])
+     */
+    @Override
+    public boolean load(int index, short[] blocks) {
+        try {
+            RegionFile region = region(RegionFile.indexOf(index), blocks.length / Chunk.WIDTH);
+            if ((region != null) && region.read(index, blocks)) {
+                synchronized (this) {
+                    loadedChunks++;
+                }
+                return true;
+            }
+            return false;
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Donne le fichier d'une région, en l'ouvrant s'il ne l'a pas encore été.
+     *
+     * @param index  L'indice de la région.
+     * @param height La hauteur des tronçons.
+     * @return Le fichier de la région, ou {@code null} si la région n'a jamais été
+     *         sauvegardée.
+     *
+     * @throws IOException Si le fichier ne peut pas être ouvert.
+     */
+    private RegionFile region(int index, int height) throws IOException {
+        synchronized (regionFiles) {
+            if (!regionFiles.containsKey(index)) {
+                Long regionGeneration = regionGenerations.get(index);
+                regionFiles.put(index, (regionGeneration == null) ? null
+                        : RegionFile.open(RegionFile.pathOf(regions, index, regionGeneration), height));
+            }
+            return regionFiles.get(index);
+        }
+    }
+
+    /**
+     * Détermine les fichiers de région à lire, parmi ceux du répertoire de la sauvegarde.
+     * Pour chaque région, il s'agit du fichier de la génération la plus récente comprise
+     * entre deux générations : les autres fichiers sont supprimés.
+     *
+     * @param first La première génération des fichiers de la partie sauvegardée.
+     * @param last  La génération de la dernière sauvegarde complète (les fichiers plus
+     *        récents appartiennent à une sauvegarde qui a été interrompue).
+     *
+     * @throws IOException Si le répertoire ne peut pas être parcouru.
+     */
+    private void scanRegions(long first, long last) throws IOException {
+        List<Path> files = regionPaths();
+        synchronized (regionFiles) {
+            base = first;
+            regionFiles.clear();
+            regionGenerations.clear();
+            for (Path file : files) {
+                long regionGeneration = RegionFile.generationOf(file);
+                if ((first <= regionGeneration) && (regionGeneration <= last)) {
+                    regionGenerations.merge(RegionFile.regionOf(file), regionGeneration, Math::max);
+                }
+            }
+            for (Path file : files) {
+                Long used = regionGenerations.get(RegionFile.regionOf(file));
+                if ((used == null) || (used != RegionFile.generationOf(file))) {
+                    deleteStale(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Donne les fichiers de région du répertoire de la sauvegarde.
+     *
+     * @return Les chemins des fichiers de région.
+     *
+     * @throws IOException Si le répertoire ne peut pas être parcouru.
+     */
+    private List<Path> regionPaths() throws IOException {
+        List<Path> paths = new ArrayList<>();
+        if (Files.isDirectory(regions)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(regions, "r.*.*.fcr")) {
+                files.forEach(paths::add);
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Supprime, si c'est possible, un fichier qui n'est plus utilisé par la sauvegarde.
+     * Certains systèmes (comme Windows) interdisent de supprimer un fichier de région tant
+     * qu'il est projeté en mémoire : il est alors conservé, et ignoré jusqu'à ce qu'il
+     * soit supprimé lors d'un prochain chargement.
+     *
+     * @param file Le fichier à supprimer.
+     */
+    private static void deleteStale(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Le fichier n'est plus lu : il suffit de le supprimer plus tard.
+        }
+    }
+
+    /**
+     * Sauvegarde complètement une partie dans ce répertoire, en y écrivant tous ses
+     * tronçons chargés.
+     * Si la partie n'a pas été chargée depuis cette sauvegarde, l'éventuelle partie
+     * précédemment sauvegardée dans ce répertoire est remplacée.
+     * Cette méthode bloque jusqu'à la fin de l'écriture : pendant la partie, les
+     * modifications doivent plutôt être enregistrées par un {@link WorldJournal}.
+     *
+     * @param game La partie à sauvegarder.
+     *
+     * @throws IOException Si la partie ne peut pas être sauvegardée.
+     */
+    public void save(FlatcraftGame game) throws IOException {
+        if (!contains(game)) {
+            // La nouvelle partie commence après toutes les générations des fichiers de la
+            // partie qu'elle remplace, qui sont ainsi ignorés même s'ils ne peuvent pas
+            // être supprimés.
+            long last = Long.MIN_VALUE;
+            for (Path file : regionPaths()) {
+                last = Math.max(last, RegionFile.generationOf(file));
+            }
+            for (Path journal : journals(Long.MIN_VALUE)) {
+                last = Math.max(last, WorldJournal.generationOf(journal));
+            }
+            synchronized (this) {
+                generation = Math.max(generation, last);
+            }
+        }
+
+        List<IChunkView> chunks = new ArrayList<>();
+        game.getMap().forEachLoadedChunk(chunks::add);
+        write(snapshot(game, chunks));
+    }
+
+    /**
+     * Capture l'état d'une partie à sauvegarder.
+     * Cette méthode doit être appelée sur le fil d'exécution du jeu ; l'état capturé peut
+     * ensuite être écrit depuis n'importe quel fil avec {@link #write(Snapshot)}.
+     * La capture ouvre une nouvelle génération de journal : les modifications
+     * enregistrées dans les générations précédentes sont incluses dans l'état capturé.
+     *
+     * @param game   La partie à sauvegarder.
+     * @param chunks Les tronçons à sauvegarder (les autres tronçons sauvegardés sont
+     *        conservés tels quels).
+     * @return L'état capturé.
+     */
+    synchronized Snapshot snapshot(FlatcraftGame game, Collection<IChunkView> chunks) {
+        boolean replace = (game != this.game);
+        this.game = game;
+
+        Map<Integer, byte[]> encoded = new HashMap<>();
+        for (IChunkView chunk : chunks) {
+            encoded.put(chunk.getIndex(), ChunkCodec.encode(chunk));
+        }
+        return new Snapshot(game, PlayerState.of(game.getJoueur()), encoded, ++generation, replace);
+    }
+
+    /**
+     * Écrit un état capturé par {@link #snapshot(FlatcraftGame, Collection)}.
+     * Les nouveaux fichiers des régions concernées sont écrits, puis le fichier
+     * {@code world.dat} (qui désigne la nouvelle génération), et enfin les journaux des
+     * générations précédentes et les fichiers de région remplacés sont supprimés.
+     * Une interruption à n'importe quelle étape laisse ainsi une sauvegarde cohérente.
+     *
+     * @param snapshot L'état à écrire.
+     *
+     * @throws IOException Si l'état ne peut pas être écrit.
+     */
+    void write(Snapshot snapshot) throws IOException {
+        Files.createDirectories(regions);
+        Map<Integer, Map<Integer, byte[]>> byRegion = new TreeMap<>();
+        for (Map.Entry<Integer, byte[]> entry : snapshot.chunks.entrySet()) {
+            byRegion.computeIfAbsent(RegionFile.indexOf(entry.getKey()), k -> new HashMap<>())
+                    .put(entry.getKey(), entry.getValue());
+        }
+
+        long first;
+        synchronized (regionFiles) {
+            first = snapshot.replace ? snapshot.generation : base;
+        }
+        List<Path> written = new ArrayList<>();
+        try {
+            for (Map.Entry<Integer, Map<Integer, byte[]>> entry : byRegion.entrySet()) {
+                // Les régions sauvegardées d'une autre partie ne doivent pas être recopiées.
+                int index = entry.getKey();
+                RegionFile previous = snapshot.replace ? null : region(index, snapshot.chunkHeight);
+                Path path = RegionFile.pathOf(regions, index, snapshot.generation);
+                written.add(path);
+                RegionFile.write(path, index, snapshot.chunkHeight, entry.getValue(), previous);
+            }
+            writeWorld(snapshot, first);
+
+        } catch (IOException e) {
+            // Les fichiers écrits ne sont pas désignés par world.dat, mais pourraient
+            // l'être par une sauvegarde ultérieure qui ne réécrit pas leur région.
+            for (Path path : written) {
+                deleteStale(path);
+            }
+            throw e;
+        }
+
+        // Les tronçons des régions sont chargés (ils viennent d'être sauvegardés) ou
+        // identiques dans les deux fichiers : les nouvelles projections seront ouvertes au
+        // besoin.
+        List<Path> stale = new ArrayList<>();
+        synchronized (regionFiles) {
+            if (snapshot.replace) {
+                base = first;
+                regionFiles.clear();
+                regionGenerations.clear();
+            }
+            for (int index : byRegion.keySet()) {
+                Long superseded = regionGenerations.put(index, snapshot.generation);
+                if (superseded != null) {
+                    stale.add(RegionFile.pathOf(regions, index, superseded));
+                }
+                regionFiles.remove(index);
+            }
+        }
+        if (snapshot.replace) {
+            for (Path file : regionPaths()) {
+                if (RegionFile.generationOf(file) < first) {
+                    stale.add(file);
+                }
+            }
+        }
+
+        for (Path journal : journals(Long.MIN_VALUE)) {
+            if (snapshot.replace || (WorldJournal.generationOf(journal) < snapshot.generation)) {
+                Files.delete(journal);
+            }
+        }
+        for (Path file : stale) {
+            deleteStale(file);
+        }
+    }
+
+    /**
+     * Écrit le fichier {@code world.dat} d'un état capturé, en remplaçant l'éventuel
+     * fichier existant.
+     *
+     * @param snapshot L'état à écrire.
+     * @param first    La première génération des fichiers de région de la partie.
+     *
+     * @throws IOException Si le fichier ne peut pas être écrit.
+     */
+    private void writeWorld(Snapshot snapshot, long first) throws IOException {
+        Path path = directory.resolve("world.dat");
+        Path temp = directory.resolve("world.dat.tmp");
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(snapshot.seed);
+            output.writeInt(snapshot.width);
+            output.writeInt(snapshot.height);
+            output.writeInt(snapshot.mapWidth);
+            output.writeLong(first);
+            output.writeLong(snapshot.generation);
+            snapshot.player.write(output);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Donne les journaux de ce répertoire à partir d'une génération, dans l'ordre de leurs
+     * générations.
+     *
+     * @param first La première génération à considérer.
+     * @return Les chemins des journaux.
+     *
+     * @throws IOException Si le répertoire ne peut pas être parcouru.
+     */
+    private List<Path> journals(long first) throws IOException {
+        TreeMap<Long, Path> journals = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "journal.*.log")) {
+            for (Path file : files) {
+                long journalGeneration = WorldJournal.generationOf(file);
+                if (journalGeneration >= first) {
+                    journals.put(journalGeneration, file);
+                }
+            }
+        }
+        return new ArrayList<>(journals.values());
+    }
+
+    /**
+     * Donne le chemin du journal d'une génération.
+     *
+     * @param journalGeneration La génération du journal.
+     * @return Le chemin du journal.
+     */
+    Path journalOf(long journalGeneration) {
+        return directory.resolve("journal." + journalGeneration + ".log");
+    }
+
+    /**
+     * Indique si une partie a été chargée depuis cette sauvegarde, ou y a été sauvegardée.
+     *
+     * @param game La partie à vérifier.
+     * @return Si la sauvegarde contient la partie.
+     */
+    synchronized boolean contains(FlatcraftGame game) {
+        return this.game == game;
+    }
+
+    /**
+     * Enregistre qu'une modification de bloc a été rejouée depuis un journal.
+     *
+     * @param column La colonne de la cellule modifiée.
+     */
+    synchronized void blockReplayed(int column) {
+        replayedBlocks++;
+        replayedChunks.add(Math.floorDiv(column, Chunk.WIDTH));
+    }
+
+    /**
+     * Donne les indices des tronçons modifiés par les journaux rejoués lors du chargement,
+     * qui doivent être inclus dans le prochain compactage.
+     *
+     * @return Les indices des tronçons modifiés (qui sont ensuite oubliés).
+     */
+    synchronized Set<Integer> takeReplayedChunks() {
+        Set<Integer> chunks = new HashSet<>(replayedChunks);
+        replayedChunks.clear();
+        return chunks;
+    }
+
+    /**
+     * Donne le nombre de tronçons lus depuis cette sauvegarde.
+     *
+     * @return Le nombre de tronçons lus.
+     */
+    public synchronized int getLoadedChunks() {
+        return loadedChunks;
+    }
+
+    /**
+     * Donne le nombre de modifications de blocs rejouées depuis les journaux lors du
+     * chargement de la partie.
+     *
+     * @return Le nombre de modifications rejouées.
+     */
+    public synchronized int getReplayedBlocks() {
+        return replayedBlocks;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public synchronized String toString() {
+        return "WorldSave[directory=" + directory + ", loadedChunks=" + loadedChunks + ", replayedBlocks="
+                + replayedBlocks + ", generation=" + generation + "]";
+    }
+
+    /**
+     * La classe {@link Snapshot} représente l'état d'une partie capturé sur le fil
+     * d'exécution du jeu, et qui peut être écrit depuis n'importe quel autre fil.
+     */
+    static final class Snapshot {
+
+        /**
+         * La graine de la partie.
+         */
+        private final long seed;
+
+        /**
+         * La largeur de la carte affichée.
+         */
+        private final int width;
+
+        /**
+         * La hauteur de la carte affichée.
+         */
+        private final int height;
+
+        /**
+         * La largeur de la carte complète.
+         */
+        private final int mapWidth;
+
+        /**
+         * La hauteur des tronçons de la carte.
+         */
+        private final int chunkHeight;
+
+        /**
+         * L'état du joueur.
+         */
+        private final PlayerState player;
+
+        /**
+         * Les tronçons à sauvegarder, codés par {@link ChunkCodec} et indexés par leur
+         * indice dans la carte.
+         */
+        private final Map<Integer, byte[]> chunks;
+
+        /**
+         * La génération du journal ouverte par cette capture.
+         */
+        private final long generation;
+
+        /**
+         * Si la sauvegarde existante appartient à une autre partie, et doit être remplacée.
+         */
+        private final boolean replace;
+
+        /**
+         * Crée une nouvelle instance de Snapshot.
+         *
+         * @param game       La partie capturée.
+         * @param player     L'état du joueur.
+         * @param chunks     Les tronçons à sauvegarder, codés.
+         * @param generation La génération du journal ouverte par cette capture.
+         * @param replace    Si la sauvegarde existante doit être remplacée.
+         */
+        private Snapshot(FlatcraftGame game, PlayerState player, Map<Integer, byte[]> chunks, long generation,
+                boolean replace) {
+            this.seed = game.getSeed();
+            this.width = game.getWidth();
+            this.height = game.getHeight();
+            this.mapWidth = game.getMapWidth();
+            this.chunkHeight = game.getMap().getHeight();
+            this.player = player;
+            this.chunks = chunks;
+            this.generation = generation;
+            this.replace = replace;
+        }
+
+        /**
+         * Donne la génération du journal ouverte par cette capture : les modifications
+         * postérieures à la capture doivent y être enregistrées.
+         *
+         * @return La génération du journal.
+         */
+        long getGeneration() {
+            return generation;
+        }
+
+    }
+
+}
@@ -0,0 +1,112 @@
+package fr.univartois.butinfo.ihm.flatcraft.view;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * La classe {@link SpriteAtlas} regroupe un ensemble de sprites dans une seule grande
+ * image (un "atlas de textures").
+ * Chaque sprite y occupe un rectangle, que l'on peut retrouver à partir de son nom ou de
+ * l'image d'origine.
+ * Dessiner des portions d'une même image permet au moteur de rendu de JavaFX de
+ * n'envoyer qu'une seule texture à la carte graphique, et de regrouper les dessins.
+ *
+ * @version 0.1.0
+ */
+public final class SpriteAtlas {
+
+    /**
+     * L'image contenant tous les sprites de cet atlas.
+     */
+    private final WritableImage image;
+
+    /**
+     * Les rectangles occupés par les sprites, indexés par leur nom.
+     */
+    private final Map<String, Rectangle2D> regionsByName = new HashMap<>();
+
+    /**
+     * Les rectangles occupés par les sprites, indexés par leur image d'origine.
+     */
+    private final Map<Image, Rectangle2D> regionsBySprite = new IdentityHashMap<>();
+
+    /**
+     * Crée une nouvelle instance de SpriteAtlas, en y copiant les sprites donnés.
+     * Les sprites sont rangés dans une grille aussi carrée que possible.
+     *
+     * @param sprites    Les sprites à regrouper, indexés par leur nom.
+     * @param spriteSize La taille (en pixels) des sprites.
+     */
+    SpriteAtlas(Map<String, Image> sprites, int spriteSize) {
+        int columns = Math.max(1, (int) Math.ceil(Math.sqrt(sprites.size())));
+        int rows = Math.max(1, (sprites.size() + columns - 1) / columns);
+        this.image = new WritableImage(columns * spriteSize, rows * spriteSize);
+
+        PixelWriter writer = image.getPixelWriter();
+        int index = 0;
+        for (Map.Entry<String, Image> entry : sprites.entrySet()) {
+            Image sprite = entry.getValue();
+            int x = (index % columns) * spriteSize;
+            int y = (index / columns) * spriteSize;
+            int width = Math.min(spriteSize, (int) sprite.getWidth());
+            int height = Math.min(spriteSize, (int) sprite.getHeight());
+            PixelReader reader = sprite.getPixelReader();
+            if (reader != null) {
+                writer.setPixels(x, y, width, height, reader, 0, 0);
+            }
+
+            Rectangle2D region = new Rectangle2D(x, y, spriteSize, spriteSize);
+            regionsByName.put(entry.getKey(), region);
+            regionsBySprite.put(sprite, region);
+            index++;
+        }
+    }
+
+    /**
+     * Donne l'image contenant tous les sprites de cet atlas.
+     *
+     * @return L'image de cet atlas.
+     */
+    public Image getImage() {
+        return image;
+    }
+
+    /**
+     * Donne le rectangle occupé dans cet atlas par le sprite ayant le nom donné.
+     *
+     * @param name Le nom du sprite.
+     * @return Le rectangle occupé par le sprite, ou {@code null} s'il n'est pas dans cet
+     *         atlas.
+     */
+    public Rectangle2D getRegion(String name) {
+        return regionsByName.get(name);
+    }
+
+    /**
+     * Donne le rectangle occupé dans cet atlas par un sprite.
+     *
+     * @param sprite L'image d'origine du sprite.
+     * @return Le rectangle occupé par le sprite, ou {@code null} s'il n'est pas dans cet
+     *         atlas.
+     */
+    public Rectangle2D getRegion(Image sprite) {
+        return regionsBySprite.get(sprite);
+    }
+
+    /**
+     * Donne le nombre de sprites de cet atlas.
+     *
+     * @return Le nombre de sprites.
+     */
+    public int size() {
+        return regionsByName.size();
+    }
+
+}
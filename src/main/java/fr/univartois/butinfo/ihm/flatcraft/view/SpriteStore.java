@@ -0,0 +1,190 @@
+package fr.univartois.butinfo.ihm.flatcraft.view;
+/*
+ * Ce logiciel est distribué à des fins éducatives.
+ *
+ * Il est fourni "tel quel", sans garantie d’aucune sorte, explicite
+ * ou implicite, notamment sans garantie de qualité marchande, d’adéquation
+ * à un usage particulier et d’absence de contrefaçon.
+ * En aucun cas, les auteurs ou titulaires du droit d’auteur ne seront
+ * responsables de tout dommage, réclamation ou autre responsabilité, que ce
+ * soit dans le cadre d’un contrat, d’un délit ou autre, en provenance de,
+ * consécutif à ou en relation avec le logiciel ou son utilisation, ou avec
+ * d’autres éléments du logiciel.
+ *
+ * (c) 2023-2024 Romain Wallon - Université d'Artois.
+ * Tous droits réservés.
+ */
+
+import javafx.scene.image.Image;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleConsumer;
+
+/**
+ * La classe {@link SpriteStore} permet de charger les différentes images utilisées
+ * pour représenter les éléments du jeu une et une seule fois pendant l'exécution du
+ * programme.
+ * Les sprites listés dans le manifeste {@code view/images/sprites.properties} peuvent être
+ * préchargés en parallèle au démarrage (voir {@link #preload(DoubleConsumer)}), afin
+ * qu'aucun chargement n'ait lieu pendant la partie.
+ *
+ * @author Romain Wallon
+ * @version 0.1.0
+ */
+public final class SpriteStore {
+
+    /**
+     * Le chemin du manifeste des sprites, relativement à cette classe.
+     */
+    private static final String MANIFEST = "images/sprites.properties";
+
+    /**
+     * La {@link Map} permettant de conserver en cache les différentes images déjà
+     * chargées.
+     * Elle peut être alimentée par plusieurs threads lors du préchargement.
+     */
+    private final Map<String, Image> spriteCache = new ConcurrentHashMap<>();
+
+    /**
+     * Le manifeste associant le nom de chaque sprite à son fichier, chargé à la demande.
+     */
+    private Properties manifest;
+
+    /**
+     * L'atlas regroupant les sprites chargés, construit une seule fois à la demande.
+     */
+    private SpriteAtlas atlas;
+
+    /**
+     * Charge l'image d'un sprite donné par son identifiant.
+     *
+     * @param identifier L'identifiant du sprite à charger.
+     * @return L'image chargée.
+     * @throws NoSuchElementException Si aucun sprite ne correspond à l'identifiant donné.
+     */
+    public Image createSprite(String identifier) {
+        // On regarde si l'image a déjà été chargée, et sinon on la charge et on la met en cache.
+        return spriteCache.computeIfAbsent(identifier, this::loadImage);
+    }
+
+    /**
+     * Charge en parallèle tous les sprites listés dans le manifeste.
+     * Les images sont décodées par un ensemble de threads dédiés, qui s'arrêtent une fois
+     * le chargement terminé.
+     *
+     * @param progress La fonction informée de la progression du chargement (entre 0 et 1)
+     *        après chaque sprite chargé.
+     *        Elle est appelée depuis les threads de chargement.
+     * @return Le résultat du préchargement, disponible lorsque tous les sprites sont
+     *         chargés.
+     */
+    public CompletableFuture<Void> preload(DoubleConsumer progress) {
+        Properties sprites = getManifest();
+        int total = sprites.size();
+        AtomicInteger loaded = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(), runnable -> {
+                    Thread thread = new Thread(runnable, "sprite-loader");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        CompletableFuture<?>[] tasks = sprites.stringPropertyNames().stream()
+                .map(name -> CompletableFuture.runAsync(() -> {
+                    createSprite(name);
+                    progress.accept((double) loaded.incrementAndGet() / total);
+                }, executor))
+                .toArray(CompletableFuture[]::new);
+
+        return CompletableFuture.allOf(tasks).whenComplete((result, error) -> executor.shutdown());
+    }
+
+    /**
+     * Donne l'atlas regroupant, dans une seule image, tous les sprites chargés au moment
+     * de son premier appel.
+     * L'atlas est ensuite conservé en cache : les sprites chargés plus tard n'y figurent
+     * pas, et doivent être dessinés à partir de leur propre image.
+     *
+     * @return L'atlas des sprites chargés.
+     */
+    public synchronized SpriteAtlas getAtlas() {
+        if (atlas == null) {
+            atlas = new SpriteAtlas(spriteCache, getSpriteSize());
+        }
+        return atlas;
+    }
+
+    /**
+     * Donne la taille des images à charger.
+     *
+     * @return La taille des images (en pixels).
+     */
+    public int getSpriteSize() {
+        return 32;
+    }
+
+    /**
+     * Donne le manifeste associant le nom de chaque sprite à son fichier.
+     *
+     * @return Le manifeste des sprites.
+     * @throws UncheckedIOException Si le manifeste ne peut pas être lu.
+     */
+    private synchronized Properties getManifest() {
+        if (manifest == null) {
+            manifest = new Properties();
+            try (InputStream input = getClass().getResourceAsStream(MANIFEST)) {
+                if (input != null) {
+                    manifest.load(new InputStreamReader(input, StandardCharsets.UTF_8));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read sprite manifest", e);
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Charge une image donnée par son nom.
+     * Le fichier de l'image est cherché dans le manifeste, ou à défaut d'après les
+     * différents préfixes des noms d'images.
+     *
+     * @param name Le nom de l'image à charger.
+     * @return L'image ayant le nom donné.
+     * @throws NoSuchElementException S'il n'existe pas d'image ayant le nom donné.
+     */
+    private Image loadImage(String name) {
+        try {
+            URL urlImage;
+            String file = getManifest().getProperty(name);
+            if (file != null) {
+                urlImage = getClass().getResource("images/" + file);
+            } else {
+                // S'assure que l'image sera correctement chargée (à cause du nom des images qui diffère).
+                urlImage = getClass().getResource("images/default_" + name + ".png");
+                if (urlImage == null) urlImage = getClass().getResource("images/gui_" + name + ".png");
+                if (urlImage == null) urlImage = getClass().getResource("images/" + name + ".png");
+            }
+
+            assert urlImage != null;
+
+            return new Image(urlImage.toExternalForm(), getSpriteSize(), getSpriteSize(), true, true);
+
+        } catch (NullPointerException | IllegalArgumentException e) {
+            throw new NoSuchElementException("Could not load image " + name, e);
+        }
+    }
+
+}
@@ -0,0 +1,173 @@
+package fr.univartois.butinfo.ihm.flatcraft.view;
+
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * La classe {@link ViewRegistry} permet de charger une et une seule fois pendant
+ * l'exécution du programme les vues secondaires du jeu (inventaire, établi, fourneau...),
+ * décrites par des fichiers FXML situés à côté de cette classe.
+ * Chaque vue est conservée avec son contrôleur et sa {@link Scene} : l'afficher de nouveau
+ * ne demande donc ni d'analyser son fichier, ni de reconstruire ses nœuds, mais seulement
+ * de lier son contrôleur aux données à afficher.
+ * Les vues peuvent être préchargées en arrière-plan au démarrage (voir
+ * {@link #preload(String...)}), afin qu'aucun chargement n'ait lieu pendant la partie.
+ *
+ * @version 0.1.0
+ */
+public final class ViewRegistry {
+
+    /**
+     * La {@link Map} permettant de conserver en cache les différentes vues, chargées ou en
+     * cours de chargement, indexées par le nom de leur fichier.
+     * Elle peut être alimentée par le thread de préchargement.
+     */
+    private final Map<String, CompletableFuture<View>> views = new ConcurrentHashMap<>();
+
+    /**
+     * Charge en arrière-plan les vues données.
+     * Les vues sont chargées par un thread dédié, qui s'arrête une fois le chargement
+     * terminé.
+     * Les nœuds d'une vue n'étant attachés à aucune {@link Scene} pendant son chargement,
+     * celui-ci peut avoir lieu en dehors du thread de l'application JavaFX (mais les vues ne
+     * doivent donc pas ouvrir de fenêtre lors de leur chargement).
+     *
+     * @param names Les noms des fichiers FXML des vues à charger.
+     * @return Le résultat du préchargement, disponible lorsque toutes les vues sont
+     *         chargées.
+     */
+    public CompletableFuture<Void> preload(String... names) {
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "view-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        CompletableFuture<?>[] tasks = Arrays.stream(names)
+                .map(name -> views.computeIfAbsent(name,
+                        n -> CompletableFuture.supplyAsync(() -> loadView(n), executor)))
+                .toArray(CompletableFuture[]::new);
+        executor.shutdown();
+        return CompletableFuture.allOf(tasks);
+    }
+
+    /**
+     * Donne une vue, en la chargeant si elle n'a pas encore été préchargée, ou en attendant
+     * la fin de son préchargement s'il est en cours.
+     *
+     * @param name Le nom du fichier FXML de la vue.
+     * @return La vue ayant le nom donné.
+     * @throws IOException Si la vue ne peut pas être chargée.
+     */
+    public View get(String name) throws IOException {
+        try {
+            return views.computeIfAbsent(name, n -> CompletableFuture.completedFuture(loadView(n))).join();
+
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+
+        } catch (CompletionException e) {
+            // On permet une nouvelle tentative de chargement lors du prochain appel.
+            views.computeIfPresent(name, (n, view) -> view.isCompletedExceptionally() ? null : view);
+            if (e.getCause() instanceof UncheckedIOException cause) {
+                throw cause.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Charge une vue donnée par le nom de son fichier FXML.
+     *
+     * @param name Le nom du fichier de la vue à charger.
+     * @return La vue ayant le nom donné.
+     * @throws UncheckedIOException Si la vue ne peut pas être chargée.
+     */
+    private View loadView(String name) {
+        URL url = getClass().getResource(name);
+        if (url == null) {
+            throw new UncheckedIOException(new IOException("Could not find view " + name));
+        }
+
+        try {
+            FXMLLoader fxmlLoader = new FXMLLoader(url);
+            Parent root = fxmlLoader.load();
+            return new View(root, fxmlLoader.getController());
+
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load view " + name, e);
+        }
+    }
+
+    /**
+     * La classe {@link View} représente une vue chargée par un {@link ViewRegistry}.
+     */
+    public static final class View {
+
+        /**
+         * Le nœud racine de cette vue.
+         */
+        private final Parent root;
+
+        /**
+         * Le contrôleur de cette vue.
+         */
+        private final Object controller;
+
+        /**
+         * La scène affichant cette vue, créée lors de son premier affichage.
+         */
+        private Scene scene;
+
+        /**
+         * Crée une nouvelle instance de View.
+         *
+         * @param root       Le nœud racine de la vue.
+         * @param controller Le contrôleur de la vue.
+         */
+        private View(Parent root, Object controller) {
+            this.root = root;
+            this.controller = controller;
+        }
+
+        /**
+         * Donne le contrôleur de cette vue.
+         *
+         * @param <C> Le type du contrôleur.
+         *
+         * @return Le contrôleur de cette vue.
+         */
+        @SuppressWarnings("unchecked")
+        public <C> C getController() {
+            return (C) controller;
+        }
+
+        /**
+         * Donne la scène affichant cette vue.
+         * Elle est créée lors du premier appel à cette méthode, qui doit donc avoir lieu
+         * depuis le thread de l'application JavaFX.
+         *
+         * @return La scène de cette vue.
+         */
+        public Scene getScene() {
+            if (scene == null) {
+                scene = new Scene(root);
+            }
+            return scene;
+        }
+
+    }
+
+}